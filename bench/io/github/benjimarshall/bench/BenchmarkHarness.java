@@ -0,0 +1,254 @@
+package io.github.benjimarshall.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Small benchmark harness, in the style of JMH, for when JMH isn't on the class path. A {@code BenchmarkHarness}
+ * object runs each registered {@link Workload} in batches sized so that one iteration takes about a fixed time, runs
+ * warm up iterations that are thrown away, then reports the mean time per operation over the measured iterations, with
+ * the relative standard deviation and the best iteration.
+ * <p>
+ * Options, which are the same for every workload so runs can be repeated exactly:
+ * <ul>
+ *     <li>{@code --warmup n}, the number of warm up iterations, 5 by default</li>
+ *     <li>{@code --iterations n}, the number of measured iterations, 10 by default</li>
+ *     <li>{@code --time ms}, the target length of each iteration, 200 by default</li>
+ *     <li>{@code --seed n}, the seed for workloads that use random inputs, 42 by default</li>
+ *     <li>{@code --filter regex}, only runs workloads whose names contain a match</li>
+ *     <li>{@code --save file}, writes the mean time of each workload to a file, to use as a baseline</li>
+ *     <li>{@code --baseline file}, compares each mean time to a saved baseline</li>
+ * </ul>
+ * Every workload returns a checksum of its results, which the harness keeps, so the work can't be optimised away.
+ */
+public final class BenchmarkHarness {
+    /**
+     * Constructs a {@code BenchmarkHarness} object from command line options
+     * @param args the command line options
+     * @throws IllegalArgumentException when an option isn't recognised or is missing its value
+     */
+    public BenchmarkHarness(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing a value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "--warmup":
+                    warmupIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    measuredIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    iterationNanos = Long.parseLong(args[++i]) * 1_000_000L;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--filter":
+                    filter = Pattern.compile(args[++i]);
+                    break;
+                case "--save":
+                    savePath = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baselinePath = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * A benchmarked operation
+     */
+    @FunctionalInterface
+    public interface Workload {
+        /**
+         * Carries out the operation a number of times
+         * @param operations the number of times to carry out the operation
+         * @return a checksum of the results, so that the work can't be optimised away
+         * @throws Exception when the operation fails, which stops the benchmark
+         */
+        long run(int operations) throws Exception;
+    }
+
+    /**
+     * Registers a workload to be run
+     * @param name the name of the workload, such as {@code parse/representative}
+     * @param workload the workload
+     * @return this {@code BenchmarkHarness} object
+     */
+    public BenchmarkHarness add(String name, Workload workload) {
+        if (filter == null || filter.matcher(name).find()) {
+            names.add(name);
+            workloads.add(workload);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the {@link #seed} for random inputs
+     * @return the {@link #seed} for random inputs
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Runs every registered workload, printing a line for each
+     * @throws Exception when a workload fails, or the baseline can't be read or the results saved
+     */
+    public void runAll() throws Exception {
+        HashMap<String, Double> baseline = baselinePath != null ? readResults(baselinePath) : new HashMap<>();
+        List<String> saved = new ArrayList<>();
+
+        String settings = String.format("# %d warm up and %d measured iterations of %d ms, seed %d, %s %s, %d cpus",
+                warmupIterations, measuredIterations, iterationNanos / 1_000_000, seed,
+                System.getProperty("java.vm.name"), System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors());
+        System.out.println(settings);
+        saved.add(settings);
+        System.out.printf("%-48s %14s %8s %14s %14s%n", "benchmark", "mean ns/op", "rsd", "best ns/op", "ops/s");
+
+        for (int w = 0; w < workloads.size(); w++) {
+            String name = names.get(w);
+            Workload workload = workloads.get(w);
+            int operations = calibrate(workload);
+
+            for (int i = 0; i < warmupIterations; i++) {
+                sink += workload.run(operations);
+            }
+
+            double[] nanosPerOperation = new double[measuredIterations];
+            for (int i = 0; i < measuredIterations; i++) {
+                long start = System.nanoTime();
+                sink += workload.run(operations);
+                nanosPerOperation[i] = (double) (System.nanoTime() - start) / operations;
+            }
+
+            double mean = 0;
+            double best = Double.MAX_VALUE;
+            for (double value : nanosPerOperation) {
+                mean += value;
+                best = Math.min(best, value);
+            }
+            mean /= nanosPerOperation.length;
+            double variance = 0;
+            for (double value : nanosPerOperation) {
+                variance += (value - mean) * (value - mean);
+            }
+            double relativeDeviation = nanosPerOperation.length > 1
+                    ? Math.sqrt(variance / (nanosPerOperation.length - 1)) / mean : 0;
+
+            StringBuilder line = new StringBuilder(String.format("%-48s %14.1f %7.1f%% %14.1f %14.0f", name, mean,
+                    relativeDeviation * 100, best, 1e9 / mean));
+            Double previous = baseline.get(name);
+            if (previous != null) {
+                line.append(String.format("   %.2fx baseline", mean / previous));
+            }
+            System.out.println(line);
+            saved.add(name + "\t" + mean);
+        }
+
+        if (savePath != null) {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(savePath, StandardCharsets.UTF_8))) {
+                for (String line : saved) {
+                    writer.println(line);
+                }
+            }
+        }
+        // Printing the checksum keeps every result live
+        System.out.println("# checksum " + sink);
+    }
+
+    /**
+     * Finds the number of operations that take about {@link #iterationNanos}, by doubling until a batch takes a
+     * tenth of that time
+     * @param workload the workload
+     * @return the number of operations in each iteration
+     * @throws Exception when the workload fails
+     */
+    private int calibrate(Workload workload) throws Exception {
+        int operations = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink += workload.run(operations);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= iterationNanos / 10 || operations >= Integer.MAX_VALUE / 2) {
+                return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (double) operations * iterationNanos / elapsed));
+            }
+            operations *= 2;
+        }
+    }
+
+    private static HashMap<String, Double> readResults(Path path) throws IOException {
+        HashMap<String, Double> results = new HashMap<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] parts = line.split("\t");
+            if (parts.length == 2 && !line.startsWith("#")) {
+                results.put(parts[0], Double.parseDouble(parts[1]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The names of the registered workloads
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * The registered workloads
+     */
+    private final List<Workload> workloads = new ArrayList<>();
+
+    /**
+     * The number of warm up iterations
+     */
+    private int warmupIterations = 5;
+
+    /**
+     * The number of measured iterations
+     */
+    private int measuredIterations = 10;
+
+    /**
+     * The target length of each iteration in nanoseconds
+     */
+    private long iterationNanos = 200_000_000L;
+
+    /**
+     * The seed for workloads that use random inputs
+     */
+    private long seed = 42;
+
+    /**
+     * Only workloads whose names contain a match are run, or every workload if {@code null}
+     */
+    private Pattern filter;
+
+    /**
+     * Where to save the results, or {@code null}
+     */
+    private Path savePath;
+
+    /**
+     * Where to read a baseline from, or {@code null}
+     */
+    private Path baselinePath;
+
+    /**
+     * The sum of every checksum
+     */
+    private long sink;
+}
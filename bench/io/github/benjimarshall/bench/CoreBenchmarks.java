@@ -0,0 +1,208 @@
+package io.github.benjimarshall.bench;
+
+import io.github.benjimarshall.chem.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Core library benchmarks, run through the {@link BenchmarkHarness}. Covers interpreting representative and
+ * pathological formulas, looking up elements, balancing equations of increasing species count, the brute force
+ * balancer on its own, and quantity arithmetic and unit conversion under both numeric policies.
+ * <p>
+ * Run with {@code java -cp <classes>:res:lib/* io.github.benjimarshall.bench.CoreBenchmarks [options]}, where the
+ * options are those of {@link BenchmarkHarness}. The baseline in {@code bench/baseline.tsv} was saved on a single core
+ * Linux VM with Java 17 and the default options, with {@code --save bench/baseline.tsv}; compare against it with
+ * {@code --baseline bench/baseline.tsv}. At that baseline:
+ * <pre>
+ * parse/representative                   ~170 µs/op    interpreting a formula, mostly string and regex work
+ * parse/long-chain                      ~1.2 ms/op     a 64 carbon chain written out in full
+ * element/find-by-symbol                   ~9 ns/op
+ * balance/3 to balance/6            ~90-180 µs/op      rising with the number of species
+ * brute/5 limit 8                       ~6.6 ms/op     the brute force balancer, on a 5 species equation
+ * quantity/mole-arithmetic    ~6.3 µs/op exact, ~61 ns/op double
+ * </pre>
+ * Runs on that VM vary by up to 2x between runs, so only differences larger than that, or repeated over several runs,
+ * should be read as a change.
+ */
+public final class CoreBenchmarks {
+    private CoreBenchmarks() {
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness(args);
+        Random random = new Random(harness.getSeed());
+
+        addFormulas(harness, "parse/representative", REPRESENTATIVE_FORMULAS);
+        addFormulas(harness, "parse/long-chain", new String[] {longChain(64)});
+        addFormulas(harness, "parse/large-counts", new String[] {"C999999H999999Cl999999", "(C2H4)9"});
+        addFormulas(harness, "parse/invalid", new String[] {"HHeLiBeBCNOFNeNaMgAlSiPSClAr!", "Xx2O", "((H2O)"});
+
+        harness.add("element/find-by-symbol", operations -> {
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                Element element = Element.findBySymbol(SYMBOLS[i % SYMBOLS.length]);
+                checksum += element == null ? -1 : element.getAtomicNumber();
+            }
+            return checksum;
+        });
+        harness.add("element/construct-by-name", operations -> {
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                checksum += new Element(NAMES[i % NAMES.length], Element.NAME).getAtomicNumber();
+            }
+            return checksum;
+        });
+
+        for (String equation : EQUATIONS) {
+            int species = equation.split("\\+|->").length;
+            harness.add("balance/" + species + " " + equation.replace(" ", ""), operations -> {
+                long checksum = 0;
+                for (int i = 0; i < operations; i++) {
+                    checksum += Equation.tryBalance(equation).getOrThrow().getReactants().size();
+                }
+                return checksum;
+            });
+        }
+
+        for (int i = 0; i < BRUTE_FORCE_EQUATIONS.length; i++) {
+            BruteForce bruteForce = new BruteForce(BRUTE_FORCE_EQUATIONS[i]);
+            int limit = BRUTE_FORCE_LIMITS[i];
+            harness.add("brute/" + bruteForce.getSpeciesCount() + " limit " + limit + " " +
+                    BRUTE_FORCE_EQUATIONS[i].replace(" ", ""), operations -> {
+                long checksum = 0;
+                for (int j = 0; j < operations; j++) {
+                    checksum += bruteForce.balance(limit) ? 1 : 0;
+                }
+                return checksum;
+            });
+        }
+
+        double[] values = new double[1024];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 5);
+        }
+        for (NumericPolicy policy : new NumericPolicy[] {NumericPolicy.DEFAULT, NumericPolicy.DOUBLE}) {
+            String suffix = policy.isExact() ? " exact" : " double";
+            harness.add("quantity/mass-convert" + suffix, operations -> NumericPolicy.runWith(policy, () -> {
+                long checksum = 0;
+                for (int i = 0; i < operations; i++) {
+                    Mass mass = new Mass(values[i & 1023], Mass.MetricMassUnit.mg);
+                    checksum += mass.getMass(Mass.MetricMassUnit.kg).scale();
+                }
+                return checksum;
+            }));
+            harness.add("quantity/volume-convert" + suffix, operations -> NumericPolicy.runWith(policy, () -> {
+                long checksum = 0;
+                for (int i = 0; i < operations; i++) {
+                    Volume volume = new Volume(values[i & 1023], Volume.MetricVolumeUnit.cm3);
+                    checksum += volume.getVolume(Volume.MetricVolumeUnit.dm3).scale();
+                }
+                return checksum;
+            }));
+            harness.add("quantity/mole-arithmetic" + suffix, operations -> NumericPolicy.runWith(policy, () -> {
+                Mole total = new Mole(0);
+                for (int i = 0; i < operations; i++) {
+                    Mole moles = new Mole(values[i & 1023]);
+                    total = total.add(moles.multiply(moles).divide(new Mole(values[(i + 1) & 1023])));
+                }
+                return (long) total.doubleValue();
+            }));
+        }
+
+        harness.runAll();
+    }
+
+    private static void addFormulas(BenchmarkHarness harness, String name, String[] formulas) {
+        harness.add(name, operations -> {
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                InterpretationResult<Molecule> molecule = Molecule.tryParse(formulas[i % formulas.length]);
+                checksum += molecule.isSuccessful() ? molecule.getValue().getElementMap().size() : -1;
+            }
+            return checksum;
+        });
+    }
+
+    /**
+     * Makes the formula of a straight chain alkane written out one carbon at a time, such as {@code CH3CH2CH3}
+     * @param carbons the number of carbons, at least 2
+     * @return the formula
+     */
+    private static String longChain(int carbons) {
+        StringBuilder builder = new StringBuilder("CH3");
+        for (int i = 2; i < carbons; i++) {
+            builder.append("CH2");
+        }
+        return builder.append("CH3").toString();
+    }
+
+    /**
+     * Runs the brute force balancer directly, through the protected {@link Equation#bruteBalance} method, starting
+     * each run from coefficients of one
+     */
+    private static final class BruteForce extends Equation {
+        private BruteForce(String equation) throws NotationInterpretationException {
+            super(equation);
+        }
+
+        private boolean balance(int limit) {
+            HashMap<Molecule, Integer> reactants = new HashMap<>();
+            HashMap<Molecule, Integer> products = new HashMap<>();
+            for (Molecule reactant : getReactants().keySet()) {
+                reactants.put(reactant, 1);
+            }
+            for (Molecule product : getProducts().keySet()) {
+                products.put(product, 1);
+            }
+            return bruteBalance(reactants, products, limit);
+        }
+
+        private int getSpeciesCount() {
+            return getReactants().size() + getProducts().size();
+        }
+    }
+
+    /**
+     * Everyday formulas, with and without brackets
+     */
+    private static final String[] REPRESENTATIVE_FORMULAS =
+            {"H2O", "NaCl", "C6H12O6", "Ca(OH)2", "CH3COOH", "K4Fe(CN)6", "(NH4)2SO4", "Mg3(PO4)2"};
+
+    /**
+     * Element symbols, with some that aren't elements
+     */
+    private static final String[] SYMBOLS = {"H", "C", "O", "Na", "Cl", "Fe", "U", "Og", "Xx", "Q"};
+
+    /**
+     * Element names
+     */
+    private static final String[] NAMES = {"Hydrogen", "Carbon", "Sodium", "Iron", "Uranium"};
+
+    /**
+     * Equations that the substitution balancer can balance, by increasing species count
+     */
+    private static final String[] EQUATIONS = {
+            "N2 + H2 -> NH3",
+            "C2H6 + O2 -> CO2 + H2O",
+            "Cu + HNO3 -> Cu(NO3)2 + NO + H2O",
+            "KMnO4 + HCl -> KCl + MnCl2 + H2O + Cl2",
+    };
+
+    /**
+     * Equations for the brute force balancer, by increasing species count, with one that has no solution
+     */
+    private static final String[] BRUTE_FORCE_EQUATIONS = {
+            "N2 + H2 -> NH3",
+            "C2H6 + O2 -> CO2 + H2O",
+            "Cu + HNO3 -> Cu(NO3)2 + NO + H2O",
+            "Fe + O2 -> FeO + Fe2O3",
+            "H2O -> H2O2",
+    };
+
+    /**
+     * The largest coefficient tried for each of {@link #BRUTE_FORCE_EQUATIONS}
+     */
+    private static final int[] BRUTE_FORCE_LIMITS = {15, 7, 8, 6, 15};
+}
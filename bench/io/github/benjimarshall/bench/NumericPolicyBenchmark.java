@@ -0,0 +1,70 @@
+package io.github.benjimarshall.bench;
+
+import io.github.benjimarshall.chem.*;
+import org.apache.commons.lang3.math.Fraction;
+
+import java.util.Random;
+
+/**
+ * Numeric policy benchmark. Runs the same Monte Carlo style titration, a {@link Solution} of a randomly weighed solute
+ * neutralised with a {@link Titration}, under {@link NumericPolicy#DEFAULT} and {@link NumericPolicy#DOUBLE}, and
+ * prints the throughput of each.
+ * <p>
+ * Measured on a single core Linux VM with Java 17, best of 5 rounds of 500,000 titrations, over two runs:
+ * <pre>
+ * exact(16 digits, results to 5 digits)    952-1030 ns/op    0.97-1.05 million titrations/s
+ * double                                    319-385 ns/op    2.60-3.13 million titrations/s
+ * </pre>
+ * Most of what is left in the {@code double} case is copying the {@code Molecule} parts into each {@code Solution}.
+ * Run with {@code java -cp <classes>:res:lib/* io.github.benjimarshall.bench.NumericPolicyBenchmark [titrations]}
+ */
+public final class NumericPolicyBenchmark {
+    private NumericPolicyBenchmark() {
+
+    }
+
+    public static void main(String[] args) throws NotationInterpretationException {
+        int titrations = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Molecule acid = new Molecule("HCl");
+        Molecule base = new Molecule("NaOH");
+        Fraction ratio = Fraction.getFraction(1, 1);
+
+        for (NumericPolicy policy : new NumericPolicy[] {NumericPolicy.DEFAULT, NumericPolicy.DOUBLE}) {
+            // Warm up, then keep the best of a few rounds
+            long best = Long.MAX_VALUE;
+            double checksum = 0;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                checksum = NumericPolicy.runWith(policy, () -> titrate(acid, base, ratio, titrations));
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            System.out.printf("%-42s %8.0f ns/op %14.0f ops/s (checksum %.6f)%n", policy,
+                    (double) best / titrations, titrations * 1e9 / best, checksum);
+        }
+    }
+
+    /**
+     * Titrates a number of randomly weighed samples of acid with 0.1 moldm<sup>-3</sup> base
+     * @param acid the acid molecule
+     * @param base the base molecule
+     * @param ratio the number of moles of acid neutralised by one mole of base
+     * @param titrations the number of titrations to carry out
+     * @return the mean volume of base used in litres, so that the work can't be optimised away
+     */
+    private static double titrate(Molecule acid, Molecule base, Fraction ratio, int titrations) {
+        Random random = new Random(42);
+        Concentration baseConcentration = new Concentration(0.1);
+        double totalVolume = 0;
+
+        for (int i = 0; i < titrations; i++) {
+            Mass sample = new Mass(0.18 + random.nextGaussian() * 0.002);
+            Solution acidSolution = new Solution(acid, sample, new Volume(25, Volume.MetricVolumeUnit.cm3));
+            Solution baseSolution = Titration.doTitration(acidSolution, base, baseConcentration, ratio);
+            totalVolume += baseSolution.getVolume().doubleValue();
+        }
+
+        return totalVolume / titrations;
+    }
+}
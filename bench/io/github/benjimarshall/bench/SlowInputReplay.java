@@ -0,0 +1,88 @@
+package io.github.benjimarshall.bench;
+
+import io.github.benjimarshall.chem.Equation;
+import io.github.benjimarshall.chem.InterpretationResult;
+import io.github.benjimarshall.chem.Molecule;
+import io.github.benjimarshall.chem.SlowOperationLog;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Replays the inputs of a {@link SlowOperationLog} file through the {@link BenchmarkHarness}, so that a pathological
+ * equation or formula found in production can be measured on its own, and measured again after a fix.
+ * <p>
+ * Run with {@code java -cp <classes>:res:lib/* io.github.benjimarshall.bench.SlowInputReplay <file>... [options]},
+ * where each file is a slow operation log, such as one written by {@code --slow-log}, and the options are those of
+ * {@link BenchmarkHarness}. Each different input becomes one workload, named {@code replay/equation <input>} or
+ * {@code replay/molecule <input>}, in order of the slowest time it was logged with.
+ */
+public final class SlowInputReplay {
+    private SlowInputReplay() {
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        int files = 0;
+        while (files < args.length && !args[files].startsWith("--")) {
+            files++;
+        }
+        if (files == 0) {
+            System.err.println("Usage: SlowInputReplay <file>... [harness options]");
+            System.exit(2);
+        }
+
+        // The slowest entry for each different input
+        LinkedHashMap<String, SlowOperationLog.Entry> slowest = new LinkedHashMap<>();
+        for (int i = 0; i < files; i++) {
+            for (String line : Files.readAllLines(Paths.get(args[i]), StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                SlowOperationLog.Entry entry = SlowOperationLog.Entry.parse(line);
+                String key = entry.getKind() + " " + entry.getInput();
+                SlowOperationLog.Entry previous = slowest.get(key);
+                if (previous == null || previous.getDurationNanos() < entry.getDurationNanos()) {
+                    slowest.put(key, entry);
+                }
+            }
+        }
+
+        List<SlowOperationLog.Entry> entries = new ArrayList<>(slowest.values());
+        entries.sort((a, b) -> Long.compare(b.getDurationNanos(), a.getDurationNanos()));
+
+        BenchmarkHarness harness = new BenchmarkHarness(Arrays.copyOfRange(args, files, args.length));
+        for (SlowOperationLog.Entry entry : entries) {
+            String input = entry.getInput();
+            System.out.printf("# logged %.3f ms, %s, %d brute force nodes: %s%n", entry.getDurationNanos() / 1e6,
+                    entry.getStrategyPath(), entry.getBruteForceNodes(), input);
+
+            if (entry.getKind() == SlowOperationLog.Kind.EQUATION) {
+                harness.add("replay/equation " + input, operations -> {
+                    long checksum = 0;
+                    for (int i = 0; i < operations; i++) {
+                        InterpretationResult<Equation> equation = Equation.tryBalance(input);
+                        checksum += equation.isSuccessful() ? equation.getValue().getReactants().size() : -1;
+                    }
+                    return checksum;
+                });
+            }
+            else {
+                harness.add("replay/molecule " + input, operations -> {
+                    long checksum = 0;
+                    for (int i = 0; i < operations; i++) {
+                        InterpretationResult<Molecule> molecule = Molecule.tryParse(input);
+                        checksum += molecule.isSuccessful() ? molecule.getValue().getElementMap().size() : -1;
+                    }
+                    return checksum;
+                });
+            }
+        }
+        harness.runAll();
+    }
+}
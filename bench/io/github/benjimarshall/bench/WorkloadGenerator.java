@@ -0,0 +1,656 @@
+package io.github.benjimarshall.bench;
+
+import io.github.benjimarshall.chem.Element;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic workload generator. A {@code WorkloadGenerator} object makes random compounds from the {@link Element}
+ * table and random reactions with known coefficients, for load, scaling and correctness testing of {@code Molecule}
+ * and {@code Equation}. Everything is drawn from one seeded {@code Random}, so the same seed and settings always give
+ * the same corpus.
+ * <p>
+ * Reactions are built backwards: random reactants are given random coefficients, and the atoms they add up to are
+ * shared out between random products, so the coefficients are known to balance. Large reactions usually have more
+ * than one balancing, so a balancer's answer should be checked by whether it balances rather than by comparing it with
+ * the generated coefficients.
+ * <p>
+ * Run with {@code java -cp <classes>:res:lib/* io.github.benjimarshall.bench.WorkloadGenerator <kind> <count> <file>
+ * [--answers file] [--seed n] [--species n] [--elements n]}, where the kind is one of {@link Kind}. Lines are written
+ * as they are made, so a corpus of any size can be written in constant memory. The answers file, where there is one,
+ * has the expected answer for each line of the corpus on the same line.
+ */
+public final class WorkloadGenerator {
+    /**
+     * Constructs a {@code WorkloadGenerator} object
+     * @param seed the seed of the random numbers
+     * @param elementCount how many elements to draw from, starting from hydrogen
+     * @param maxCount the largest number of atoms of one element written in a compound, and the largest bracket
+     *                 multiplier
+     */
+    public WorkloadGenerator(long seed, int elementCount, int maxCount) {
+        List<Element> table = Element.getPeriodicTable();
+        if (elementCount < 2 || elementCount > table.size()) {
+            throw new IllegalArgumentException("Element count must be between 2 and " + table.size());
+        }
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("The largest count must be positive");
+        }
+        this.random = new Random(seed);
+        this.elements = table.subList(0, elementCount).toArray(new Element[0]);
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * The kinds of corpus that can be written
+     */
+    public enum Kind {
+        /**
+         * Compounds with up to one level of brackets, with their relative formula masses as answers
+         */
+        FORMULAS,
+
+        /**
+         * Compounds with brackets nested several levels deep, such as {@code ((((CH3)2)3)4)}, with their relative
+         * formula masses as answers
+         */
+        NESTED_FORMULAS,
+
+        /**
+         * Groups of compounds with the same atoms written differently, and with one atom more or fewer, with their
+         * relative formula masses as answers
+         */
+        NEAR_DUPLICATE_FORMULAS,
+
+        /**
+         * Unbalanced reactions of up to 9 species, with a known balancing as answers
+         */
+        EQUATIONS,
+
+        /**
+         * Unbalanced reactions of the set number of species, 30 by default, with a known balancing as answers
+         */
+        LARGE_EQUATIONS,
+
+        /**
+         * Reactions that can't be balanced, but have the same elements on both sides
+         */
+        UNBALANCEABLE_EQUATIONS,
+
+        /**
+         * Reactions that differ from a previous one only by the order or spacing of their species
+         */
+        NEAR_DUPLICATE_EQUATIONS
+    }
+
+    /**
+     * A generated compound, with the number of atoms of each element it is made of
+     */
+    public static final class Compound {
+        private Compound(String formula, int[] counts) {
+            this.formula = formula;
+            this.counts = counts;
+        }
+
+        /**
+         * Gets the {@link #formula} of the compound
+         * @return the {@link #formula} of the compound
+         */
+        public String getFormula() {
+            return formula;
+        }
+
+        /**
+         * Gets the number of atoms of an element in the compound
+         * @param index the index of the element, from 0 for hydrogen
+         * @return the number of atoms of the element
+         */
+        public int getCount(int index) {
+            return index < counts.length ? counts[index] : 0;
+        }
+
+        /**
+         * The formula of the compound
+         */
+        private final String formula;
+
+        /**
+         * The number of atoms of each element, by index in the generator's elements
+         */
+        private final int[] counts;
+    }
+
+    /**
+     * A generated reaction, with a known balancing
+     */
+    public static final class Reaction {
+        private Reaction(List<Compound> reactants, int[] reactantCoefficients, List<Compound> products,
+                         int[] productCoefficients) {
+            this.reactants = reactants;
+            this.reactantCoefficients = reactantCoefficients;
+            this.products = products;
+            this.productCoefficients = productCoefficients;
+        }
+
+        /**
+         * Writes the reaction with its known coefficients
+         * @return the balanced reaction
+         */
+        public String toBalancedString() {
+            return side(reactants, reactantCoefficients) + " -> " + side(products, productCoefficients);
+        }
+
+        /**
+         * Writes the reaction without coefficients, in the order it was generated
+         * @return the unbalanced reaction
+         */
+        public String toUnbalancedString() {
+            return side(reactants, null) + " -> " + side(products, null);
+        }
+
+        /**
+         * Gets the number of species in the reaction
+         * @return the number of species in the reaction
+         */
+        public int getSpeciesCount() {
+            return reactants.size() + products.size();
+        }
+
+        private static String side(List<Compound> compounds, int[] coefficients) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < compounds.size(); i++) {
+                if (i > 0) {
+                    builder.append(" + ");
+                }
+                if (coefficients != null && coefficients[i] != 1) {
+                    builder.append(coefficients[i]);
+                }
+                builder.append(compounds.get(i).getFormula());
+            }
+            return builder.toString();
+        }
+
+        /**
+         * The reactants
+         */
+        private final List<Compound> reactants;
+
+        /**
+         * The coefficient of each reactant
+         */
+        private final int[] reactantCoefficients;
+
+        /**
+         * The products
+         */
+        private final List<Compound> products;
+
+        /**
+         * The coefficient of each product
+         */
+        private final int[] productCoefficients;
+    }
+
+    /**
+     * Makes a random compound of up to a number of elements, with at most one bracketed group
+     * @param maxElements the largest number of different elements, at least 1
+     * @return the compound
+     */
+    public Compound compound(int maxElements) {
+        int[] counts = new int[elements.length];
+        StringBuilder formula = new StringBuilder();
+        int distinct = 1 + random.nextInt(Math.min(maxElements, elements.length));
+
+        if (distinct >= 2 && random.nextInt(3) == 0) {
+            // Part of the compound goes in a bracketed group, such as the (OH)2 of Ca(OH)2
+            int outside = 1 + random.nextInt(distinct - 1);
+            appendAtoms(formula, counts, outside, 1);
+            int multiplier = 2 + random.nextInt(Math.max(1, maxCount - 1));
+            formula.append('(');
+            appendAtoms(formula, counts, distinct - outside, multiplier);
+            formula.append(')').append(multiplier);
+        }
+        else {
+            appendAtoms(formula, counts, distinct, 1);
+        }
+        return new Compound(formula.toString(), counts);
+    }
+
+    /**
+     * Makes a random compound with brackets nested a number of levels deep, such as {@code ((((CH3)2)3)4)}
+     * @param depth the number of levels of brackets, at least 1
+     * @return the compound
+     */
+    public Compound nestedCompound(int depth) {
+        int[] counts = new int[elements.length];
+        StringBuilder formula = new StringBuilder();
+        appendAtoms(formula, counts, 1 + random.nextInt(2), 1);
+
+        for (int level = 0; level < depth; level++) {
+            int multiplier = 2 + random.nextInt(Math.max(1, maxCount - 1));
+            formula.insert(0, '(').append(')').append(multiplier);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] *= multiplier;
+            }
+            // Sometimes add atoms outside of the brackets at this level, such as the H of (CH3)2H
+            if (random.nextBoolean()) {
+                appendAtoms(formula, counts, 1, 1);
+            }
+        }
+        return new Compound(formula.toString(), counts);
+    }
+
+    /**
+     * Makes compounds with the same atoms as a compound but written differently, and with one atom more or fewer
+     * @param compound the compound to vary
+     * @return the variations, the first of which have the same atoms as the compound
+     */
+    public List<Compound> nearDuplicates(Compound compound) {
+        List<Compound> duplicates = new ArrayList<>();
+        int[] counts = compound.counts;
+
+        // The same atoms: wrapped in brackets, with every count of one written out, and in a different order
+        duplicates.add(new Compound("(" + compound.getFormula() + ")", counts));
+        duplicates.add(new Compound(flatFormula(counts, true, false), counts));
+        duplicates.add(new Compound(flatFormula(counts, false, true), counts));
+
+        // One atom more, and one fewer where that leaves an atom
+        int[] more = counts.clone();
+        int[] fewer = counts.clone();
+        int index = randomPresentElement(counts);
+        more[index]++;
+        fewer[index]--;
+        duplicates.add(new Compound(flatFormula(more, false, false), more));
+        if (total(fewer) > 0) {
+            duplicates.add(new Compound(flatFormula(fewer, false, false), fewer));
+        }
+        return duplicates;
+    }
+
+    /**
+     * Makes a random reaction with known coefficients
+     * @param reactantCount the number of reactants
+     * @param productCount the largest number of products, which may be fewer if the atoms run out
+     * @param maxCoefficient the largest coefficient of a reactant or product
+     * @return the reaction
+     */
+    public Reaction reaction(int reactantCount, int productCount, int maxCoefficient) {
+        while (true) {
+            Reaction reaction = tryReaction(reactantCount, productCount, maxCoefficient);
+            if (reaction != null) {
+                return reaction;
+            }
+        }
+    }
+
+    /**
+     * Makes a random reaction that can't be balanced, but has the same elements on both sides. One compound becomes
+     * another with a different ratio of the same elements, alongside spectators made from elements of their own
+     * @param spectators the number of spectator species on each side
+     * @return the unbalanced reaction
+     */
+    public String unbalanceableReaction(int spectators) {
+        // The main compound uses the first elements, and each spectator pair a single element of its own after them
+        int[] counts = new int[elements.length];
+        int shared = Math.min(elements.length - spectators, 2 + random.nextInt(2));
+        if (shared < 2) {
+            throw new IllegalArgumentException("Not enough elements for " + spectators + " spectators");
+        }
+        for (int i = 0; i < shared; i++) {
+            counts[i] = 1 + random.nextInt(maxCount);
+        }
+        int[] changed = counts.clone();
+        changed[random.nextInt(shared)]++;
+
+        List<String> reactants = new ArrayList<>();
+        List<String> products = new ArrayList<>();
+        reactants.add(flatFormula(counts, false, false));
+        products.add(flatFormula(changed, false, false));
+        for (int i = 0; i < spectators; i++) {
+            Element element = elements[shared + i];
+            reactants.add(element.getSymbol() + (2 + random.nextInt(maxCount)));
+            products.add(element.getSymbol() + (2 + random.nextInt(maxCount)));
+        }
+        Collections.shuffle(reactants, random);
+        Collections.shuffle(products, random);
+        return String.join(" + ", reactants) + " -> " + String.join(" + ", products);
+    }
+
+    /**
+     * Writes a reaction without coefficients, with its species shuffled and random spacing, as a near duplicate of
+     * {@link Reaction#toUnbalancedString()}
+     * @param reaction the reaction
+     * @return the shuffled reaction
+     */
+    public String shuffled(Reaction reaction) {
+        List<String> reactants = new ArrayList<>();
+        List<String> products = new ArrayList<>();
+        for (Compound compound : reaction.reactants) {
+            reactants.add(compound.getFormula());
+        }
+        for (Compound compound : reaction.products) {
+            products.add(compound.getFormula());
+        }
+        Collections.shuffle(reactants, random);
+        Collections.shuffle(products, random);
+        String plus = random.nextBoolean() ? " + " : "+";
+        String arrow = random.nextBoolean() ? " -> " : "->";
+        return String.join(plus, reactants) + arrow + String.join(plus, products);
+    }
+
+    /**
+     * Calculates the relative formula mass of a compound from the element table, the same way as a {@code Molecule}
+     * @param compound the compound
+     * @return the relative formula mass
+     */
+    public BigDecimal relativeFormulaMass(Compound compound) {
+        BigDecimal mass = BigDecimal.ZERO;
+        for (int i = 0; i < elements.length; i++) {
+            if (compound.getCount(i) > 0) {
+                mass = mass.add(elements[i].getMassNumber().multiply(BigDecimal.valueOf(compound.getCount(i))));
+            }
+        }
+        return mass;
+    }
+
+    /**
+     * Writes a corpus, a line at a time
+     * @param kind the kind of corpus
+     * @param count the number of lines
+     * @param species the number of species in each reaction of a {@link Kind#LARGE_EQUATIONS} corpus
+     * @param corpus where to write the corpus
+     * @param answers where to write the answer to each line, or {@code null}
+     * @throws IOException when the corpus or answers can't be written
+     */
+    public void write(Kind kind, long count, int species, Writer corpus, Writer answers) throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> lineAnswers = new ArrayList<>();
+        Reaction previous = null;
+
+        for (long written = 0; written < count; ) {
+            lines.clear();
+            lineAnswers.clear();
+
+            switch (kind) {
+                case FORMULAS:
+                    addCompound(lines, lineAnswers, compound(4));
+                    break;
+                case NESTED_FORMULAS:
+                    addCompound(lines, lineAnswers, nestedCompound(2 + random.nextInt(4)));
+                    break;
+                case NEAR_DUPLICATE_FORMULAS:
+                    Compound compound = compound(4);
+                    addCompound(lines, lineAnswers, compound);
+                    for (Compound duplicate : nearDuplicates(compound)) {
+                        addCompound(lines, lineAnswers, duplicate);
+                    }
+                    break;
+                case EQUATIONS:
+                    int reactants = 1 + random.nextInt(4);
+                    addReaction(lines, lineAnswers, reaction(reactants, 2 + random.nextInt(4), 6));
+                    break;
+                case LARGE_EQUATIONS:
+                    addReaction(lines, lineAnswers, reaction(species / 2, species - species / 2, 6));
+                    break;
+                case UNBALANCEABLE_EQUATIONS:
+                    lines.add(unbalanceableReaction(random.nextInt(4)));
+                    lineAnswers.add("unbalanceable");
+                    break;
+                case NEAR_DUPLICATE_EQUATIONS:
+                    // Mostly variations of the last reaction, with a new one now and then
+                    if (previous == null || random.nextInt(4) == 0) {
+                        previous = reaction(1 + random.nextInt(4), 2 + random.nextInt(4), 6);
+                        addReaction(lines, lineAnswers, previous);
+                    }
+                    else {
+                        lines.add(shuffled(previous));
+                        lineAnswers.add(previous.toBalancedString());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown kind " + kind);
+            }
+
+            for (int i = 0; i < lines.size() && written < count; i++, written++) {
+                corpus.write(lines.get(i));
+                corpus.write('\n');
+                if (answers != null) {
+                    answers.write(lineAnswers.get(i));
+                    answers.write('\n');
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: <kind> <count> <file> [--answers file] [--seed n] [--species n] " +
+                    "[--elements n]");
+            System.err.println("Kinds: " + Arrays.toString(Kind.values()).toLowerCase(Locale.ROOT));
+            System.exit(2);
+        }
+
+        Kind kind = Kind.valueOf(args[0].toUpperCase(Locale.ROOT));
+        long count = Long.parseLong(args[1]);
+        String answersFile = null;
+        long seed = 42;
+        int species = 30;
+        int elementCount = 20;
+        for (int i = 3; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--answers":
+                    answersFile = args[i + 1];
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--species":
+                    species = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--elements":
+                    elementCount = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator(seed, elementCount, 12);
+        try (BufferedWriter corpus = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8);
+             BufferedWriter answers = answersFile == null ? null
+                     : Files.newBufferedWriter(Paths.get(answersFile), StandardCharsets.UTF_8)) {
+            generator.write(kind, count, species, corpus, answers);
+        }
+    }
+
+    private Reaction tryReaction(int reactantCount, int productCount, int maxCoefficient) {
+        List<Compound> reactants = new ArrayList<>();
+        int[] reactantCoefficients = new int[reactantCount];
+        int[] atoms = new int[elements.length];
+        for (int r = 0; r < reactantCount; r++) {
+            Compound compound = compound(3);
+            if (containsCounts(reactants, compound.counts)) {
+                return null;
+            }
+            reactants.add(compound);
+            reactantCoefficients[r] = 1 + random.nextInt(maxCoefficient);
+            for (int i = 0; i < atoms.length; i++) {
+                atoms[i] += reactantCoefficients[r] * compound.counts[i];
+            }
+        }
+
+        // Share each element's atoms between the products, in whole multiples of each product's coefficient. The
+        // last product has a coefficient of one, so it can take whatever is left
+        int[][] productCounts = new int[productCount][elements.length];
+        int[] coefficients = new int[productCount];
+        for (int p = 0; p < productCount; p++) {
+            coefficients[p] = p == productCount - 1 ? 1 : 1 + random.nextInt(maxCoefficient);
+        }
+        for (int i = 0; i < atoms.length; i++) {
+            int remaining = atoms[i];
+            for (int p = 0; p < productCount - 1 && remaining > 0; p++) {
+                int share = random.nextInt(remaining / coefficients[p] + 1);
+                productCounts[p][i] = share;
+                remaining -= share * coefficients[p];
+            }
+            productCounts[productCount - 1][i] = remaining;
+        }
+
+        List<Compound> products = new ArrayList<>();
+        List<Integer> productCoefficients = new ArrayList<>();
+        for (int p = 0; p < productCount; p++) {
+            if (total(productCounts[p]) == 0) {
+                continue;
+            }
+            // A product can't be the same species as another product or a reactant
+            if (containsCounts(products, productCounts[p]) || containsCounts(reactants, productCounts[p])) {
+                return null;
+            }
+            products.add(new Compound(flatFormula(productCounts[p], false, false), productCounts[p]));
+            productCoefficients.add(coefficients[p]);
+        }
+        if (products.isEmpty()) {
+            return null;
+        }
+
+        // Divide out any common factor, so the coefficients are the smallest whole numbers
+        int[] productArray = new int[products.size()];
+        int divisor = 0;
+        for (int p = 0; p < productArray.length; p++) {
+            productArray[p] = productCoefficients.get(p);
+            divisor = gcd(divisor, productArray[p]);
+        }
+        for (int coefficient : reactantCoefficients) {
+            divisor = gcd(divisor, coefficient);
+        }
+        for (int r = 0; r < reactantCoefficients.length; r++) {
+            reactantCoefficients[r] /= divisor;
+        }
+        for (int p = 0; p < productArray.length; p++) {
+            productArray[p] /= divisor;
+        }
+        return new Reaction(reactants, reactantCoefficients, products, productArray);
+    }
+
+    private void addCompound(List<String> lines, List<String> answers, Compound compound) {
+        lines.add(compound.getFormula());
+        answers.add(relativeFormulaMass(compound).toPlainString());
+    }
+
+    private void addReaction(List<String> lines, List<String> answers, Reaction reaction) {
+        lines.add(reaction.toUnbalancedString());
+        answers.add(reaction.toBalancedString());
+    }
+
+    /**
+     * Appends a number of different random elements with random counts to a formula
+     * @param formula the formula to append to
+     * @param counts the counts of the compound, which are added to
+     * @param distinct the number of different elements to append
+     * @param multiplier how many times the appended atoms count towards the compound, for bracketed groups
+     */
+    private void appendAtoms(StringBuilder formula, int[] counts, int distinct, int multiplier) {
+        int[] chosen = new int[distinct];
+        for (int d = 0; d < distinct; d++) {
+            int index;
+            do {
+                index = random.nextInt(elements.length);
+            } while (contains(chosen, d, index));
+            chosen[d] = index;
+
+            int count = 1 + random.nextInt(maxCount);
+            formula.append(elements[index].getSymbol());
+            if (count > 1) {
+                formula.append(count);
+            }
+            counts[index] += count * multiplier;
+        }
+    }
+
+    /**
+     * Writes a formula without brackets from atom counts
+     * @param counts the number of atoms of each element
+     * @param writeOnes whether to write counts of one, such as {@code C1H4}
+     * @param reversed whether to write the elements from heaviest to lightest
+     * @return the formula
+     */
+    private String flatFormula(int[] counts, boolean writeOnes, boolean reversed) {
+        StringBuilder formula = new StringBuilder();
+        for (int n = 0; n < counts.length; n++) {
+            int i = reversed ? counts.length - 1 - n : n;
+            if (counts[i] > 0) {
+                formula.append(elements[i].getSymbol());
+                if (counts[i] > 1 || writeOnes) {
+                    formula.append(counts[i]);
+                }
+            }
+        }
+        return formula.toString();
+    }
+
+    private int randomPresentElement(int[] counts) {
+        while (true) {
+            int index = random.nextInt(counts.length);
+            if (counts[index] > 0) {
+                return index;
+            }
+        }
+    }
+
+    private static boolean containsCounts(List<Compound> compounds, int[] counts) {
+        for (Compound compound : compounds) {
+            if (Arrays.equals(compound.counts, counts)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * The source of every random choice
+     */
+    private final Random random;
+
+    /**
+     * The elements compounds are made from
+     */
+    private final Element[] elements;
+
+    /**
+     * The largest number of atoms of one element written in a compound, and the largest bracket multiplier
+     */
+    private final int maxCount;
+}
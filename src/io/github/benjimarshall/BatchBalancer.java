@@ -0,0 +1,193 @@
+package io.github.benjimarshall;
+
+import io.github.benjimarshall.chem.Equation;
+import io.github.benjimarshall.chem.InterpretationResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Non-interactive equation balancer. A {@code BatchBalancer} object reads one equation per line, balances them on a
+ * pool of threads, and writes one result per line in the order the equations were read. Blank lines are skipped, but
+ * still counted, so line numbers in the output match the input.
+ * <p>
+ * Lines are read in chunks, and only a fixed number of chunks are held at once, so memory use doesn't grow with the
+ * size of the input. Output is written through the given {@code Writer} without flushing, so it should be buffered.
+ */
+public final class BatchBalancer {
+    /**
+     * How each result is written
+     */
+    public enum Format {
+        /**
+         * The balanced equation, or {@code Something went wrong: } followed by the problem, as in the interactive
+         * balancer
+         */
+        TEXT,
+
+        /**
+         * A JSON object per line, with the {@code line} number, the {@code input}, and either the balanced
+         * {@code equation} or an {@code error}
+         */
+        NDJSON
+    }
+
+    /**
+     * Constructs a {@code BatchBalancer} object
+     * @param threads the number of threads to balance equations on
+     * @param format how each result is written
+     */
+    public BatchBalancer(int threads, Format format) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.threads = threads;
+        this.format = format;
+    }
+
+    /**
+     * Balances every equation from a reader, writing the results to a writer. Neither the reader nor the writer are
+     * closed or flushed
+     * @param input the equations, one per line
+     * @param output where to write the results
+     * @return the number of equations balanced, including those that couldn't be
+     * @throws IOException when the input can't be read or the output can't be written
+     */
+    public long run(BufferedReader input, Writer output) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-balancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Chunks in flight, oldest first, so results are written in the order they were read
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        long lineNumber = 0;
+        long equations = 0;
+
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            long[] lineNumbers = new long[CHUNK_SIZE];
+            String line;
+            while ((line = input.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                lineNumbers[chunk.size()] = lineNumber;
+                chunk.add(line);
+                equations++;
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(executor, pending, chunk, lineNumbers, output);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    lineNumbers = new long[CHUNK_SIZE];
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(executor, pending, chunk, lineNumbers, output);
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.removeFirst(), output);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return equations;
+    }
+
+    /**
+     * Balances a single equation and formats the result, without a line break
+     * @param lineNumber the line number of the equation, from 1
+     * @param input the equation
+     * @return the formatted result
+     */
+    public String balanceLine(long lineNumber, String input) {
+        String balanced = null;
+        String problem;
+        try {
+            InterpretationResult<Equation> result = Equation.tryBalance(input);
+            if (result.isSuccessful()) {
+                balanced = result.getValue().toString();
+            }
+            problem = result.getMessage();
+        } catch (RuntimeException e) {
+            // One unexpected failure shouldn't lose the rest of the batch
+            problem = e.toString();
+        }
+
+        if (format == Format.TEXT) {
+            return balanced != null ? balanced : "Something went wrong: " + problem;
+        }
+
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendField(builder, "line", lineNumber);
+        Json.appendField(builder, "input", input);
+        if (balanced != null) {
+            Json.appendField(builder, "equation", balanced);
+        }
+        else {
+            Json.appendField(builder, "error", problem);
+        }
+        return builder.append('}').toString();
+    }
+
+    private void submit(ExecutorService executor, ArrayDeque<Future<String>> pending, List<String> chunk,
+                        long[] lineNumbers, Writer output) throws IOException {
+        // Wait for the oldest chunk before reading any further, which bounds the lines held in memory
+        if (pending.size() >= threads * 2) {
+            writeChunk(pending.removeFirst(), output);
+        }
+
+        // Each chunk is formatted into one string, so the writing thread only has a single write per chunk
+        pending.addLast(executor.submit(() -> {
+            StringBuilder results = new StringBuilder(chunk.size() * 64);
+            for (int i = 0; i < chunk.size(); i++) {
+                results.append(balanceLine(lineNumbers[i], chunk.get(i))).append(LINE_SEPARATOR);
+            }
+            return results.toString();
+        }));
+    }
+
+    private static void writeChunk(Future<String> future, Writer output) throws IOException {
+        try {
+            output.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while balancing equations", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Balancing equations failed", e.getCause());
+        }
+    }
+
+    /**
+     * The number of lines balanced together on one thread
+     */
+    private static final int CHUNK_SIZE = 512;
+
+    /**
+     * The line separator written after each result
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The number of threads to balance equations on
+     */
+    private final int threads;
+
+    /**
+     * How each result is written
+     */
+    private final Format format;
+}
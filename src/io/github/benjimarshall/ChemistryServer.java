@@ -0,0 +1,431 @@
+package io.github.benjimarshall;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.benjimarshall.chem.Element;
+import io.github.benjimarshall.chem.Equation;
+import io.github.benjimarshall.chem.Mass;
+import io.github.benjimarshall.chem.Metrics;
+import io.github.benjimarshall.chem.Mole;
+import io.github.benjimarshall.chem.Molecule;
+import io.github.benjimarshall.chem.MoleculeInternTable;
+import io.github.benjimarshall.chem.NotationInterpretationException;
+import io.github.benjimarshall.chem.SlowOperationLog;
+import io.github.benjimarshall.chem.Substance;
+import io.github.benjimarshall.chem.SubstanceEquation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Local HTTP service. A {@code ChemistryServer} object serves molecule analysis, equation balancing and stoichiometry
+ * over HTTP, with JSON request and response bodies, using the JDK's built in {@code HttpServer}.
+ * <p>
+ * Every endpoint takes a {@code POST} with a JSON object:
+ * <ul>
+ *     <li>{@code /molecule}, with a {@code formula}, returns its relative formula mass, empirical formula and the
+ *     number of atoms of each element</li>
+ *     <li>{@code /balance}, with an {@code equation}, returns the balanced equation and the ratio of each
+ *     molecule</li>
+ *     <li>{@code /stoichiometry}, with an {@code equation} and an object of either {@code moles} or {@code grams} of
+ *     some of its reactants by formula, returns the limiting reagent, the amounts of the reactants given, and the
+ *     amount of every product made</li>
+ * </ul>
+ * Problems with a request are returned as an {@code error} field with status 400.
+ * <p>
+ * A {@code GET} of {@code /metrics} returns the balancing {@link Metrics} recorded so far: the count, mean, 50th and
+ * 99th percentiles and maximum time of each stage in nanoseconds, the number of equations balanced by each strategy,
+ * the nodes visited by the brute force balancer, and the hits and misses of each cache. A {@code GET} of {@code /slow}
+ * returns the operations in the {@link SlowOperationLog}, oldest first.
+ * <p>
+ * Each request is handled on its own thread, a virtual thread where the runtime has them, and the calculation itself
+ * is run on a fixed pool with a thread for each processor. Only a fixed number of requests are accepted at once, and
+ * any more are turned away straight away with status 503 rather than queueing without limit. A request whose
+ * calculation isn't finished by its deadline is abandoned with status 504.
+ */
+public final class ChemistryServer {
+    /**
+     * Constructs a {@code ChemistryServer} object, bound to the loopback address, that isn't yet serving
+     * @param port the port to listen on, or 0 for any free port
+     * @param maxRequests the largest number of requests accepted at once, being calculated or waiting to be
+     * @param timeoutMillis how long a request may take before it is abandoned, in milliseconds
+     * @throws IOException when the port can't be bound
+     */
+    public ChemistryServer(int port, int maxRequests, long timeoutMillis) throws IOException {
+        if (maxRequests < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("The request limit and timeout must be positive");
+        }
+        this.permits = new Semaphore(maxRequests);
+        this.timeoutMillis = timeoutMillis;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/molecule", exchange -> handle(exchange, ChemistryServer::analyseMolecule));
+        server.createContext("/balance", exchange -> handle(exchange, ChemistryServer::balance));
+        server.createContext("/stoichiometry", exchange -> handle(exchange, ChemistryServer::stoichiometry));
+        server.createContext("/metrics", exchange -> handleGet(exchange, ChemistryServer::metrics));
+        server.createContext("/slow", exchange -> handleGet(exchange, ChemistryServer::slowOperations));
+
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        calculationExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "chemistry-server-calculation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Calculates the response to the JSON body of a request
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        /**
+         * Calculates the response to a request
+         * @param request the fields of the JSON body of the request
+         * @return the JSON body of the response
+         * @throws NotationInterpretationException when a formula or equation in the request can't be interpreted
+         */
+        String respond(HashMap<String, Object> request) throws NotationInterpretationException;
+    }
+
+    /**
+     * Starts serving requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops serving requests, waiting up to a second for requests already being handled
+     */
+    public void stop() {
+        server.stop(1);
+        requestExecutor.shutdownNow();
+        calculationExecutor.shutdownNow();
+    }
+
+    /**
+     * Gets the port the server is listening on
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("Only POST is supported"));
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                send(exchange, 503, error("Too many requests are being handled"));
+                return;
+            }
+
+            try {
+                String body = readBody(exchange.getRequestBody());
+                if (body == null) {
+                    send(exchange, 413, error("The request body is larger than " + MAX_BODY_BYTES + " bytes"));
+                    return;
+                }
+                Future<String> response = calculationExecutor.submit(calculation(endpoint, body));
+                try {
+                    send(exchange, 200, response.get(timeoutMillis, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    response.cancel(true);
+                    send(exchange, 504, error("The request took longer than " + timeoutMillis + "ms"));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IllegalArgumentException ||
+                            cause instanceof NotationInterpretationException) {
+                        send(exchange, 400, error(cause.getMessage()));
+                    }
+                    else {
+                        send(exchange, 500, error(String.valueOf(cause)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    send(exchange, 503, error("The server is stopping"));
+                }
+            }
+            finally {
+                permits.release();
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static void handleGet(HttpExchange exchange, Supplier<String> endpoint) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            send(exchange, 200, endpoint.get());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static String metrics() {
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendName(builder, "enabled").append(Metrics.isEnabled());
+        Json.appendName(builder, "stages").append('{');
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            appendHistogram(builder, stage.name().toLowerCase(Locale.ROOT), Metrics.getStageTimes(stage));
+        }
+        builder.append('}');
+        Json.appendName(builder, "strategies").append('{');
+        for (Metrics.Strategy strategy : Metrics.Strategy.values()) {
+            Json.appendField(builder, strategy.name().toLowerCase(Locale.ROOT), Metrics.getStrategyCount(strategy));
+        }
+        builder.append('}');
+        appendHistogram(builder, "bruteForceNodes", Metrics.getBruteForceNodes());
+        Json.appendName(builder, "caches").append('{');
+        for (Map.Entry<String, long[]> cache : Metrics.getCacheLookups().entrySet()) {
+            Json.appendName(builder, cache.getKey()).append('{');
+            Json.appendField(builder, "hits", cache.getValue()[0]);
+            Json.appendField(builder, "misses", cache.getValue()[1]);
+            builder.append('}');
+        }
+        return builder.append("}}").toString();
+    }
+
+    private static String slowOperations() {
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendName(builder, "enabled").append(SlowOperationLog.isEnabled());
+        Json.appendField(builder, "thresholdNanos", SlowOperationLog.getThresholdNanos());
+        Json.appendField(builder, "recorded", SlowOperationLog.getRecordedCount());
+        Json.appendName(builder, "operations").append('[');
+        for (SlowOperationLog.Entry entry : SlowOperationLog.getEntries()) {
+            if (builder.charAt(builder.length() - 1) != '[') {
+                builder.append(',');
+            }
+            builder.append('{');
+            Json.appendField(builder, "timestamp", entry.getTimestamp());
+            Json.appendField(builder, "kind", entry.getKind().name());
+            Json.appendField(builder, "durationNanos", entry.getDurationNanos());
+            Json.appendField(builder, "strategyPath", entry.getStrategyPath());
+            Json.appendField(builder, "bruteForceNodes", entry.getBruteForceNodes());
+            Json.appendField(builder, "input", entry.getInput());
+            builder.append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static void appendHistogram(StringBuilder builder, String name, Metrics.Histogram histogram) {
+        Json.appendName(builder, name).append('{');
+        Json.appendField(builder, "count", histogram.getCount());
+        Json.appendField(builder, "mean", histogram.getMean());
+        Json.appendField(builder, "p50", histogram.getPercentile(50));
+        Json.appendField(builder, "p99", histogram.getPercentile(99));
+        Json.appendField(builder, "max", histogram.getMax());
+        builder.append('}');
+    }
+
+    private static Callable<String> calculation(Endpoint endpoint, String body) {
+        return () -> endpoint.respond(Json.parseObject(body));
+    }
+
+    private static String analyseMolecule(HashMap<String, Object> request) throws NotationInterpretationException {
+        Molecule molecule = MoleculeInternTable.intern(getString(request, "formula"));
+
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendField(builder, "formula", molecule.getFormula());
+        Json.appendField(builder, "relativeFormulaMass", molecule.getRelativeFormulaMassAsDouble());
+        Json.appendField(builder, "empiricalFormula", molecule.getEmpiricalFormula());
+        Json.appendName(builder, "elements").append('{');
+        for (Map.Entry<Element, Integer> element : molecule.getElementMap().entrySet()) {
+            Json.appendField(builder, element.getKey().getSymbol(), element.getValue());
+        }
+        return builder.append("}}").toString();
+    }
+
+    private static String balance(HashMap<String, Object> request) throws NotationInterpretationException {
+        Equation equation = Equation.tryBalance(getString(request, "equation")).getOrThrow();
+
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendField(builder, "equation", equation.toString());
+        appendRatios(builder, "reactants", equation.getReactants());
+        appendRatios(builder, "products", equation.getProducts());
+        return builder.append('}').toString();
+    }
+
+    private static String stoichiometry(HashMap<String, Object> request) throws NotationInterpretationException {
+        SubstanceEquation equation = new SubstanceEquation(getString(request, "equation"));
+        Object moles = request.get("moles");
+        Object grams = request.get("grams");
+        if ((moles == null) == (grams == null)) {
+            throw new IllegalArgumentException("Expected either 'moles' or 'grams' of some reactants");
+        }
+
+        Object amounts = moles != null ? moles : grams;
+        if (!(amounts instanceof HashMap) || ((HashMap<?, ?>) amounts).isEmpty()) {
+            throw new IllegalArgumentException("Expected an object of amounts by formula");
+        }
+        for (Map.Entry<?, ?> amount : ((HashMap<?, ?>) amounts).entrySet()) {
+            Molecule reactant = findReactant(equation, (String) amount.getKey());
+            if (!(amount.getValue() instanceof Double) || (Double) amount.getValue() < 0) {
+                throw new IllegalArgumentException("The amount of " + amount.getKey() + " isn't a positive number");
+            }
+            double value = (Double) amount.getValue();
+            equation.putReactantSubstance(moles != null
+                    ? new Substance(reactant, new Mole(value))
+                    : new Substance(reactant, new Mass(value)));
+        }
+        equation.fillInSubstances();
+
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendField(builder, "equation", equation.getEquation());
+        Json.appendField(builder, "limitingReagent", equation.getLimitingReagent().getFormula());
+        appendSubstances(builder, "reactants", equation.getSubstanceReactants());
+        appendSubstances(builder, "products", equation.getSubstanceProducts());
+        return builder.append('}').toString();
+    }
+
+    private static Molecule findReactant(Equation equation, String formula) {
+        for (Molecule reactant : equation.getReactants().keySet()) {
+            if (reactant.getFormula().equals(formula)) {
+                return reactant;
+            }
+        }
+        throw new IllegalArgumentException(formula + " isn't a reactant");
+    }
+
+    private static void appendRatios(StringBuilder builder, String name, Map<Molecule, Integer> ratios) {
+        Json.appendName(builder, name).append('{');
+        for (Map.Entry<Molecule, Integer> ratio : ratios.entrySet()) {
+            Json.appendField(builder, ratio.getKey().getFormula(), ratio.getValue());
+        }
+        builder.append('}');
+    }
+
+    private static void appendSubstances(StringBuilder builder, String name, HashMap<Molecule, Substance> substances) {
+        Json.appendName(builder, name).append('{');
+        for (Map.Entry<Molecule, Substance> substance : substances.entrySet()) {
+            Json.appendName(builder, substance.getKey().getFormula()).append('{');
+            Json.appendField(builder, "moles", substance.getValue().getMoles().doubleValue());
+            Json.appendField(builder, "grams", substance.getValue().getMass().doubleValue());
+            builder.append('}');
+        }
+        builder.append('}');
+    }
+
+    private static String getString(HashMap<String, Object> request, String name) {
+        Object value = request.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Expected a string '" + name + "'");
+        }
+        return (String) value;
+    }
+
+    private static String error(String message) {
+        StringBuilder builder = new StringBuilder("{");
+        Json.appendField(builder, "error", message);
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Reads the body of a request
+     * @param input the body of the request
+     * @return the body, or {@code null} if it is larger than {@link #MAX_BODY_BYTES}
+     * @throws IOException when the body can't be read
+     */
+    private static String readBody(InputStream input) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY_BYTES) {
+                return null;
+            }
+        }
+        return body.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Makes the executor that requests are handled on, which starts a virtual thread per request where the runtime
+     * has them, or otherwise reuses platform threads. Either way the number of requests being handled at once is
+     * bounded by {@link #permits}, not by the executor
+     * @return the executor for requests
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "chemistry-server-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The number of connections the operating system queues before the server accepts them
+     */
+    private static final int BACKLOG = 1024;
+
+    /**
+     * The largest request body accepted, in bytes
+     */
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    /**
+     * The underlying HTTP server
+     */
+    private final HttpServer server;
+
+    /**
+     * The executor that requests are handled on
+     */
+    private final ExecutorService requestExecutor;
+
+    /**
+     * The executor that calculations are run on
+     */
+    private final ExecutorService calculationExecutor;
+
+    /**
+     * A permit for each request that may be accepted at once
+     */
+    private final Semaphore permits;
+
+    /**
+     * How long a request may take before it is abandoned, in milliseconds
+     */
+    private final long timeoutMillis;
+}
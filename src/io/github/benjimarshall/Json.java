@@ -0,0 +1,344 @@
+package io.github.benjimarshall;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * JSON helpers for the command line and server modes. Values are read into {@code HashMap}, {@code ArrayList},
+ * {@code String}, {@code Double} and {@code Boolean} objects, or {@code null}, and written straight into a
+ * {@code StringBuilder}.
+ */
+public final class Json {
+    private Json() {
+
+    }
+
+    /**
+     * Appends a string to a {@code StringBuilder} as a quoted, escaped JSON string, or {@code null}
+     * @param builder the {@code StringBuilder} to append to
+     * @param value the string to append, which may be {@code null}
+     * @return the {@code StringBuilder}
+     */
+    public static StringBuilder appendString(StringBuilder builder, String value) {
+        if (value == null) {
+            return builder.append("null");
+        }
+
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"');
+    }
+
+    /**
+     * Appends a name and string value pair of a JSON object, preceded by a comma unless it is the first
+     * @param builder the {@code StringBuilder} to append to
+     * @param name the name of the field
+     * @param value the string value of the field, which may be {@code null}
+     * @return the {@code StringBuilder}
+     */
+    public static StringBuilder appendField(StringBuilder builder, String name, String value) {
+        appendName(builder, name);
+        return appendString(builder, value);
+    }
+
+    /**
+     * Appends a name and number value pair of a JSON object, preceded by a comma unless it is the first
+     * @param builder the {@code StringBuilder} to append to
+     * @param name the name of the field
+     * @param value the number value of the field
+     * @return the {@code StringBuilder}
+     */
+    public static StringBuilder appendField(StringBuilder builder, String name, long value) {
+        appendName(builder, name);
+        return builder.append(value);
+    }
+
+    /**
+     * Appends a name and number value pair of a JSON object, preceded by a comma unless it is the first
+     * @param builder the {@code StringBuilder} to append to
+     * @param name the name of the field
+     * @param value the number value of the field, which is written as {@code null} if it isn't finite
+     * @return the {@code StringBuilder}
+     */
+    public static StringBuilder appendField(StringBuilder builder, String name, double value) {
+        appendName(builder, name);
+        return Double.isFinite(value) ? builder.append(value) : builder.append("null");
+    }
+
+    /**
+     * Appends the name of a field of a JSON object, preceded by a comma unless it is the first, ready for its value,
+     * such as a nested object
+     * @param builder the {@code StringBuilder} to append to
+     * @param name the name of the field
+     * @return the {@code StringBuilder}
+     */
+    public static StringBuilder appendName(StringBuilder builder, String name) {
+        if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '{') {
+            builder.append(',');
+        }
+        return appendString(builder, name).append(':');
+    }
+
+    /**
+     * Parses a JSON document
+     * @param text the JSON document
+     * @return the value of the document
+     * @throws IllegalArgumentException when the document isn't valid JSON
+     */
+    public static Object parse(String text) {
+        Parser parser = new Parser(text);
+        Object value = parser.readValue(0);
+        parser.skipWhitespace();
+        if (parser.position < text.length()) {
+            throw parser.error("Unexpected text after the value");
+        }
+        return value;
+    }
+
+    /**
+     * Parses a JSON document that must be an object
+     * @param text the JSON document
+     * @return the fields of the object
+     * @throws IllegalArgumentException when the document isn't a valid JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public static HashMap<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof HashMap)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (HashMap<String, Object>) value;
+    }
+
+    /**
+     * Recursive descent parser over a single JSON document
+     */
+    private static final class Parser {
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Object readValue(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw error("Too deeply nested");
+            }
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Unexpected end of document");
+            }
+
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject(depth);
+                case '[':
+                    return readArray(depth);
+                case '"':
+                    return readString();
+                case 't':
+                    return readLiteral("true", Boolean.TRUE);
+                case 'f':
+                    return readLiteral("false", Boolean.FALSE);
+                case 'n':
+                    return readLiteral("null", null);
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error("Unexpected character '" + c + "'");
+            }
+        }
+
+        private HashMap<String, Object> readObject(int depth) {
+            HashMap<String, Object> object = new HashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a field name");
+                }
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, readValue(depth + 1));
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                }
+                else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray(int depth) {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+
+            while (true) {
+                array.add(readValue(depth + 1));
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                }
+                else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String readString() {
+            position++;
+            StringBuilder builder = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append(escaped);
+                        break;
+                    default:
+                        throw error("Invalid escape '\\" + escaped + "'");
+                }
+            }
+        }
+
+        private Double readNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.valueOf(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, position)) {
+                throw error("Unexpected character '" + text.charAt(position) + "'");
+            }
+            position += literal.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position);
+        }
+
+        /**
+         * The document being parsed
+         */
+        private final String text;
+
+        /**
+         * The index of the next character to read
+         */
+        private int position;
+    }
+
+    /**
+     * The deepest nesting of objects and arrays that is parsed, which stops a hostile document overflowing the stack
+     */
+    private static final int MAX_DEPTH = 64;
+}
@@ -3,21 +3,43 @@ package io.github.benjimarshall;
 import io.github.benjimarshall.chem.*;
 import org.apache.commons.lang3.math.Fraction;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Scanner;
 
 public class Main {
-    static Scanner sc = new Scanner(System.in);
     static boolean balancingMode = false;
+    static final int IO_BUFFER_SIZE = 1 << 16;
+    static final long SLOW_LOG_FILE_BYTES = 16 << 20;
+    static final int SLOW_LOG_FILES = 4;
 
 
     public static void main(String[] args) {
-        if (balancingMode) {
-            launchBalancer();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            launchBatchBalancer(args);
+        }
+        else if (args.length > 0 && args[0].equals("--server")) {
+            launchServer(args);
+        }
+        else if (args.length > 0 && args[0].equals("--repl")) {
+            launchRepl();
+        }
+        else if (balancingMode || (args.length > 0 && args[0].equals("--balance"))) {
+            launchBalancer(new Scanner(System.in));
         }
         else {
             try {
@@ -197,12 +219,14 @@ public class Main {
             } catch (ArithmeticException | FlagException | NotationInterpretationException e) {
                 System.out.println("Something went wrong: " + e.getMessage());
             }
-
-            sc.close();
         }
     }
 
-    public static void launchBalancer() {
+    /**
+     * Balances equations typed in one at a time, until a blank line, for {@code --balance}
+     * @param sc the scanner to read equations from, which only this thread may use
+     */
+    public static void launchBalancer(Scanner sc) {
         while (true) {
             try {
                 System.out.print("Enter an equation (blank to end): ");
@@ -220,4 +244,178 @@ public class Main {
             }
         }
     }
+
+    /**
+     * Balances equations from a file or standard input without prompting, for
+     * {@code --batch [file] [--output file] [--format text|ndjson] [--threads n] [--metrics] [--slow-ms ms]
+     * [--slow-log file]}, where {@code --metrics} writes the balancing {@link Metrics} to standard error at the end,
+     * and {@code --slow-ms} writes the equations and formulas that took longer than that, as in
+     * {@link SlowOperationLog}
+     * @param args the command line arguments, starting with {@code --batch}
+     */
+    public static void launchBatchBalancer(String[] args) {
+        String inputFile = null;
+        String outputFile = null;
+        long slowMillis = -1;
+        String slowLogFile = null;
+        BatchBalancer.Format format = BatchBalancer.Format.TEXT;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--output":
+                        outputFile = args[++i];
+                        break;
+                    case "--format":
+                        format = BatchBalancer.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--metrics":
+                        Metrics.setEnabled(true);
+                        break;
+                    case "--slow-ms":
+                        slowMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "--slow-log":
+                        slowLogFile = args[++i];
+                        break;
+                    default:
+                        if (inputFile != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        inputFile = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: --batch [file] [--output file] [--format text|ndjson] [--threads n] " +
+                    "[--metrics] [--slow-ms ms] [--slow-log file]");
+            System.exit(2);
+        }
+        startSlowOperationLog(slowMillis, slowLogFile);
+
+        // Input and output are buffered in large blocks and only flushed at the end, rather than a line at a time
+        try (BufferedReader reader = inputFile != null
+                     ? Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8)
+                     : new BufferedReader(Channels.newReader(Channels.newChannel(System.in),
+                             StandardCharsets.UTF_8.newDecoder(), IO_BUFFER_SIZE), IO_BUFFER_SIZE);
+             Writer writer = outputFile != null
+                     ? Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+                             IO_BUFFER_SIZE)) {
+            new BatchBalancer(threads, format).run(reader, writer);
+        } catch (IOException e) {
+            System.err.println("Something went wrong: " + e.getMessage());
+            System.exit(1);
+        }
+
+        if (Metrics.isEnabled()) {
+            System.err.print(Metrics.report());
+        }
+        if (SlowOperationLog.isEnabled()) {
+            System.err.println(SlowOperationLog.getRecordedCount() + " slow operations, the latest " +
+                    SlowOperationLog.getEntries().size() + " of which are:");
+            for (SlowOperationLog.Entry entry : SlowOperationLog.getEntries()) {
+                System.err.println(entry);
+            }
+            SlowOperationLog.disable();
+        }
+    }
+
+    /**
+     * Serves molecule analysis, balancing and stoichiometry over HTTP on the loopback address until the process is
+     * stopped, for {@code --server [port] [--max-requests n] [--timeout ms] [--metrics] [--slow-ms ms]
+     * [--slow-log file]}, where {@code --metrics} records the balancing {@link Metrics} served at {@code /metrics}, and
+     * {@code --slow-ms} records the equations and formulas that took longer than that, served at {@code /slow}
+     * @param args the command line arguments, starting with {@code --server}
+     */
+    public static void launchServer(String[] args) {
+        int port = 8080;
+        int maxRequests = 10000;
+        long timeoutMillis = 5000;
+        long slowMillis = -1;
+        String slowLogFile = null;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--max-requests":
+                        maxRequests = Integer.parseInt(args[++i]);
+                        break;
+                    case "--timeout":
+                        timeoutMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "--metrics":
+                        Metrics.setEnabled(true);
+                        break;
+                    case "--slow-ms":
+                        slowMillis = Long.parseLong(args[++i]);
+                        break;
+                    case "--slow-log":
+                        slowLogFile = args[++i];
+                        break;
+                    default:
+                        if (i != 1 || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        port = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: --server [port] [--max-requests n] [--timeout ms] [--metrics] [--slow-ms ms] " +
+                    "[--slow-log file]");
+            System.exit(2);
+        }
+        startSlowOperationLog(slowMillis, slowLogFile);
+
+        try {
+            ChemistryServer server = new ChemistryServer(port, maxRequests, timeoutMillis);
+            server.start();
+            System.out.println("Listening on http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Something went wrong: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts the {@link SlowOperationLog}, if a threshold was given, with a rolling file of up to
+     * {@link #SLOW_LOG_FILE_BYTES} and {@link #SLOW_LOG_FILES} old files if a file was given
+     * @param slowMillis the threshold in milliseconds, or a negative number to leave the log off
+     * @param slowLogFile the rolling file, or {@code null}
+     */
+    private static void startSlowOperationLog(long slowMillis, String slowLogFile) {
+        if (slowMillis < 0) {
+            if (slowLogFile != null) {
+                System.err.println("--slow-log needs a threshold from --slow-ms");
+                System.exit(2);
+            }
+            return;
+        }
+
+        SlowOperationLog.setThreshold(slowMillis * 1_000_000L);
+        if (slowLogFile != null) {
+            try {
+                SlowOperationLog.setFile(Paths.get(slowLogFile), SLOW_LOG_FILE_BYTES, SLOW_LOG_FILES);
+            } catch (IOException e) {
+                System.err.println("Something went wrong: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Runs an interactive session that keeps interpreted formulas, balanced equations and results between commands,
+     * for {@code --repl}
+     */
+    public static void launchRepl() {
+        try {
+            new Repl(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), System.out).run();
+        } catch (IOException e) {
+            System.err.println("Something went wrong: " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
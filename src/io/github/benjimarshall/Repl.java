@@ -0,0 +1,420 @@
+package io.github.benjimarshall;
+
+import io.github.benjimarshall.chem.Concentration;
+import io.github.benjimarshall.chem.Equation;
+import io.github.benjimarshall.chem.Mass;
+import io.github.benjimarshall.chem.Metrics;
+import io.github.benjimarshall.chem.Mole;
+import io.github.benjimarshall.chem.Molecule;
+import io.github.benjimarshall.chem.MoleculeInternTable;
+import io.github.benjimarshall.chem.NotationInterpretationException;
+import io.github.benjimarshall.chem.QuantityFormatter;
+import io.github.benjimarshall.chem.Solution;
+import io.github.benjimarshall.chem.StoichiometricMatrix;
+import io.github.benjimarshall.chem.StoichiometryBatch;
+import io.github.benjimarshall.chem.Titration;
+import io.github.benjimarshall.chem.Volume;
+import org.apache.commons.lang3.math.Fraction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Interactive session. A {@code Repl} object reads commands a line at a time and keeps everything it has worked out
+ * for the rest of the session: each formula is only interpreted once, each equation is only balanced once, and every
+ * result is named so that later commands can refer to it.
+ * <p>
+ * The commands are:
+ * <ul>
+ *     <li>{@code rfm <formula>}, the relative formula mass of a molecule</li>
+ *     <li>{@code balance <equation>}, the balanced equation</li>
+ *     <li>{@code stoich <equation> with <formula>=<amount> ...}, the limiting reagent, products made and reactants left
+ *     over, from amounts such as {@code 16g} or {@code 2mol} of some reactants</li>
+ *     <li>{@code titrate <formula> <amount> <volume> with <formula> <concentration> [ratio]}, the volume of titrant
+ *     that neutralises an analyte solution, with volumes in dm<sup>3</sup>, concentrations in moldm<sup>-3</sup> and
+ *     the ratio as in {@link Titration}</li>
+ *     <li>{@code metrics [on|off|reset]}, which turns balancing {@link Metrics} on or off, or clears them, and then
+ *     shows them</li>
+ *     <li>{@code history}, {@code vars}, {@code time on|off}, {@code help} and {@code quit}</li>
+ * </ul>
+ * Results are named {@code $1}, {@code $2} and so on, and {@code name = command} also names the result {@code $name}.
+ * A name can be used in place of a formula, an equation or, for {@code titrate}, the whole analyte solution.
+ */
+public final class Repl {
+    /**
+     * Constructs a {@code Repl} object
+     * @param input where commands are read from
+     * @param output where results are written to
+     */
+    public Repl(BufferedReader input, PrintStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Reads and runs commands until {@code quit} or the end of the input
+     * @throws IOException when the input can't be read
+     */
+    public void run() throws IOException {
+        output.println("Type help for the list of commands");
+        while (true) {
+            output.print("> ");
+            output.flush();
+            String line = input.readLine();
+            if (line == null || line.trim().equals("quit") || line.trim().equals("exit")) {
+                break;
+            }
+            if (!line.trim().isEmpty()) {
+                execute(line.trim());
+            }
+        }
+    }
+
+    /**
+     * Runs a single command, writing its result and how long it took
+     * @param line the command
+     */
+    public void execute(String line) {
+        history.add(line);
+
+        String name = null;
+        String command = line;
+        Matcher assignment = ASSIGNMENT.matcher(line);
+        if (assignment.matches()) {
+            name = assignment.group(1);
+            command = assignment.group(2);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = evaluate(command);
+            long elapsed = System.nanoTime() - start;
+            if (result == null) {
+                return;
+            }
+
+            String id = String.valueOf(++resultCount);
+            results.put(id, result);
+            if (name != null) {
+                results.put(name, result);
+            }
+            output.println("$" + (name != null ? name : id) + " = " + describe(result) + timing(elapsed));
+        } catch (NotationInterpretationException | IllegalArgumentException | ArithmeticException e) {
+            output.println("Something went wrong: " + e.getMessage() + timing(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Gets the number of different formulas interpreted in this session
+     * @return the number of formulas in the cache
+     */
+    public int getCachedMoleculeCount() {
+        return molecules.size();
+    }
+
+    /**
+     * Gets the number of different equations balanced in this session
+     * @return the number of equations in the cache
+     */
+    public int getCachedEquationCount() {
+        return equations.size();
+    }
+
+    private Object evaluate(String command) throws NotationInterpretationException {
+        String[] parts = command.split("\\s+", 2);
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+
+        switch (parts[0]) {
+            case "rfm":
+                return molecule(argument);
+            case "balance":
+                return equation(argument);
+            case "stoich":
+                return stoichiometry(argument);
+            case "titrate":
+                return titrate(argument);
+            case "history":
+                for (int i = 0; i < history.size() - 1; i++) {
+                    output.println((i + 1) + "  " + history.get(i));
+                }
+                return null;
+            case "vars":
+                for (HashMap.Entry<String, Object> result : results.entrySet()) {
+                    output.println("$" + result.getKey() + " = " + describe(result.getValue()));
+                }
+                return null;
+            case "time":
+                showTiming = !argument.equals("off");
+                output.println("Timing is " + (showTiming ? "on" : "off"));
+                return null;
+            case "metrics":
+                if (argument.equals("reset")) {
+                    Metrics.reset();
+                }
+                else if (!argument.isEmpty()) {
+                    Metrics.setEnabled(!argument.equals("off"));
+                }
+                output.print(Metrics.report());
+                return null;
+            case "help":
+                output.println(HELP);
+                return null;
+            default:
+                if (command.startsWith("$")) {
+                    return reference(command);
+                }
+                throw new IllegalArgumentException("Unknown command " + parts[0] + ", type help for the commands");
+        }
+    }
+
+    private Molecule molecule(String formula) throws NotationInterpretationException {
+        if (formula.startsWith("$")) {
+            Object result = reference(formula);
+            if (result instanceof Molecule) {
+                return (Molecule) result;
+            }
+            throw new IllegalArgumentException(formula + " isn't a molecule");
+        }
+
+        Molecule molecule = molecules.get(formula);
+        Metrics.countCacheLookup("repl.molecules", molecule != null);
+        if (molecule == null) {
+            molecule = MoleculeInternTable.intern(formula);
+            molecules.put(formula, molecule);
+        }
+        return molecule;
+    }
+
+    private Equation equation(String text) throws NotationInterpretationException {
+        if (text.startsWith("$")) {
+            Object result = reference(text);
+            if (result instanceof Equation) {
+                return (Equation) result;
+            }
+            throw new IllegalArgumentException(text + " isn't an equation");
+        }
+
+        // Equations that only differ in spacing are the same equation
+        String key = WHITESPACE.matcher(text).replaceAll("");
+        Equation equation = equations.get(key);
+        Metrics.countCacheLookup("repl.equations", equation != null);
+        if (equation == null) {
+            equation = Equation.tryBalance(text).getOrThrow();
+            equations.put(key, equation);
+        }
+        return equation;
+    }
+
+    private String stoichiometry(String argument) throws NotationInterpretationException {
+        String[] parts = argument.split("\\s+with\\s+", 2);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Expected stoich <equation> with <formula>=<amount> ...");
+        }
+
+        Equation equation = equation(parts[0].trim());
+        StoichiometryBatch batch = batches.get(equation);
+        Metrics.countCacheLookup("repl.batches", batch != null);
+        if (batch == null) {
+            batch = new StoichiometryBatch(equation);
+            batches.put(equation, batch);
+        }
+        StoichiometricMatrix stoichiometry = batch.getStoichiometry();
+
+        double[][] moles = new double[stoichiometry.getReactantCount()][];
+        for (int r = 0; r < moles.length; r++) {
+            moles[r] = new double[] {Double.NaN};
+        }
+        for (String amount : parts[1].trim().split("\\s+")) {
+            String[] pair = amount.split("=", 2);
+            if (pair.length < 2) {
+                throw new IllegalArgumentException("Expected <formula>=<amount>, not " + amount);
+            }
+            int index = stoichiometry.indexOf(molecule(pair[0]));
+            if (index < 0 || !stoichiometry.isReactant(index)) {
+                throw new IllegalArgumentException(pair[0] + " isn't a reactant");
+            }
+            moles[index][0] = toMoles(pair[1], stoichiometry.getSpecies(index)).doubleValue();
+        }
+
+        StoichiometryBatch.Result result = batch.run(moles);
+        int limiting = result.getLimitingReagent()[0];
+        StringBuilder builder = new StringBuilder(equation.toString());
+        builder.append("\n  limiting reagent ").append(stoichiometry.getSpecies(limiting));
+
+        builder.append("\n  makes");
+        for (int p = 0; p < stoichiometry.getProductCount(); p++) {
+            Molecule product = stoichiometry.getSpecies(stoichiometry.getReactantCount() + p);
+            appendAmount(builder.append(' '), product, result.getProducts()[p][0]);
+        }
+
+        builder.append("\n  leaves");
+        for (int r = 0; r < stoichiometry.getReactantCount(); r++) {
+            double excess = result.getExcess()[r][0];
+            if (!Double.isNaN(excess)) {
+                appendAmount(builder.append(' '), stoichiometry.getSpecies(r), excess);
+            }
+        }
+        return builder.toString();
+    }
+
+    private Solution titrate(String argument) throws NotationInterpretationException {
+        String[] parts = argument.split("\\s+with\\s+", 2);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException(
+                    "Expected titrate <formula> <amount> <volume> with <formula> <concentration> [ratio]");
+        }
+
+        Solution analyte;
+        String[] analyteParts = parts[0].trim().split("\\s+");
+        if (analyteParts.length == 1 && analyteParts[0].startsWith("$")) {
+            Object result = reference(analyteParts[0]);
+            if (!(result instanceof Solution)) {
+                throw new IllegalArgumentException(analyteParts[0] + " isn't a solution");
+            }
+            analyte = (Solution) result;
+        }
+        else if (analyteParts.length == 3) {
+            Molecule molecule = molecule(analyteParts[0]);
+            analyte = new Solution(molecule, toMoles(analyteParts[1], molecule),
+                    new Volume(Double.parseDouble(analyteParts[2])));
+        }
+        else {
+            throw new IllegalArgumentException("Expected <formula> <amount> <volume> or a solution for the analyte");
+        }
+
+        String[] titrantParts = parts[1].trim().split("\\s+");
+        if (titrantParts.length < 2 || titrantParts.length > 3) {
+            throw new IllegalArgumentException("Expected <formula> <concentration> [ratio] for the titrant");
+        }
+        Fraction ratio = titrantParts.length == 3 ? Fraction.getFraction(titrantParts[2]) : Fraction.ONE;
+        return Titration.doTitration(analyte, molecule(titrantParts[0]),
+                new Concentration(Double.parseDouble(titrantParts[1])), ratio);
+    }
+
+    private Object reference(String text) {
+        Object result = results.get(text.substring(1));
+        if (result == null) {
+            throw new IllegalArgumentException("Nothing is named " + text);
+        }
+        return result;
+    }
+
+    private static Mole toMoles(String amount, Molecule molecule) {
+        Matcher matcher = AMOUNT.matcher(amount.toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Expected an amount such as 16g or 2mol, not " + amount);
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        if (matcher.group(2).equals("mol")) {
+            return new Mole(value);
+        }
+        return new Mole(value / molecule.getRelativeFormulaMassAsDouble());
+    }
+
+    private static void appendAmount(StringBuilder builder, Molecule molecule, double moles) {
+        QuantityFormatter.DEFAULT.append(builder, new Mole(moles)).append(' ').append(molecule).append(" (");
+        QuantityFormatter.DEFAULT.append(builder, new Mass(moles * molecule.getRelativeFormulaMassAsDouble()));
+        builder.append(')');
+    }
+
+    private static String describe(Object result) {
+        if (result instanceof Solution) {
+            Solution solution = (Solution) result;
+            StringBuilder builder = new StringBuilder();
+            QuantityFormatter.DEFAULT.append(builder, solution.getMoles()).append(' ').append(solution.getFormula());
+            QuantityFormatter.DEFAULT.append(builder.append(" in "), solution.getVolume());
+            return QuantityFormatter.DEFAULT.append(builder.append(" at "), solution.getConcentration()).toString();
+        }
+        if (result instanceof Molecule) {
+            Molecule molecule = (Molecule) result;
+            return molecule.getFormula() + ", RFM " + molecule.getRelativeFormulaMass();
+        }
+        return result.toString();
+    }
+
+    private String timing(long nanos) {
+        return showTiming ? String.format("  (%.3f ms)", nanos / 1e6) : "";
+    }
+
+    /**
+     * The commands, for {@code help}
+     */
+    private static final String HELP = String.join(System.lineSeparator(),
+            "rfm <formula>",
+            "balance <equation>",
+            "stoich <equation> with <formula>=<amount> ...      amounts such as 16g or 2mol",
+            "titrate <formula> <amount> <volume> with <formula> <concentration> [ratio]",
+            "titrate $<solution> with <formula> <concentration> [ratio]",
+            "<name> = <command>      names the result $<name>",
+            "$<name>                 shows a result",
+            "metrics [on|off|reset]  shows balancing metrics, after turning them on or off or clearing them",
+            "history, vars, time on|off, help, quit");
+
+    /**
+     * Matches {@code name = command}
+     */
+    private static final Pattern ASSIGNMENT = Pattern.compile("([A-Za-z_]\\w*)\\s*=\\s*(.+)");
+
+    /**
+     * Matches an amount in grams or moles, such as {@code 16g} or {@code 2mol}
+     */
+    private static final Pattern AMOUNT = Pattern.compile("([0-9.]+(?:e[-+]?\\d+)?)(g|mol)");
+
+    /**
+     * Matches whitespace
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Where commands are read from
+     */
+    private final BufferedReader input;
+
+    /**
+     * Where results are written to
+     */
+    private final PrintStream output;
+
+    /**
+     * Interpreted molecules, by formula
+     */
+    private final HashMap<String, Molecule> molecules = new HashMap<>();
+
+    /**
+     * Balanced equations, by their text without whitespace
+     */
+    private final HashMap<String, Equation> equations = new HashMap<>();
+
+    /**
+     * Stoichiometry calculators, by equation
+     */
+    private final HashMap<Equation, StoichiometryBatch> batches = new HashMap<>();
+
+    /**
+     * Named results, by name without the {@code $}
+     */
+    private final LinkedHashMap<String, Object> results = new LinkedHashMap<>();
+
+    /**
+     * Every command run, in order
+     */
+    private final List<String> history = new ArrayList<>();
+
+    /**
+     * The number of results so far, which numbers the next
+     */
+    private int resultCount;
+
+    /**
+     * Whether to show how long each command took
+     */
+    private boolean showTiming = true;
+}
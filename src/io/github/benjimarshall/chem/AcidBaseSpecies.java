@@ -0,0 +1,166 @@
+package io.github.benjimarshall.chem;
+
+import java.util.Arrays;
+
+/**
+ * Acid or base in water. An immutable {@code AcidBaseSpecies} object describes how the charge carried by one mole of
+ * an acid or base depends on the hydrogen ion concentration, which is what a {@link TitrationCurve} needs to solve the
+ * charge balance.
+ * <p>
+ * A species is held as its most protonated form, with a charge, and the pK<sub>a</sub> of each proton it can lose.
+ * Strong acids and bases are fully dissociated, so they only contribute their spectator ions, such as the
+ * Cl<sup>-</sup> of {@code HCl} or the Na<sup>+</sup> of {@code NaOH}.
+ *
+ * @see TitrationCurve
+ */
+public final class AcidBaseSpecies {
+    private AcidBaseSpecies(int protonatedCharge, double[] pKa, boolean acid) {
+        this.protonatedCharge = protonatedCharge;
+        this.acid = acid;
+        this.pKa = pKa;
+        this.ka = new double[pKa.length];
+        for (int i = 0; i < pKa.length; i++) {
+            ka[i] = Math.pow(10, -pKa[i]);
+        }
+    }
+
+    /**
+     * Makes a strong acid, which is fully dissociated, such as {@code HCl} with 1 proton or {@code H2SO4} with 2
+     * @param protons the number of protons each molecule gives away
+     * @return a strong acid {@code AcidBaseSpecies} object
+     */
+    public static AcidBaseSpecies strongAcid(int protons) {
+        checkPositive(protons);
+        return new AcidBaseSpecies(-protons, new double[0], true);
+    }
+
+    /**
+     * Makes a strong base, which is fully dissociated, such as {@code NaOH} with 1 hydroxide or {@code Ba(OH)2} with 2
+     * @param hydroxides the number of hydroxide ions each formula unit gives away
+     * @return a strong base {@code AcidBaseSpecies} object
+     */
+    public static AcidBaseSpecies strongBase(int hydroxides) {
+        checkPositive(hydroxides);
+        return new AcidBaseSpecies(hydroxides, new double[0], false);
+    }
+
+    /**
+     * Makes a weak acid from the pK<sub>a</sub> of each of its protons, such as {@code CH3COOH} with 4.76, or
+     * {@code H3PO4} with 2.15, 7.20 and 12.35
+     * @param pKa the pK<sub>a</sub> of each proton, in the order they are lost
+     * @return a weak acid {@code AcidBaseSpecies} object
+     */
+    public static AcidBaseSpecies weakAcid(double... pKa) {
+        checkPositive(pKa.length);
+        return new AcidBaseSpecies(0, sorted(pKa), true);
+    }
+
+    /**
+     * Makes a weak base from the pK<sub>b</sub> of each proton it can take, such as {@code NH3} with 4.75
+     * @param pKb the pK<sub>b</sub> of each proton, in the order they are taken
+     * @return a weak base {@code AcidBaseSpecies} object
+     */
+    public static AcidBaseSpecies weakBase(double... pKb) {
+        checkPositive(pKb.length);
+        // The conjugate acid loses its protons in the reverse order that the base takes them
+        double[] pKa = new double[pKb.length];
+        for (int i = 0; i < pKb.length; i++) {
+            pKa[i] = TitrationCurve.PKW - pKb[pKb.length - 1 - i];
+        }
+        return new AcidBaseSpecies(pKb.length, sorted(pKa), false);
+    }
+
+    /**
+     * Calculates the mean charge of one mole of the species at a hydrogen ion concentration
+     * @param hydrogen the hydrogen ion concentration in moldm<sup>-3</sup>
+     * @return the mean charge of one mole of the species
+     */
+    public double meanCharge(double hydrogen) {
+        int n = ka.length;
+        if (n == 0) {
+            return protonatedCharge;
+        }
+
+        // The fraction of each form is proportional to K1...Kj * h^(n-j), where j protons have been lost
+        double term = 1;
+        for (int i = 0; i < n; i++) {
+            term *= hydrogen;
+        }
+        double total = term;
+        double protonsLost = 0;
+        double inverse = 1 / hydrogen;
+        for (int j = 1; j <= n; j++) {
+            term = term * ka[j - 1] * inverse;
+            total += term;
+            protonsLost += j * term;
+        }
+
+        return protonatedCharge - protonsLost / total;
+    }
+
+    /**
+     * Gets the number of protons each molecule of an acid gives away, or that each formula unit of a base takes
+     * @return the number of protons each molecule gives away or takes
+     */
+    public int getCapacity() {
+        return ka.length == 0 ? Math.abs(protonatedCharge) : ka.length;
+    }
+
+    /**
+     * Gets whether the species is an acid
+     * @return whether the species is an acid, rather than a base
+     */
+    public boolean isAcid() {
+        return acid;
+    }
+
+    /**
+     * Gets the pK<sub>a</sub> of each proton of the species, or of its conjugate acid if it is a base
+     * @return the pK<sub>a</sub> of each proton, from lowest to highest, which is empty for strong acids and bases
+     */
+    public double[] getPKa() {
+        return pKa.clone();
+    }
+
+    /**
+     * Generates a {@code String} representation of the {@code AcidBaseSpecies} object
+     * @return a {@code String} representation of the {@code AcidBaseSpecies} object
+     */
+    @Override
+    public String toString() {
+        return (pKa.length == 0 ? "strong " : "weak ") + (acid ? "acid" : "base") +
+                (pKa.length == 0 ? " (" + getCapacity() + ")" : " pKa " + Arrays.toString(pKa));
+    }
+
+    private static void checkPositive(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one proton or hydroxide is needed");
+        }
+    }
+
+    private static double[] sorted(double[] values) {
+        double[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    /**
+     * The charge of the most protonated form of the species
+     */
+    private final int protonatedCharge;
+
+    /**
+     * Whether the species is an acid
+     */
+    private final boolean acid;
+
+    /**
+     * The pK<sub>a</sub> of each proton, from lowest to highest
+     */
+    private final double[] pKa;
+
+    /**
+     * The K<sub>a</sub> of each proton, from largest to smallest
+     */
+    private final double[] ka;
+}
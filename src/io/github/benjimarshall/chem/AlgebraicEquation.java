@@ -327,6 +327,22 @@ public class AlgebraicEquation {
      */
     public void solveSimultaneousEquations(AlgebraicEquation secondEquation, List<String> knownTerms,
                                            HashMap<String, Fraction> variables) {
+        if (!trySolveSimultaneousEquations(secondEquation, knownTerms, variables)) {
+            throw new ArithmeticException("Equations are equivalent, cannot be solved");
+        }
+    }
+
+    /**
+     * Attempt to solve simultaneous equations between this {@code AlgebraicEquation} object and another
+     * {@code AlgebraicEquation} object, with a list of known variables, and a HashMap of their values, to be modified
+     * to include the solved values. Nothing is modified if the equations cannot be solved.
+     * @param secondEquation a second {@code AlgebraicEquation} object to balance with {@code this} object
+     * @param knownTerms a list of known variables
+     * @param variables a HashMap of their values, to be modified to include the solved values
+     * @return whether the equations were solved, which they cannot be if they are equivalent
+     */
+    public boolean trySolveSimultaneousEquations(AlgebraicEquation secondEquation, List<String> knownTerms,
+                                                 HashMap<String, Fraction> variables) {
         // Put all the equation to one side
         HashMap<String, Fraction> firstEq = putTermsToOneSide(this, knownTerms);
         HashMap<String, Fraction> secondEq = putTermsToOneSide(secondEquation, knownTerms);
@@ -423,7 +439,7 @@ public class AlgebraicEquation {
         Fraction divisor = thirdEq.get(targetVariable).multiplyBy(Fraction.getFraction(-1));
 
         if (divisor.equals(Fraction.getFraction(0))) {
-            throw new ArithmeticException("Equations are equivalent, cannot be solved");
+            return false;
         }
 
         for (HashMap.Entry<String, Fraction> term : thirdEq.entrySet()) {
@@ -442,6 +458,7 @@ public class AlgebraicEquation {
         knownTerms.add(targetVariable);
         variables.put(targetVariable, targetValue);
         solveSimpleSubstitution(variables, knownTerms);
+        return true;
     }
 
     private boolean shouldSubtractFirstEq(String targetVariable, HashMap<String, Fraction> firstEq,
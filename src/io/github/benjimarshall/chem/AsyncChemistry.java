@@ -0,0 +1,233 @@
+package io.github.benjimarshall.chem;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Asynchronous calculator. An {@code AsyncChemistry} object runs balancing, stoichiometry and titration calculations on
+ * an {@link Executor} and returns a {@link CompletableFuture} of each result, so that callers can start many
+ * calculations without blocking a thread on each one.
+ * <p>
+ * Calculations that can't be interpreted complete the future exceptionally with a
+ * {@link NotationInterpretationException}. Cancelling a future, or letting it time out, interrupts the calculation if
+ * it has started, and the brute force balancer stops searching once it has been interrupted, so an abandoned equation
+ * doesn't keep using a thread. Cancelling a future made from one of these futures, with {@code thenApply} for example,
+ * doesn't cancel the calculation; cancel the future returned here instead.
+ *
+ * @see Equation#tryBalance(String)
+ * @see SubstanceEquation
+ * @see Titration
+ */
+public final class AsyncChemistry {
+    /**
+     * Constructs an {@code AsyncChemistry} object that runs calculations on a virtual thread each where the runtime has
+     * them, or otherwise on a shared pool of daemon threads
+     */
+    public AsyncChemistry() {
+        this(defaultExecutor());
+    }
+
+    /**
+     * Constructs an {@code AsyncChemistry} object that runs calculations on an executor
+     * @param executor the executor to run calculations on
+     */
+    public AsyncChemistry(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("An executor is needed to run calculations on");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Interprets and balances an equation
+     * @param equation {@code String} representation of the equation
+     * @return a future of the balanced {@code Equation} object
+     */
+    public CompletableFuture<Equation> balance(String equation) {
+        return submit(() -> Equation.tryBalance(equation).getOrThrow());
+    }
+
+    /**
+     * Interprets and balances an equation, giving up if it takes too long
+     * @param equation {@code String} representation of the equation
+     * @param timeout how long to wait for the equation to balance
+     * @param unit the unit of the timeout
+     * @return a future of the balanced {@code Equation} object, which completes exceptionally with a
+     * {@link TimeoutException} if the timeout passes first
+     */
+    public CompletableFuture<Equation> balance(String equation, long timeout, TimeUnit unit) {
+        return balance(equation).orTimeout(timeout, unit);
+    }
+
+    /**
+     * Interprets and balances an equation, then works out the limiting reagent and the amounts of products from the
+     * known amounts of some reactants
+     * @param equation {@code String} representation of the equation
+     * @param reactants the reactants with known amounts
+     * @return a future of the filled in {@code SubstanceEquation} object, which belongs to the caller
+     * @see SubstanceEquation#fillInSubstances()
+     */
+    public CompletableFuture<SubstanceEquation> fillInSubstances(String equation, Collection<Substance> reactants) {
+        return submit(() -> fillIn(Equation.tryBalance(equation).getOrThrow(), reactants));
+    }
+
+    /**
+     * Works out the limiting reagent and the amounts of products of an equation that has already been balanced, from
+     * the known amounts of some reactants. The equation isn't changed, so the same {@code Equation} object can be
+     * filled in by many calculations at once
+     * @param equation the balanced equation
+     * @param reactants the reactants with known amounts
+     * @return a future of the filled in {@code SubstanceEquation} object, which belongs to the caller
+     * @see SubstanceEquation#fillInSubstances()
+     */
+    public CompletableFuture<SubstanceEquation> fillInSubstances(Equation equation, Collection<Substance> reactants) {
+        return submit(() -> fillIn(equation, reactants));
+    }
+
+    /**
+     * Interprets and balances an equation, then fills in its amounts, giving up if it takes too long
+     * @param equation {@code String} representation of the equation
+     * @param reactants the reactants with known amounts
+     * @param timeout how long to wait for the calculation
+     * @param unit the unit of the timeout
+     * @return a future of the filled in {@code SubstanceEquation} object, which completes exceptionally with a
+     * {@link TimeoutException} if the timeout passes first
+     */
+    public CompletableFuture<SubstanceEquation> fillInSubstances(String equation, Collection<Substance> reactants,
+                                                                 long timeout, TimeUnit unit) {
+        return fillInSubstances(equation, reactants).orTimeout(timeout, unit);
+    }
+
+    /**
+     * Finds the second solution to neutralise the first solution
+     * @param solution1 the solution to be neutralised
+     * @param formula2 a {@code String} representation of the molecule type of the second solution
+     * @param volume2 the volume of the second solution
+     * @param sol1PerSol2 the number of moles of the second solution to neutralise one mole of the second solution
+     * @return a future of the {@code Solution} object of the second solution
+     * @see Titration#doTitration(Solution, String, Volume, Fraction)
+     */
+    public CompletableFuture<Solution> titrate(Solution solution1, String formula2, Volume volume2,
+                                               Fraction sol1PerSol2) {
+        return submit(() -> Titration.doTitration(solution1, formula2, volume2, sol1PerSol2));
+    }
+
+    /**
+     * Finds the second solution to neutralise the first solution
+     * @param solution1 the solution to be neutralised
+     * @param formula2 a {@code String} representation of the molecule type of the second solution
+     * @param concentration2 the concentration of the second solution
+     * @param sol1PerSol2 the number of moles of the second solution to neutralise one mole of the second solution
+     * @return a future of the {@code Solution} object of the second solution
+     * @see Titration#doTitration(Solution, String, Concentration, Fraction)
+     */
+    public CompletableFuture<Solution> titrate(Solution solution1, String formula2, Concentration concentration2,
+                                               Fraction sol1PerSol2) {
+        return submit(() -> Titration.doTitration(solution1, formula2, concentration2, sol1PerSol2));
+    }
+
+    /**
+     * Gets the {@link #executor} of the {@code AsyncChemistry} object
+     * @return the {@link #executor} of the {@code AsyncChemistry} object
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Gets the executor used when none is given, which runs each task on a virtual thread where the runtime has them,
+     * or otherwise on a shared pool of daemon threads
+     * @return the default executor
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutor.EXECUTOR;
+    }
+
+    /**
+     * Fills in the amounts of a new {@code SubstanceEquation} object for a balanced equation
+     * @param equation the balanced equation, which isn't changed
+     * @param reactants the reactants with known amounts
+     * @return the filled in {@code SubstanceEquation} object
+     * @throws IllegalArgumentException when a reactant isn't in the equation
+     * @throws NullPointerException when no reactants are given
+     */
+    static SubstanceEquation fillIn(Equation equation, Collection<Substance> reactants) {
+        SubstanceEquation substanceEquation = new SubstanceEquation(equation);
+        for (Substance reactant : reactants) {
+            substanceEquation.putReactantSubstance(reactant);
+        }
+        substanceEquation.fillInSubstances();
+        return substanceEquation;
+    }
+
+    /**
+     * Runs a calculation on the {@link #executor}
+     * @param calculation the calculation
+     * @param <T> the type of the result
+     * @return a future of the result, which interrupts the calculation if it is cancelled or times out
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> calculation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                future.complete(calculation.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, null);
+
+        // Only interrupt the calculation when the caller has given up on it, not when it has failed by itself
+        future.whenComplete((result, e) -> {
+            if (e instanceof CancellationException || e instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * The default executor, which is only made once an {@code AsyncChemistry} object needs it
+     */
+    private static final class DefaultExecutor {
+        private static final ExecutorService EXECUTOR = newDefaultExecutor();
+
+        /**
+         * Makes the default executor, which starts a virtual thread per calculation where the runtime has them, or
+         * otherwise reuses daemon platform threads
+         * @return the default executor
+         */
+        private static ExecutorService newDefaultExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "chemistry-async");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    /**
+     * The executor calculations are run on
+     */
+    private final Executor executor;
+}
@@ -0,0 +1,123 @@
+package io.github.benjimarshall.chem;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Stages for streaming calculations through a {@link java.util.concurrent.Flow} pipeline. Each method makes a
+ * {@link FlowStage} with its own parallelism and buffer size, run on virtual threads where the runtime has them, or
+ * otherwise on a shared pool of daemon threads. Stages are joined by subscribing each to the one before, for example:
+ * <pre>{@code
+ * SubmissionPublisher<String> lines = new SubmissionPublisher<>();
+ * FlowStage<String, InterpretationResult<Equation>> balance = ChemistryPipeline.balanceEquations(4, 64);
+ * FlowStage<InterpretationResult<Equation>, String> format = ChemistryPipeline.format(1, 64);
+ * lines.subscribe(balance);
+ * balance.subscribe(format);
+ * format.subscribe(writer);
+ * }</pre>
+ * Items that can't be interpreted, or that fail unexpectedly, flow through the later stages as
+ * {@link InterpretationResult} failures, rather than ending the stream. In this library an equation is balanced as it
+ * is interpreted, so interpreting and balancing are one stage.
+ *
+ * @see FlowStage
+ * @see AsyncChemistry
+ */
+public final class ChemistryPipeline {
+    private ChemistryPipeline() {
+
+    }
+
+    /**
+     * Makes a stage that interprets formulas, sharing molecules through the {@link MoleculeInternTable}
+     * @param parallelism the most formulas interpreted at once
+     * @param bufferSize the most formulas held at once
+     * @return the stage
+     * @throws IllegalArgumentException when the parallelism isn't positive, or the buffer is smaller than it
+     */
+    public static FlowStage<String, InterpretationResult<Molecule>> parseMolecules(int parallelism, int bufferSize)
+            throws IllegalArgumentException {
+        return new FlowStage<>(orFailure(MoleculeInternTable::tryIntern), AsyncChemistry.defaultExecutor(),
+                parallelism, bufferSize);
+    }
+
+    /**
+     * Makes a stage that interprets and balances equations
+     * @param parallelism the most equations balanced at once
+     * @param bufferSize the most equations held at once
+     * @return the stage
+     * @throws IllegalArgumentException when the parallelism isn't positive, or the buffer is smaller than it
+     */
+    public static FlowStage<String, InterpretationResult<Equation>> balanceEquations(int parallelism, int bufferSize)
+            throws IllegalArgumentException {
+        return new FlowStage<>(orFailure(Equation::tryBalance), AsyncChemistry.defaultExecutor(), parallelism,
+                bufferSize);
+    }
+
+    /**
+     * Makes a stage that works out the limiting reagent and the amounts of products of balanced equations. Equations
+     * that couldn't be balanced are passed on as they are
+     * @param reactants gives the reactants with known amounts for each equation
+     * @param parallelism the most equations filled in at once
+     * @param bufferSize the most equations held at once
+     * @return the stage, which gives a failure for an equation whose reactants aren't in it or aren't given
+     * @throws IllegalArgumentException when the parallelism isn't positive, or the buffer is smaller than it
+     * @see SubstanceEquation#fillInSubstances()
+     */
+    public static FlowStage<InterpretationResult<Equation>, InterpretationResult<SubstanceEquation>> fillInSubstances(
+            Function<? super Equation, ? extends Collection<Substance>> reactants, int parallelism, int bufferSize)
+            throws IllegalArgumentException {
+        return new FlowStage<>(orFailure(equation -> {
+            if (!equation.isSuccessful()) {
+                return InterpretationResult.failure(equation.getMessage());
+            }
+            try {
+                return InterpretationResult.success(
+                        AsyncChemistry.fillIn(equation.getValue(), reactants.apply(equation.getValue())));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return InterpretationResult.failure(e.getMessage());
+            }
+        }), AsyncChemistry.defaultExecutor(), parallelism, bufferSize);
+    }
+
+    /**
+     * Makes a stage that formats results as text, as the interactive balancer does: the result itself, or
+     * {@code Something went wrong: } followed by the problem
+     * @param parallelism the most results formatted at once
+     * @param bufferSize the most results held at once
+     * @param <T> the type of the results
+     * @return the stage
+     * @throws IllegalArgumentException when the parallelism isn't positive, or the buffer is smaller than it
+     */
+    public static <T> FlowStage<InterpretationResult<T>, String> format(int parallelism, int bufferSize)
+            throws IllegalArgumentException {
+        return new FlowStage<>(result -> {
+            if (!result.isSuccessful()) {
+                return "Something went wrong: " + result.getMessage();
+            }
+            try {
+                return String.valueOf(result.getValue());
+            } catch (RuntimeException e) {
+                return "Something went wrong: " + e;
+            }
+        }, AsyncChemistry.defaultExecutor(), parallelism, bufferSize);
+    }
+
+    /**
+     * Wraps the function of a stage so that an unexpected exception on one item gives a failure for that item, which
+     * the {@link FlowStage} would otherwise pass on as an error ending the stream
+     * @param function the function of the stage
+     * @param <T> the type of the items received
+     * @param <R> the type of the results
+     * @return the function, giving a failure where it would have thrown
+     */
+    private static <T, R> Function<T, InterpretationResult<R>> orFailure(
+            Function<? super T, InterpretationResult<R>> function) {
+        return item -> {
+            try {
+                return function.apply(item);
+            } catch (RuntimeException e) {
+                return InterpretationResult.failure(e.toString());
+            }
+        };
+    }
+}
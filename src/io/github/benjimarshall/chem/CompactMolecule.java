@@ -0,0 +1,228 @@
+package io.github.benjimarshall.chem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact chemical molecule, for holding very many molecules in memory. A {@code CompactMolecule} object holds the
+ * same formula, composition and relative formula mass as a {@link Molecule} object, in about a sixth of the memory.
+ * <p>
+ * The formula is held as one Latin-1 byte per character, as formulas are only ever letters, digits and brackets. The
+ * composition is held in one {@code short[]} of atomic numbers and counts, in order of atomic number, instead of a
+ * map with an entry and an {@code Integer} object per element. The relative formula mass is held as a {@code double}.
+ * For a formula such as {@code CO2}, that is about 80 bytes, against over 400 bytes for a {@code Molecule} object.
+ * The empirical formula isn't kept; {@link #toMolecule()} gives the full {@code Molecule} object when it is needed.
+ * <p>
+ * {@code CompactMolecule} objects are immutable, and can be shared between threads.
+ *
+ * @see Molecule
+ */
+public final class CompactMolecule {
+    private CompactMolecule(byte[] formula, short[] composition, double relativeFormulaMass) {
+        this.formula = formula;
+        this.composition = composition;
+        this.relativeFormulaMass = relativeFormulaMass;
+    }
+
+    /**
+     * Makes a {@code CompactMolecule} object with the same formula, composition and relative formula mass as a
+     * {@code Molecule} object
+     * @param molecule the molecule
+     * @return the compact molecule
+     * @throws IllegalArgumentException when the molecule has more than {@value Short#MAX_VALUE} atoms of one element,
+     * or its formula has characters that aren't Latin-1
+     */
+    public static CompactMolecule of(Molecule molecule) throws IllegalArgumentException {
+        String formula = molecule.getFormula();
+        byte[] bytes = new byte[formula.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = formula.charAt(i);
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("Formula has a character that isn't Latin-1");
+            }
+            bytes[i] = (byte) c;
+        }
+
+        // Pack the atomic numbers and counts, inserting each pair in order of atomic number
+        short[] composition = new short[molecule.getElementMap().size() * 2];
+        int index = 0;
+        for (Map.Entry<Element, Integer> element : molecule.getElementMap().entrySet()) {
+            if (element.getValue() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many atoms of " + element.getKey().getSymbol());
+            }
+            int position = index;
+            while (position > 0 && composition[position - 2] > element.getKey().getAtomicNumber()) {
+                composition[position] = composition[position - 2];
+                composition[position + 1] = composition[position - 1];
+                position -= 2;
+            }
+            composition[position] = (short) element.getKey().getAtomicNumber();
+            composition[position + 1] = (short) (int) element.getValue();
+            index += 2;
+        }
+
+        return new CompactMolecule(bytes, composition, molecule.getRelativeFormulaMassAsDouble());
+    }
+
+    /**
+     * Attempts to make a {@code CompactMolecule} object using a string representation of a formula, without throwing
+     * an exception if the formula cannot be interpreted
+     * @param formula written representation of the formula (eg. {@code HNO3})
+     * @return the compact molecule, or a message saying why the formula could not be interpreted
+     */
+    public static InterpretationResult<CompactMolecule> tryParse(String formula) {
+        InterpretationResult<Molecule> molecule = Molecule.tryParse(formula);
+        if (!molecule.isSuccessful()) {
+            return InterpretationResult.failure(molecule.getMessage());
+        }
+        try {
+            return InterpretationResult.success(of(molecule.getValue()));
+        } catch (IllegalArgumentException e) {
+            return InterpretationResult.failure(e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the full {@code Molecule} object, from the {@link MoleculeInternTable}, by interpreting the formula again
+     * if it isn't there
+     * @return the {@code Molecule} object
+     */
+    public Molecule toMolecule() {
+        // The formula came from an interpreted molecule, so it can be interpreted again
+        return MoleculeInternTable.tryIntern(getFormula()).getValue();
+    }
+
+    /**
+     * Gets the formula of the {@code CompactMolecule} object
+     * @return the formula, as written when it was interpreted
+     */
+    public String getFormula() {
+        return new String(formula, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gets the number of different elements in the {@code CompactMolecule} object
+     * @return the number of different elements
+     */
+    public int getElementCount() {
+        return composition.length / 2;
+    }
+
+    /**
+     * Gets one of the elements of the {@code CompactMolecule} object, in order of atomic number
+     * @param index the index of the element, from 0 to {@link #getElementCount()} - 1
+     * @return the element
+     * @throws IndexOutOfBoundsException when the index isn't that of an element
+     */
+    public Element getElement(int index) throws IndexOutOfBoundsException {
+        return Element.findByAtomicNumber(composition[checkIndex(index) * 2]);
+    }
+
+    /**
+     * Gets the number of atoms of one of the elements of the {@code CompactMolecule} object, in order of atomic number
+     * @param index the index of the element, from 0 to {@link #getElementCount()} - 1
+     * @return the number of atoms of the element
+     * @throws IndexOutOfBoundsException when the index isn't that of an element
+     */
+    public int getCount(int index) throws IndexOutOfBoundsException {
+        return composition[checkIndex(index) * 2 + 1];
+    }
+
+    /**
+     * Gets the number of atoms of an element in the {@code CompactMolecule} object
+     * @param element the element
+     * @return the number of atoms of the element, or 0 if it isn't in the molecule
+     */
+    public int getElementQuantity(Element element) {
+        int atomicNumber = element.getAtomicNumber();
+        int low = 0;
+        int high = getElementCount() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = composition[middle * 2];
+            if (found < atomicNumber) {
+                low = middle + 1;
+            }
+            else if (found > atomicNumber) {
+                high = middle - 1;
+            }
+            else {
+                return composition[middle * 2 + 1];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks if the {@code CompactMolecule} object contains an element
+     * @param element the element to look for
+     * @return whether the molecule contains the element
+     */
+    public boolean contains(Element element) {
+        return getElementQuantity(element) != 0;
+    }
+
+    /**
+     * Gets the {@link #relativeFormulaMass} of the {@code CompactMolecule} object
+     * @return the {@link #relativeFormulaMass} of the {@code CompactMolecule} object
+     */
+    public double getRelativeFormulaMass() {
+        return relativeFormulaMass;
+    }
+
+    /**
+     * Gets the formula of the {@code CompactMolecule} object
+     * @return the formula
+     */
+    @Override
+    public String toString() {
+        return getFormula();
+    }
+
+    /**
+     * A custom equals method, to compare molecules
+     * @param o the object to compare to this {@code CompactMolecule} object
+     * @return whether the two {@code CompactMolecule} objects have the same formula and composition
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompactMolecule molecule = (CompactMolecule) o;
+
+        return Arrays.equals(formula, molecule.formula) && Arrays.equals(composition, molecule.composition);
+    }
+
+    /**
+     * A custom hash code method, to hash molecules
+     * @return the hash code of the {@code CompactMolecule} object
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(formula) + Arrays.hashCode(composition);
+    }
+
+    private int checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= getElementCount()) {
+            throw new IndexOutOfBoundsException("Element index " + index + " out of " + getElementCount());
+        }
+        return index;
+    }
+
+    /**
+     * The formula, one Latin-1 byte per character
+     */
+    private final byte[] formula;
+
+    /**
+     * The atomic number then the number of atoms of each element, in order of atomic number
+     */
+    private final short[] composition;
+
+    /**
+     * The relative formula mass
+     */
+    private final double relativeFormulaMass;
+}
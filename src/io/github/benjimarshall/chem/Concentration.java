@@ -2,76 +2,56 @@ package io.github.benjimarshall.chem;
 
 
 import java.math.BigDecimal;
-import java.math.MathContext;
 
 /**
- * Concentration. An immutable {@code Concentration} object is a wrapper for the {@link BigDecimal} class.
+ * Concentration. An immutable {@code Concentration} object is a {@link Quantity} in moldm<sup>-3</sup>.
  */
-public class Concentration {
+public class Concentration extends Quantity<Concentration> {
     /**
      * Makes a {@code Concentration} object from a {@code BigDecimal} concentration, with moldm<sup>-3</sup> as the
      * assumed unit
      * @param concentration a {@code BigDecimal} concentration value
      */
     public Concentration(BigDecimal concentration) {
-        this.concentration = concentration;
+        super(concentration);
     }
 
     /**
      * Makes a {@code Concentration} object from a {@code double} concentration, with moldm<sup>-3</sup> as the
      * assumed unit
-     * @param concentration a {@code double} concentration value
+     * @param concentration a {@code double} concentration value, held as a
+     * {@code double} unless the current {@link NumericPolicy} is exact
      */
     public Concentration(double concentration) {
-        this(BigDecimal.valueOf(concentration));
+        super(concentration);
     }
 
     /**
-     * Add this {@code Concentration} object to the {@code Concentration} parameter, and return a new
-     * {@code Concentration} object of the resultant value
-     * @param concentration the {@code Concentration} object to add to this object
-     * @return a new {@code Concentration} object of the resultant value
+     * Makes a new {@code Concentration} object with a given value in moldm<sup>-3</sup>
+     * @param value a {@code BigDecimal} concentration value in moldm<sup>-3</sup>
+     * @return a new {@code Concentration} object
      */
-    public Concentration add(Concentration concentration) {
-        return new Concentration(this.concentration.add(concentration.getConcentration()));
-    }
-
-    /**
-     * Subtract the {@code Concentration} parameter from this {@code Concentration} object, and return a new
-     * {@code Concentration} object of the resultant value
-     * @param concentration the {@code Concentration} object to subtract from this object
-     * @return a new {@code Concentration} object of the resultant value
-     */
-    public Concentration subtract(Concentration concentration) {
-        return new Concentration(this.concentration.subtract(concentration.getConcentration()));
-    }
-
-    /**
-     * Multiply this {@code Concentration} object by the {@code Concentration} parameter, and return a new
-     * {@code Concentration} object of the resultant value
-     * @param concentration the {@code Concentration} object to multiply by this object
-     * @return a new {@code Concentration} object of the resultant value
-     */
-    public Concentration multiply(Concentration concentration) {
-        return new Concentration(this.concentration.multiply(concentration.getConcentration()));
+    @Override
+    protected Concentration make(BigDecimal value) {
+        return new Concentration(value);
     }
 
     /**
-     * Divide this {@code Concentration} object by the {@code Concentration} parameter, and return a new
-     * {@code Concentration} object of the resultant value
-     * @param concentration the {@code Concentration} object to divide this object by
-     * @return a new {@code Concentration} object of the resultant value
+     * Makes a new {@code Concentration} object with a given {@code double} value in moldm<sup>-3</sup>
+     * @param value a {@code double} concentration value in moldm<sup>-3</sup>
+     * @return a new {@code Concentration} object
      */
-    public Concentration divide(Concentration concentration) {
-        return new Concentration(this.concentration.divide(concentration.getConcentration(), MathContext.DECIMAL64));
+    @Override
+    protected Concentration make(double value) {
+        return new Concentration(value);
     }
 
     /**
-     * Gets the {@link #concentration} of the {@code Concentration} object in moldm<sup>-3</sup>
-     * @return the {@link #concentration} of the {@code Concentration} object in moldm<sup>-3</sup>
+     * Gets the value of the {@code Concentration} object in moldm<sup>-3</sup>
+     * @return the value of the {@code Concentration} object in moldm<sup>-3</sup>
      */
     public BigDecimal getConcentration() {
-        return this.concentration;
+        return getValue();
     }
 
     /**
@@ -80,11 +60,6 @@ public class Concentration {
      */
     @Override
     public String toString() {
-        return concentration.toString() + " moldm-3";
+        return getValue().toString() + " moldm-3";
     }
-
-    /**
-     * A {@code BigDecimal} object with the value of the concentration in moldm<sup>-3</sup>
-     */
-    protected BigDecimal concentration;
 }
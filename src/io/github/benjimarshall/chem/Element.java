@@ -7,16 +7,20 @@ import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 /**
  * Chemical Element. A {@code Element} object consists of a name, symbol, an atomic mass and an atomic number
+ * <p>
+ * {@code Element} objects are immutable, and the periodic table is read once when the class is loaded and can't be
+ * changed afterwards, so elements can be shared between threads freely.
  *
  * @author Benji Marshall
  * @since 2016-2-2
  */
 public class Element {
-    private Element() {}
-
     /**
      * Makes a deep copy of the {@code Element} object
      * @param element the element to copy
@@ -38,8 +42,19 @@ public class Element {
      * @throws NotationInterpretationException if no element was found to match the name parameter
      */
     public Element(String name, int flag) throws FlagException, NotationInterpretationException {
-        // One way flag to see if the element is found in the periodic table or not
-        boolean successful = false;
+        this(find(name, flag));
+    }
+
+    /**
+     * Find a {@code Element} object in the periodic table based on symbol or name
+     * @param name the symbol or name of the element (eg. {@code Na} or {@code Sodium})
+     * @param flag whether {@code name} is a symbol {@link #SYMBOL} or a {@link #NAME}
+     * @return the {@code Element} object from the periodic table
+     * @throws FlagException if the flag is not one of the two flags
+     * @throws NotationInterpretationException if no element was found to match the name parameter
+     */
+    private static Element find(String name, int flag) throws FlagException, NotationInterpretationException {
+        Element found = null;
 
         if (flag == SYMBOL) {
             // Check if the name looks valid
@@ -48,37 +63,29 @@ public class Element {
                         "and lower case letters: " + name);
             }
 
-            // Loop through the periodic table
-            for (Element element : periodicTable) {
-                if (element.getSymbol().equals(name)) { // If the name and symbol match
-                    // Copy across the data from the element
-                    this.symbol = element.getSymbol();
-                    this.name = element.getName();
-                    this.atomicNumber = element.getAtomicNumber();
-                    this.massNumber = element.getMassNumber();
-
-                    // Note that the element has been found, and don't bother with the rest of the table
-                    successful = true;
-                    break;
-                }
-            }
+            // Look the symbol up in the periodic table
+            found = findBySymbol(name);
         }
         else if (flag == NAME) {
+            FlightRecorderEvents.ElementResolution event = new FlightRecorderEvents.ElementResolution();
+            event.begin();
+
             // Loop through the periodic table
             name = name.toLowerCase();
-            for (Element element : periodicTable) {
+            for (Element element : PERIODIC_TABLE) {
                 if (element.getName().toLowerCase().equals(name)) { // If the name and element's name match
-                    // Copy across the data from the element
-                    this.symbol = element.getSymbol();
-                    this.name = element.getName();
-                    this.atomicNumber = element.getAtomicNumber();
-                    this.massNumber = element.getMassNumber();
-
-                    // Note that the element has been found, and don't bother with the rest of the table
-                    successful = true;
+                    // Don't bother with the rest of the table
+                    found = element;
                     break;
                 }
             }
+
+            if (event.shouldCommit()) {
+                event.text = name;
+                event.byName = true;
+                event.found = found != null;
+                event.commit();
+            }
         }
         // If the flag doesn't equal SYMBOL or NAME
         else {
@@ -86,10 +93,10 @@ public class Element {
         }
 
         // If the flag was valid but no element was found to match the "name" variable
-        if (!successful) {
+        if (found == null) {
             throw new NotationInterpretationException("Couldn't find element or symbol in the periodic table");
         }
-
+        return found;
     }
 
     /**
@@ -110,6 +117,45 @@ public class Element {
         this.massNumber = massNumber;
     }
 
+    /**
+     * Finds an {@code Element} object in the periodic table by its symbol, without throwing an exception if there is no
+     * such element
+     * @param symbol the symbol of the element (eg. {@code Na})
+     * @return the {@code Element} object from the periodic table, or {@code null} if no element has the symbol
+     */
+    public static Element findBySymbol(String symbol) {
+        FlightRecorderEvents.ElementResolution event = new FlightRecorderEvents.ElementResolution();
+        event.begin();
+        Element element = SYMBOL_INDEX.get(symbol);
+
+        if (event.shouldCommit()) {
+            event.text = symbol;
+            event.found = element != null;
+            event.commit();
+        }
+        return element;
+    }
+
+    /**
+     * Finds an {@code Element} object in the periodic table by its atomic number
+     * @param atomicNumber the atomic number of the element (eg. {@code 11})
+     * @return the {@code Element} object from the periodic table, or {@code null} if no element has the atomic number
+     */
+    public static Element findByAtomicNumber(int atomicNumber) {
+        if (atomicNumber < 0 || atomicNumber >= ATOMIC_NUMBER_INDEX.length) {
+            return null;
+        }
+        return ATOMIC_NUMBER_INDEX[atomicNumber];
+    }
+
+    /**
+     * Gets every {@code Element} object of the {@link #PERIODIC_TABLE}, in order of atomic number
+     * @return the unmodifiable {@link #PERIODIC_TABLE}
+     */
+    public static List<Element> getPeriodicTable() {
+        return PERIODIC_TABLE;
+    }
+
     /**
      * A custom equals method, to compare elements
      * @param o the object to compare to this {@code Element} object
@@ -183,22 +229,22 @@ public class Element {
     /**
      * The symbol of the {@code Element} object. For example: {@code Na}
      */
-    protected String symbol;
+    protected final String symbol;
 
     /**
      * The name of the {@code Element} object. For example: {@code Sodium}
      */
-    protected String name;
+    protected final String name;
 
     /**
      * The atomic number of the {@code Element} object. For example: {@code 11}
      */
-    protected BigDecimal massNumber;
+    protected final BigDecimal massNumber;
 
     /**
      * The relative atomic mass of the {@code Element} object. For example: {@code 23.0}
      */
-    protected int atomicNumber;
+    protected final int atomicNumber;
 
     /**
      * A flag for the {@link #Element(String, int)} constructor, for when the element's symbol is passed
@@ -217,13 +263,41 @@ public class Element {
     public static final String ELEMENT_REGEX = "[A-Z][a-z]?";
 
     /**
-     * A periodic table generated from a csv resource file
+     * A periodic table generated from a csv resource file, which can't be modified
      */
-    protected static ArrayList<Element> periodicTable = new ArrayList<>();
+    private static final List<Element> PERIODIC_TABLE = readPeriodicTable();
+
+    /**
+     * A map of the periodic table with symbols as keys, which is only written while the class is loaded
+     */
+    private static final HashMap<String, Element> SYMBOL_INDEX = new HashMap<>();
+
+    /**
+     * The periodic table indexed by atomic number, with {@code null} where there is no element
+     */
+    private static final Element[] ATOMIC_NUMBER_INDEX;
     static {
+        int largestAtomicNumber = 0;
+        for (Element element : PERIODIC_TABLE) {
+            SYMBOL_INDEX.put(element.getSymbol(), element);
+            largestAtomicNumber = Math.max(largestAtomicNumber, element.getAtomicNumber());
+        }
+
+        ATOMIC_NUMBER_INDEX = new Element[largestAtomicNumber + 1];
+        for (Element element : PERIODIC_TABLE) {
+            ATOMIC_NUMBER_INDEX[element.getAtomicNumber()] = element;
+        }
+    }
+
+    /**
+     * Reads the periodic table from its csv resource file
+     * @return the elements of the periodic table, in order of atomic number, in an unmodifiable list
+     */
+    private static List<Element> readPeriodicTable() {
+        ArrayList<Element> periodicTable = new ArrayList<>();
         try {
             // Make the CSV reader
-            InputStream is = (new Element()).getClass().getResourceAsStream("/periodic_table.csv");
+            InputStream is = Element.class.getResourceAsStream("/periodic_table.csv");
             CSVReader r = new CSVReader(new InputStreamReader(is));
 
             // Dump the header row
@@ -245,5 +319,6 @@ public class Element {
             System.out.println("There has been an IO error in reading the periodic table. Program closing");
             System.exit(1);
         }
+        return Collections.unmodifiableList(periodicTable);
     }
 }
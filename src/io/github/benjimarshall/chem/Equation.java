@@ -3,16 +3,20 @@ package io.github.benjimarshall.chem;
 import org.apache.commons.lang3.math.Fraction;
 
 import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Pattern;
 
 /**
  * Chemical equation. A {@code Equation} object consists of two maps, of its reactants and its products, with a string
  * representation of it.
+ * <p>
+ * {@code Equation} objects are balanced when they are made and are immutable afterwards, so they can be shared between
+ * threads without locking. Subclasses such as {@link SubstanceEquation} may add mutable state of their own.
  *
  * @see AlgebraicEquation
  */
@@ -24,6 +28,91 @@ public class Equation {
      * be parsed
      */
     public Equation(String equation) throws NotationInterpretationException {
+        this(tryBalance(equation).getOrThrow());
+    }
+
+    /**
+     * Constructs an {@code Equation} object with the same reactants and products as another. As the reactants and
+     * products can't be modified, they are shared with the other {@code Equation} object
+     * @param equation the equation to copy
+     */
+    protected Equation(Equation equation) {
+        this.equation = equation.getEquation();
+        this.reactants = equation.getReactants();
+        this.products = equation.getProducts();
+        this.stoichiometry = equation.stoichiometry;
+    }
+
+    /**
+     * Constructs an {@code Equation} object from its balanced parts
+     * @param equation {@code String} representation of the balanced equation
+     * @param reactants the reactants and their coefficients, which the {@code Equation} object takes ownership of
+     * @param products the products and their coefficients, which the {@code Equation} object takes ownership of
+     */
+    private Equation(String equation, HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products) {
+        this.equation = equation;
+        this.reactants = Collections.unmodifiableMap(reactants);
+        this.products = Collections.unmodifiableMap(products);
+    }
+
+    /**
+     * Attempts to construct and balance an {@code Equation} object from a {@code String} representation of the
+     * equation, without throwing an exception if the equation cannot be interpreted or balanced
+     * @param equation {@code String} representation of the equation
+     * @return the {@code Equation} object, or a message saying why the equation could not be interpreted or balanced
+     */
+    public static InterpretationResult<Equation> tryBalance(String equation) {
+        FlightRecorderEvents.EquationBalance event = new FlightRecorderEvents.EquationBalance();
+        event.begin();
+        long start = Metrics.start();
+        long slowStart = SlowOperationLog.start();
+        Balancing balancing = new Balancing();
+        InterpretationResult<Equation> balanced = interpretAndBalance(equation, balancing);
+        Metrics.stop(Metrics.Stage.EQUATION, start);
+        SlowOperationLog.record(SlowOperationLog.Kind.EQUATION, equation, balancing.strategy,
+                balancing.bruteForceNodes, slowStart);
+
+        // Only fill in the event if a flight recording is being made
+        if (event.shouldCommit()) {
+            event.equation = equation;
+            event.successful = balanced.isSuccessful();
+            event.problem = balanced.getMessage();
+            event.strategy = balancing.strategy == null ? null : balancing.strategy.name();
+            event.species = balancing.species;
+            event.bruteForceDepth = balancing.bruteForceDepth;
+            event.bruteForceNodes = balancing.bruteForceNodes;
+            event.commit();
+        }
+        return balanced;
+    }
+
+    /**
+     * How an equation was balanced, for the {@link Metrics}, flight recorder events and {@link SlowOperationLog}
+     */
+    private static final class Balancing {
+        /**
+         * The strategy that balanced the equation, or {@code null} if it wasn't interpreted
+         */
+        private Metrics.Strategy strategy;
+
+        /**
+         * The number of different reactants and products, or 0 if they weren't interpreted
+         */
+        private int species;
+
+        /**
+         * The number of coefficients the brute force balancer searched over, or 0 if it wasn't used
+         */
+        private int bruteForceDepth;
+
+        /**
+         * The number of sets of coefficients the brute force balancer tried
+         */
+        private long bruteForceNodes;
+    }
+
+    private static InterpretationResult<Equation> interpretAndBalance(String equation, Balancing balancing) {
+        long stage = Metrics.start();
         // Clean out the whitespace
         equation = equation.replace(" ", "");
         // Simplify the equation's arrow
@@ -31,47 +120,42 @@ public class Equation {
 
         // Check that the equation is in a valid format
         // Add coefficients to numbers
-        if (!equation.matches(EQUATION_REGEX)) {
-            throw new NotationInterpretationException("Equation did not meet notation standards");
+        if (!EQUATION_PATTERN.matcher(equation).matches()) {
+            return InterpretationResult.failure("Equation did not meet notation standards");
         }
+        stage = Metrics.stop(Metrics.Stage.VALIDATION, stage);
 
         // Split the equation up by side
         String[] equationSides = equation.split(">");
 
-        // Make the Map for each side with given values
-        this.reactants = makeChemicalMap(equationSides[0]);
-        this.products = makeChemicalMap(equationSides[1]);
-
-
-        if (!isElementsPresent(this.reactants, this.products)) {
-            throw new NotationInterpretationException("There are different elements on either side of the reaction");
-        }
-
-        // See if the supplied equation is balanced, if it is not attempt to balance
-        if (!isBalanced(this.reactants, this.products)) {
-            // Attempt to balance the equation
-            try {
-                balance(this.reactants, this.products);
+        HashMap<Molecule, Integer> reactants;
+        HashMap<Molecule, Integer> products;
+        try {
+            // Make the Map for each side with given values
+            reactants = makeChemicalMap(equationSides[0]);
+            products = makeChemicalMap(equationSides[1]);
+            stage = Metrics.stop(Metrics.Stage.PARSING, stage);
+            balancing.species = reactants.size() + products.size();
+
+            if (!isElementsPresent(reactants, products)) {
+                return InterpretationResult.failure("There are different elements on either side of the reaction");
             }
-            catch (NotationInterpretationException e) {
-                // If the program doesn't know how to solve it, attempt to brute force it
-                if (e.getMessage().equals("Equation could not be balanced")) {
-                    // If the brute forcing fails, re-throw the error saying it can't be balanced
-                    if (!bruteBalance(this.reactants, this.products, 15)) {
-                        throw e;
-                    }
-                }
-                // If it was a different error, not to do with how to solve it, then re-throw
-                else {
-                    throw e;
-                }
+
+            balancing.strategy = balanceSides(reactants, products, stage, balancing);
+            Metrics.count(balancing.strategy);
+            if (balancing.strategy == Metrics.Strategy.FAILED) {
+                return InterpretationResult.failure(Thread.currentThread().isInterrupted()
+                        ? "Balancing was interrupted" : "Equation could not be balanced");
             }
         }
+        catch (NotationInterpretationException e) {
+            return InterpretationResult.failure(e.getMessage());
+        }
 
         // Generate a string for the equation
         StringBuilder equationBuilder = new StringBuilder();
 
-        for (HashMap.Entry<Molecule, Integer> reactant: this.reactants.entrySet()) {
+        for (HashMap.Entry<Molecule, Integer> reactant: reactants.entrySet()) {
             String coefficient = Integer.toString(reactant.getValue());
             if (coefficient.equals("0")) {
                 continue;
@@ -84,7 +168,7 @@ public class Equation {
 
         equationBuilder.replace(equationBuilder.length() - 3, equationBuilder.length(), " -> ");
 
-        for (HashMap.Entry<Molecule, Integer> product: this.products.entrySet()) {
+        for (HashMap.Entry<Molecule, Integer> product: products.entrySet()) {
             String coefficient = Integer.toString(product.getValue());
             if (coefficient.equals("0")) {
                 continue;
@@ -96,7 +180,40 @@ public class Equation {
         }
 
         equationBuilder.replace(equationBuilder.length() - 3, equationBuilder.length(), "");
-        this.equation = equationBuilder.toString();
+        return InterpretationResult.success(new Equation(equationBuilder.toString(), reactants, products));
+    }
+
+    /**
+     * Balances an equation with the first strategy that works: leaving it as written if it is already balanced, then
+     * solving an algebraic equation for each element, then brute force
+     * @param reactants the reactants of the equation, whose coefficients are balanced in place
+     * @param products the products of the equation, whose coefficients are balanced in place
+     * @param stage when the element check started, from {@link Metrics#start()}
+     * @param balancing where the brute force balancer's depth and the number of nodes it visited are recorded
+     * @return the strategy that balanced the equation, or {@link Metrics.Strategy#FAILED}
+     * @throws NotationInterpretationException when the algebraic equations cannot be set up
+     */
+    private static Metrics.Strategy balanceSides(HashMap<Molecule, Integer> reactants,
+                                                 HashMap<Molecule, Integer> products, long stage, Balancing balancing)
+            throws NotationInterpretationException {
+        boolean balanced = isBalanced(reactants, products);
+        stage = Metrics.stop(Metrics.Stage.BALANCE_CHECK, stage);
+        if (balanced) {
+            return Metrics.Strategy.ALREADY_BALANCED;
+        }
+
+        balanced = substitutionBalance(reactants, products);
+        stage = Metrics.stop(Metrics.Stage.SUBSTITUTION, stage);
+        if (balanced) {
+            return Metrics.Strategy.SUBSTITUTION;
+        }
+
+        long[] nodes = new long[1];
+        balanced = bruteBalance(reactants, products, 15, nodes);
+        Metrics.stop(Metrics.Stage.BRUTE_FORCE, stage);
+        balancing.bruteForceDepth = reactants.size() + products.size();
+        balancing.bruteForceNodes = nodes[0];
+        return balanced ? Metrics.Strategy.BRUTE_FORCE : Metrics.Strategy.FAILED;
     }
 
     private static HashMap<Molecule, Integer> makeChemicalMap(String equationSide)
@@ -130,7 +247,12 @@ public class Equation {
                     }
                     // If the character is not a digit, then the number has finished so stop looping though the chemical
                     else {
-                        // Parse the integer collected from the beginning of the chemical's string
+                        // Parse the integer collected from the beginning of the chemical's string, checking its
+                        // length first so a huge coefficient doesn't escape as a NumberFormatException
+                        if (stringQuantity.length() > 9) {
+                            throw new NotationInterpretationException("Coefficient is too large", null, false,
+                                    false);
+                        }
                         quantity = Integer.parseInt(stringQuantity);
                         // Start collecting the rest of the chemical's characters
                         stringQuantity = Character.toString(c);
@@ -138,25 +260,26 @@ public class Equation {
                     }
                 }
                 // Put the molecule into the map
+                Molecule molecule = MoleculeInternTable.intern(stringQuantity);
                 // Check to see if the molecule has already been added to the map, if so increment the value
-                if (chemicals.containsKey(new Molecule(stringQuantity))) {
-                    chemicals.put(new Molecule(stringQuantity), quantity + chemicals.get(new Molecule(stringQuantity)));
+                if (chemicals.containsKey(molecule)) {
+                    chemicals.put(molecule, quantity + chemicals.get(molecule));
                 }
                 // If the molecule hasn't been added yet, just add it to the map
                 else {
-                    chemicals.put(new Molecule(stringQuantity), quantity);
+                    chemicals.put(molecule, quantity);
                 }
             }
             // If the chemical doesn't have a coefficient, assume that it is 1
             else {
                 // Put the molecule into the map with an assumed quantity of 1
-                chemicals.put(new Molecule(chemical), 1);
+                chemicals.put(MoleculeInternTable.intern(chemical), 1);
             }
         }
         return chemicals;
     }
 
-    private static boolean isElementsPresent(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products) {
+    private static boolean isElementsPresent(Map<Molecule, Integer> reactants, Map<Molecule, Integer> products) {
         HashMap<Element, Integer> reactantElementMap = makeElementMap(reactants);
         HashMap<Element, Integer> productElementMap = makeElementMap(products);
 
@@ -173,7 +296,7 @@ public class Equation {
         return true;
     }
 
-    private static boolean isBalanced(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products) {
+    private static boolean isBalanced(Map<Molecule, Integer> reactants, Map<Molecule, Integer> products) {
         // Make a map of elements and quantities for each side of the reaction
         HashMap<Element, Integer> reactantElementMap = makeElementMap(reactants);
         HashMap<Element, Integer> productElementMap = makeElementMap(products);
@@ -187,7 +310,7 @@ public class Equation {
         return true;
     }
 
-    private static HashMap<Element, Integer> makeElementMap(HashMap<Molecule, Integer> moleculeMap) {
+    private static HashMap<Element, Integer> makeElementMap(Map<Molecule, Integer> moleculeMap) {
         HashMap<Element, Integer> elementMap = new HashMap<>();
         // For every value in the reactants
         for (HashMap.Entry<Molecule, Integer> molecule: moleculeMap.entrySet()) {
@@ -217,6 +340,20 @@ public class Equation {
      */
     protected void balance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products)
             throws NotationInterpretationException {
+        if (!substitutionBalance(reactants, products)) {
+            throw new NotationInterpretationException("Equation could not be balanced");
+        }
+    }
+
+    /**
+     * Attempt to balance the chemical equation by setting up and solving an algebraic equation for each element
+     * @param reactants the reactants of the equation
+     * @param products the products of the equation
+     * @return if the equation has been successfully balanced
+     * @throws NotationInterpretationException when the algebraic equations cannot be set up
+     */
+    private static boolean substitutionBalance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products)
+            throws NotationInterpretationException {
         Set<Element> elementSet = makeElementMap(reactants).keySet();
 
         // Make maps of the coefficients, for molecules and for the fractional value of the coefficients
@@ -327,7 +464,8 @@ public class Equation {
             startingEq.solveSimpleSubstitution(coefficientFractionValue, balancedVariables);
 
             balancedVariables.add(startingEq.getTerms().get(1));
-            finished = attemptToSolveChemEquation(algEquations, balancedVariables, coefficientFractionValue);
+            finished = attemptToSolveChemEquation(algEquations, balancedVariables, coefficientFractionValue,
+                    reactants.size() + products.size());
 
             if (finished) {
                 break;
@@ -336,25 +474,23 @@ public class Equation {
 
         // Did the equation successfully balance?
         if (finished) {
-            ArrayList<HashMap<Molecule, Integer>> sides = coefficientsToEquation(moleculeCoefficients,
-                    AlgebraicEquation.simplifyCoefficients(coefficientFractionValue));
+            ArrayList<HashMap<Molecule, Integer>> sides = coefficientsToEquation(reactants, products,
+                    moleculeCoefficients, AlgebraicEquation.simplifyCoefficients(coefficientFractionValue));
 
             for (HashMap.Entry<Molecule, Integer> mol : sides.get(0).entrySet()) {
-                this.reactants.put(mol.getKey(), mol.getValue());
+                reactants.put(mol.getKey(), mol.getValue());
             }
             for (HashMap.Entry<Molecule, Integer> mol : sides.get(1).entrySet()) {
-                this.products.put(mol.getKey(), mol.getValue());
+                products.put(mol.getKey(), mol.getValue());
             }
         }
-        // If it didn't, throw an error
-        else {
-            throw new NotationInterpretationException("Equation could not be balanced");
-        }
+        return finished;
     }
 
-    private boolean attemptToSolveChemEquation (ArrayList<AlgebraicEquation> algEquations,
+    private static boolean attemptToSolveChemEquation (ArrayList<AlgebraicEquation> algEquations,
                                                 ArrayList<String> balancedVariables,
-                                                HashMap<String, Fraction> coefficientFractionValue) {
+                                                HashMap<String, Fraction> coefficientFractionValue,
+                                                int numberOfMolecules) {
         boolean doneSomethingThisTime = true;
         boolean finished = false;
         ArrayList<AlgebraicEquation> foundSimultaneousEquations;
@@ -378,7 +514,7 @@ public class Equation {
             }
 
             // If all of the values of the variables have been found, the process has finished
-            if (balancedVariables.size() == this.reactants.size() + this.products.size()) {
+            if (balancedVariables.size() == numberOfMolecules) {
                 finished = true;
             }
 
@@ -386,6 +522,7 @@ public class Equation {
 
             // If some simultaneous equations have been found, solve them
             if (!doneSomethingThisTime && foundSimultaneousEquations.size() >=2 ) {
+                long start = Metrics.start();
                 for (AlgebraicEquation eq1: foundSimultaneousEquations) {
                     for (AlgebraicEquation eq2 : foundSimultaneousEquations) {
                         // If they share terms (and aren't the same equation!), continue
@@ -393,14 +530,11 @@ public class Equation {
                                 eq2.getUnknownTerms(balancedVariables))) {
                             continue;
                         }
-                        try {
-                            eq1.solveSimultaneousEquations(eq2, balancedVariables, coefficientFractionValue);
+                        // If the equations were equivalent: give up and try again
+                        if (eq1.trySolveSimultaneousEquations(eq2, balancedVariables, coefficientFractionValue)) {
                             doneSimultaneousSolving = true;
                             break;
                         }
-                        // If the equations were equivalent: give up and try again
-                        catch (ArithmeticException ignored) {
-                        }
                     }
 
                     // Break out of the outer loop as well if simultaneous equations have been solved
@@ -409,6 +543,7 @@ public class Equation {
                         break;
                     }
                 }
+                Metrics.stop(Metrics.Stage.SIMULTANEOUS, start);
             }
 
         }
@@ -417,7 +552,8 @@ public class Equation {
     }
 
     /**
-     * Attempt to balance the equation using a brute force guessing method
+     * Attempt to balance the equation using a brute force guessing method. The search stops early, unsuccessfully, if
+     * the thread is interrupted
      * @param reactants the reactants of the equation
      * @param products the products of the equation
      * @param limit the maximum coefficient of any molecule
@@ -425,25 +561,51 @@ public class Equation {
      */
     protected boolean bruteBalance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products,
                                    int limit) {
+        return bruteBalance(reactants, products, limit, new long[1]);
+    }
+
+    /**
+     * Attempt to balance the equation using a brute force guessing method, counting the nodes visited
+     * @param reactants the reactants of the equation
+     * @param products the products of the equation
+     * @param limit the maximum coefficient of any molecule
+     * @param nodes a counter of the sets of coefficients tried, which is added to
+     * @return if the equation has been successfully balanced
+     */
+    private static boolean bruteBalance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products,
+                                        int limit, long[] nodes) {
         ArrayList<Molecule> orderedMolecules = new ArrayList<>();
         orderedMolecules.addAll(reactants.keySet());
         orderedMolecules.add(null);
         orderedMolecules.addAll(products.keySet());
 
-        return bruteBalance(reactants, products, 0, limit, orderedMolecules, true);
+        boolean successful;
+        try {
+            successful = bruteBalance(reactants, products, 0, limit, orderedMolecules, true, nodes);
+        } catch (CancellationException e) {
+            // The thread was interrupted part way through the search
+            successful = false;
+        }
+        Metrics.countBruteForceNodes(nodes[0]);
+        return successful;
     }
 
-    private boolean bruteBalance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products,
-                                            int position, int limit, ArrayList<Molecule> orderedMolecules,
-                                            boolean doingReactants) {
+    private static boolean bruteBalance(HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products,
+                                        int position, int limit, ArrayList<Molecule> orderedMolecules,
+                                            boolean doingReactants, long[] nodes) {
         Molecule targetMolecule = orderedMolecules.get(position);
         boolean successful = false;
 
         if (targetMolecule == null) {
-            return bruteBalance(reactants, products, ++position, limit, orderedMolecules, false);
+            return bruteBalance(reactants, products, ++position, limit, orderedMolecules, false, nodes);
         }
 
         for (int quantity = 1; quantity <= limit; quantity++) {
+            // Stop searching if the thread has been interrupted, such as when an asynchronous balance is cancelled,
+            // checking every few thousand sets of coefficients so the check costs next to nothing
+            if ((++nodes[0] & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Balancing was interrupted");
+            }
             // Increment this chemical's quantity
             if (doingReactants) {
                 reactants.put(targetMolecule, quantity);
@@ -461,7 +623,8 @@ public class Equation {
             }
             // Call the next chemical
             else {
-                successful = bruteBalance(reactants, products, position + 1, limit, orderedMolecules, doingReactants);
+                successful = bruteBalance(reactants, products, position + 1, limit, orderedMolecules, doingReactants,
+                        nodes);
             }
 
             if (successful) {
@@ -471,13 +634,14 @@ public class Equation {
         return successful;
     }
 
-    private ArrayList<HashMap<Molecule, Integer>> coefficientsToEquation(Map<String, Molecule> moleculeCoefficients,
-                                                                      Map<String, Integer> coefficientValues) {
+    private static ArrayList<HashMap<Molecule, Integer>> coefficientsToEquation(
+            HashMap<Molecule, Integer> reactants, HashMap<Molecule, Integer> products,
+            Map<String, Molecule> moleculeCoefficients, Map<String, Integer> coefficientValues) {
         ArrayList<HashMap<Molecule, Integer>> sides = new ArrayList<>();
         sides.add(new HashMap<>());
 
         // Add determine each coefficient of the reactants
-        for (Molecule mol: this.reactants.keySet()) {
+        for (Molecule mol: reactants.keySet()) {
             // Find the value, searching for the molecule's String name, and using it to call its value
             for (HashMap.Entry<String, Molecule> molEntry: moleculeCoefficients.entrySet()) {
                 if (mol.equals(molEntry.getValue())) {
@@ -490,7 +654,7 @@ public class Equation {
         sides.add(new HashMap<>());
 
         // Add determine each coefficient of the reactants
-        for (Molecule mol: this.products.keySet()) {
+        for (Molecule mol: products.keySet()) {
             // Find the value, searching for the molecule's String name, and using it to call its value
             for (HashMap.Entry<String, Molecule> molEntry: moleculeCoefficients.entrySet()) {
                 if (mol.equals(molEntry.getValue())) {
@@ -506,7 +670,8 @@ public class Equation {
     /**
      * Gets the fraction of the products that a particular product occupies, a metric of reaction efficiency
      * @param product the product which the proportion of the reactants will be found for
-     * @return the fraction of the products that a particular product occupies, from 0 to 1, to 5 significant figures
+     * @return the fraction of the products that a particular product occupies, from 0 to 1, to the result precision of
+     * the current {@link NumericPolicy} (5 significant figures by default)
      * @throws IllegalArgumentException when the {@code Molecule} object is not a product
      */
     public BigDecimal atomEconomy(Molecule product) throws IllegalArgumentException {
@@ -527,7 +692,7 @@ public class Equation {
 
         // Find the quantity of the desired product
         BigDecimal targetMoleculeRFM = product.getRelativeFormulaMass().multiply(new BigDecimal(products.get(product)));
-        return targetMoleculeRFM.divide(total, new MathContext(5, RoundingMode.HALF_UP));
+        return targetMoleculeRFM.divide(total, NumericPolicy.current().getResultContext());
     }
 
     /**
@@ -542,17 +707,17 @@ public class Equation {
 
     /**
      * Gets the {@link #reactants} of {@code Equation} object
-     * @return the {@link #reactants} of {@code Equation} object
+     * @return the {@link #reactants} of {@code Equation} object, which can't be modified
      */
-    public HashMap<Molecule, Integer> getReactants() {
+    public Map<Molecule, Integer> getReactants() {
         return reactants;
     }
 
     /**
-     * Gets the {@link #reactants} of {@code Equation} object
-     * @return the {@link #reactants} of {@code Equation} object
+     * Gets the {@link #products} of {@code Equation} object
+     * @return the {@link #products} of {@code Equation} object, which can't be modified
      */
-    public HashMap<Molecule, Integer> getProducts() {
+    public Map<Molecule, Integer> getProducts() {
         return products;
     }
 
@@ -565,20 +730,44 @@ public class Equation {
         return equation;
     }
 
+    /**
+     * Gets the {@link #stoichiometry} of the {@code Equation} object, building it on first use
+     * @return the {@link #stoichiometry} of the {@code Equation} object
+     */
+    public StoichiometricMatrix getStoichiometry() {
+        // The matrix is immutable, so building it twice in a race is harmless
+        if (stoichiometry == null) {
+            stoichiometry = new StoichiometricMatrix(reactants, products);
+        }
+        return stoichiometry;
+    }
+
     /**
      * The {@code String} representation of the {@code Equation} object
      */
-    protected String equation;
+    protected final String equation;
+
+    /**
+     * A {@link Map} of the reactants in the equation, which can't be modified
+     */
+    protected final Map<Molecule, Integer> reactants;
+
+    /**
+     * A {@link Map} of the products in the equation, which can't be modified
+     */
+    protected final Map<Molecule, Integer> products;
 
     /**
-     * A {@link HashMap} of the reactants in the equation
+     * The precomputed species index, coefficients and molar ratios of the balanced equation. It is built on first
+     * use, and as every field of a {@link StoichiometricMatrix} is final, it is safely published without locking
      */
-    protected HashMap<Molecule, Integer> reactants = new HashMap<>();
+    private StoichiometricMatrix stoichiometry;
 
     /**
-     * A {@link HashMap} of the products in the equation
+     * How often the brute force balancer checks whether its thread has been interrupted, as a mask of the number of
+     * sets of coefficients tried
      */
-    protected HashMap<Molecule, Integer> products = new HashMap<>();
+    private static final long INTERRUPT_CHECK_MASK = (1 << 12) - 1;
 
     /**
      * A regex pattern of the accepted format of one side of the {@code String} representation a {@code Equation} object
@@ -592,4 +781,9 @@ public class Equation {
      * @see java.util.regex.Pattern
      */
     public static final String EQUATION_REGEX = EQUATION_SIDE_REGEX + ">" + EQUATION_SIDE_REGEX;
+
+    /**
+     * A compiled {@link #EQUATION_REGEX}
+     */
+    private static final Pattern EQUATION_PATTERN = Pattern.compile(EQUATION_REGEX);
 }
@@ -0,0 +1,126 @@
+package io.github.benjimarshall.chem;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events, so that recordings can attribute time and allocation to the formulas and equations that
+ * caused them. Each event is timed from {@code begin()} to {@code commit()}, and its fields are only filled in once
+ * {@code shouldCommit()} says the event is being recorded, so while recording is off, or the event is disabled, an
+ * instrumented call costs about as much as an empty method call.
+ * <p>
+ * Every event is in the {@code Chemistry Calculator} category. {@link ElementResolution} happens once for every
+ * element symbol in every formula, so it is off unless a recording turns it on, for example with
+ * {@code -XX:StartFlightRecording:+io.github.benjimarshall.chem.ElementResolution#enabled=true}; the other events are
+ * on.
+ */
+final class FlightRecorderEvents {
+    private FlightRecorderEvents() {
+
+    }
+
+    /**
+     * Interpreting a formula as a {@link Molecule}
+     */
+    @Name("io.github.benjimarshall.chem.MoleculeParse")
+    @Label("Molecule Parse")
+    @Category("Chemistry Calculator")
+    @Description("Interpreting a formula as a molecule")
+    @StackTrace(false)
+    static final class MoleculeParse extends Event {
+        @Label("Formula")
+        String formula;
+
+        @Label("Successful")
+        boolean successful;
+
+        @Label("Problem")
+        @Description("Why the formula couldn't be interpreted")
+        String problem;
+
+        @Label("Elements")
+        @Description("The number of different elements in the molecule")
+        int elements;
+    }
+
+    /**
+     * Looking up an {@link Element} in the periodic table by symbol or name
+     */
+    @Name("io.github.benjimarshall.chem.ElementResolution")
+    @Label("Element Resolution")
+    @Category("Chemistry Calculator")
+    @Description("Looking up an element in the periodic table by symbol or name")
+    @StackTrace(false)
+    @Enabled(false)
+    static final class ElementResolution extends Event {
+        @Label("Text")
+        @Description("The symbol or name looked up")
+        String text;
+
+        @Label("By Name")
+        boolean byName;
+
+        @Label("Found")
+        boolean found;
+    }
+
+    /**
+     * Interpreting and balancing an {@link Equation}
+     */
+    @Name("io.github.benjimarshall.chem.EquationBalance")
+    @Label("Equation Balance")
+    @Category("Chemistry Calculator")
+    @Description("Interpreting and balancing an equation")
+    @StackTrace(false)
+    static final class EquationBalance extends Event {
+        @Label("Equation")
+        String equation;
+
+        @Label("Successful")
+        boolean successful;
+
+        @Label("Problem")
+        @Description("Why the equation couldn't be interpreted or balanced")
+        String problem;
+
+        @Label("Strategy")
+        @Description("How the equation was balanced, from Metrics.Strategy")
+        String strategy;
+
+        @Label("Species")
+        @Description("The number of different reactants and products")
+        int species;
+
+        @Label("Brute Force Depth")
+        @Description("The number of coefficients the brute force balancer searched over, or 0 if it wasn't used")
+        int bruteForceDepth;
+
+        @Label("Brute Force Nodes")
+        @Description("The number of sets of coefficients the brute force balancer tried")
+        long bruteForceNodes;
+    }
+
+    /**
+     * Working out the limiting reagent and products of a {@link SubstanceEquation}
+     */
+    @Name("io.github.benjimarshall.chem.SubstanceFill")
+    @Label("Substance Fill")
+    @Category("Chemistry Calculator")
+    @Description("Working out the limiting reagent and the amounts of products of an equation")
+    @StackTrace(false)
+    static final class SubstanceFill extends Event {
+        @Label("Equation")
+        String equation;
+
+        @Label("Known Reactants")
+        int knownReactants;
+
+        @Label("Limiting Reagent")
+        String limitingReagent;
+    }
+}
@@ -0,0 +1,442 @@
+package io.github.benjimarshall.chem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Stage of a {@link Flow} pipeline. A {@code FlowStage} object is a {@link Flow.Processor} that applies a function to
+ * each item it receives, on up to a fixed number of threads of an {@link Executor} at once, and publishes the results
+ * in the order the items were received.
+ * <p>
+ * A stage holds at most a fixed number of items, counting those being worked on and results waiting to be published,
+ * and only requests more items from upstream when there is room for them. Results are only published when downstream
+ * has requested them, so a slow subscriber holds back the stage, which in turn holds back its publisher, and no queue
+ * between a fast reader and a slow stage grows without bound.
+ * <p>
+ * A stage has one subscriber. If the function throws an exception or returns {@code null}, or upstream signals an
+ * error, the error is passed on and the results waiting to be published are dropped; functions that can fail on
+ * single items, such as those of {@link ChemistryPipeline}, should return {@link InterpretationResult} failures
+ * instead, so that the rest of the stream carries on.
+ *
+ * @param <T> the type of the items received
+ * @param <R> the type of the results published
+ * @see ChemistryPipeline
+ */
+public final class FlowStage<T, R> implements Flow.Processor<T, R> {
+    /**
+     * Constructs a {@code FlowStage} object
+     * @param function the function applied to each item, which may be called on several threads at once, and must not
+     *                 return {@code null}
+     * @param executor the executor the function is run on
+     * @param parallelism the most items the function is applied to at once
+     * @param bufferSize the most items the stage holds at once, including those being worked on, which is at least the
+     *                   parallelism
+     * @throws IllegalArgumentException when the parallelism isn't positive, or the buffer is smaller than it
+     */
+    public FlowStage(Function<? super T, ? extends R> function, Executor executor, int parallelism, int bufferSize)
+            throws IllegalArgumentException {
+        if (parallelism < 1 || bufferSize < parallelism) {
+            throw new IllegalArgumentException("The parallelism must be positive, and the buffer at least as big");
+        }
+        this.function = Objects.requireNonNull(function);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Subscribes to the results of the stage. A stage can only have one subscriber, so any later subscriber is given
+     * an {@link IllegalStateException}
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        Objects.requireNonNull(subscriber);
+        boolean duplicate;
+        synchronized (lock) {
+            duplicate = downstream != null;
+            if (!duplicate) {
+                downstream = subscriber;
+            }
+        }
+        if (duplicate) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+
+                }
+
+                @Override
+                public void cancel() {
+
+                }
+            });
+            subscriber.onError(new IllegalStateException("A FlowStage can only have one subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Subscription());
+        // Nothing is published until onSubscribe has returned
+        synchronized (lock) {
+            subscribed = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        boolean duplicate;
+        synchronized (lock) {
+            duplicate = upstream != null || cancelled;
+            if (!duplicate) {
+                upstream = subscription;
+            }
+        }
+        if (duplicate) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        synchronized (lock) {
+            if (cancelled || terminated || upstreamComplete) {
+                return;
+            }
+            Slot<T, R> slot = new Slot<>(item);
+            slots.addLast(slot);
+            waiting.addLast(slot);
+            requested--;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (lock) {
+            if (!upstreamComplete && error == null) {
+                error = Objects.requireNonNull(throwable);
+            }
+            upstreamComplete = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            upstreamComplete = true;
+        }
+        drain();
+    }
+
+    /**
+     * Gets the number of items the stage is holding, including those being worked on and results waiting to be
+     * published
+     * @return the number of items the stage is holding, at most the buffer size
+     */
+    public int getBufferedCount() {
+        synchronized (lock) {
+            return slots.size();
+        }
+    }
+
+    /**
+     * Applies the function to an item, then publishes whatever results are ready
+     * @param slot the item's place in the order
+     */
+    private void process(Slot<T, R> slot) {
+        R result = null;
+        Throwable failure = null;
+        try {
+            result = function.apply(slot.item);
+            // Subscribers can't be given null, so a null result fails the stream like an exception
+            if (result == null) {
+                failure = new NullPointerException("The function of a FlowStage returned null");
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+        finish(slot, result, failure);
+    }
+
+    private void finish(Slot<T, R> slot, R result, Throwable failure) {
+        synchronized (lock) {
+            running--;
+            slot.item = null;
+            if (failure != null) {
+                if (error == null) {
+                    error = failure;
+                    cancelUpstreamOnError = true;
+                }
+            }
+            else {
+                slot.result = result;
+                slot.done = true;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Publishes the results that are ready and have been requested, requests more items when there is room for them,
+     * starts work on waiting items, and passes on completion or errors. Only one thread drains at once, so subscribers
+     * are signalled one at a time; a thread that finds another draining leaves it to go round again
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            List<R> ready = new ArrayList<>();
+            List<Slot<T, R>> starting = new ArrayList<>();
+            long request = 0;
+            Throwable failure = null;
+            boolean cancelUpstream = false;
+            boolean complete = false;
+            Flow.Subscription subscription;
+            Flow.Subscriber<? super R> subscriber;
+
+            synchronized (lock) {
+                subscription = upstream;
+                subscriber = downstream;
+                if (cancelled || terminated) {
+                    continue;
+                }
+
+                if (subscribed) {
+                    if (error != null) {
+                        terminated = true;
+                        failure = error;
+                        cancelUpstream = cancelUpstreamOnError;
+                        slots.clear();
+                        waiting.clear();
+                    }
+                    else {
+                        // Results are published in order, so a finished result waits for any ahead of it
+                        while (demand > 0 && !slots.isEmpty() && slots.peekFirst().done) {
+                            ready.add(slots.removeFirst().result);
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        }
+
+                        if (upstreamComplete && slots.isEmpty()) {
+                            terminated = true;
+                            complete = true;
+                        }
+                        else if (!upstreamComplete && subscription != null) {
+                            // Only ask for as many items as there is room for
+                            request = bufferSize - slots.size() - requested;
+                            if (request > 0) {
+                                requested += request;
+                            }
+                        }
+                    }
+                }
+
+                while (failure == null && running < parallelism && !waiting.isEmpty()) {
+                    starting.add(waiting.removeFirst());
+                    running++;
+                }
+            }
+
+            for (R result : ready) {
+                subscriber.onNext(result);
+            }
+            for (Slot<T, R> slot : starting) {
+                try {
+                    executor.execute(() -> process(slot));
+                } catch (RejectedExecutionException e) {
+                    finish(slot, null, e);
+                }
+            }
+            if (request > 0) {
+                subscription.request(request);
+            }
+            if (failure != null) {
+                if (cancelUpstream && subscription != null) {
+                    subscription.cancel();
+                }
+                subscriber.onError(failure);
+            }
+            else if (complete) {
+                subscriber.onComplete();
+            }
+        } while (work.decrementAndGet() != 0);
+    }
+
+    /**
+     * The subscription of the stage's subscriber
+     */
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("The number of results requested must be positive");
+                        cancelUpstreamOnError = true;
+                    }
+                }
+                else {
+                    demand += n;
+                    // Demand that overflows is treated as unbounded
+                    if (demand < 0) {
+                        demand = Long.MAX_VALUE;
+                    }
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            Flow.Subscription subscription;
+            synchronized (lock) {
+                if (cancelled || terminated) {
+                    return;
+                }
+                cancelled = true;
+                slots.clear();
+                waiting.clear();
+                subscription = upstream;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * An item's place in the order of results, holding the item until it has been worked on, then its result
+     * @param <T> the type of the item
+     * @param <R> the type of the result
+     */
+    private static final class Slot<T, R> {
+        private Slot(T item) {
+            this.item = item;
+        }
+
+        /**
+         * The item, or {@code null} once it has been worked on
+         */
+        private T item;
+
+        /**
+         * The result, once it is {@link #done}
+         */
+        private R result;
+
+        /**
+         * Whether the function has been applied to the item
+         */
+        private boolean done;
+    }
+
+    /**
+     * The function applied to each item
+     */
+    private final Function<? super T, ? extends R> function;
+
+    /**
+     * The executor the function is run on
+     */
+    private final Executor executor;
+
+    /**
+     * The most items the function is applied to at once
+     */
+    private final int parallelism;
+
+    /**
+     * The most items held at once
+     */
+    private final int bufferSize;
+
+    /**
+     * Guards every field below apart from {@link #work}
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The number of calls to {@link #drain()} that haven't been handled yet
+     */
+    private final AtomicInteger work = new AtomicInteger();
+
+    /**
+     * The items held, in the order they were received, whether they are waiting, being worked on or finished
+     */
+    private final ArrayDeque<Slot<T, R>> slots = new ArrayDeque<>();
+
+    /**
+     * The items that haven't been started yet, in the order they were received
+     */
+    private final ArrayDeque<Slot<T, R>> waiting = new ArrayDeque<>();
+
+    /**
+     * The subscription to the publisher of items, once there is one
+     */
+    private Flow.Subscription upstream;
+
+    /**
+     * The subscriber to the results, once there is one
+     */
+    private Flow.Subscriber<? super R> downstream;
+
+    /**
+     * Whether the subscriber's {@code onSubscribe} has returned, after which results can be published
+     */
+    private boolean subscribed;
+
+    /**
+     * The number of items requested from upstream that haven't arrived yet
+     */
+    private long requested;
+
+    /**
+     * The number of results requested by the subscriber that haven't been published yet
+     */
+    private long demand;
+
+    /**
+     * The number of items being worked on
+     */
+    private int running;
+
+    /**
+     * Whether upstream has finished, by completing or with an error
+     */
+    private boolean upstreamComplete;
+
+    /**
+     * The error to pass on, or {@code null}
+     */
+    private Throwable error;
+
+    /**
+     * Whether the {@link #error} came from this stage or its subscriber, so upstream should stop sending items
+     */
+    private boolean cancelUpstreamOnError;
+
+    /**
+     * Whether the subscriber has cancelled
+     */
+    private boolean cancelled;
+
+    /**
+     * Whether completion or an error has been passed on
+     */
+    private boolean terminated;
+}
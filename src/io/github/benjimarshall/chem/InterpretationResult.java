@@ -0,0 +1,93 @@
+package io.github.benjimarshall.chem;
+
+/**
+ * Result of interpreting some notation. An immutable {@code InterpretationResult} object holds either the interpreted
+ * value, or a message saying why the notation could not be interpreted, so that bad input can be handled without
+ * throwing an exception.
+ *
+ * @param <T> the type of the interpreted value
+ * @see Molecule#tryParse(String)
+ * @see Equation#tryBalance(String)
+ */
+public final class InterpretationResult<T> {
+    private InterpretationResult(T value, String message) {
+        this.value = value;
+        this.message = message;
+    }
+
+    /**
+     * Makes a successful {@code InterpretationResult} object
+     * @param value the interpreted value
+     * @param <T> the type of the interpreted value
+     * @return a successful {@code InterpretationResult} object holding the value
+     */
+    public static <T> InterpretationResult<T> success(T value) {
+        return new InterpretationResult<>(value, null);
+    }
+
+    /**
+     * Makes a failed {@code InterpretationResult} object
+     * @param message why the notation could not be interpreted
+     * @param <T> the type the interpreted value would have had
+     * @return a failed {@code InterpretationResult} object holding the message
+     */
+    public static <T> InterpretationResult<T> failure(String message) {
+        return new InterpretationResult<>(null, message);
+    }
+
+    /**
+     * Gets whether the notation was successfully interpreted
+     * @return whether the notation was successfully interpreted
+     */
+    public boolean isSuccessful() {
+        return message == null;
+    }
+
+    /**
+     * Gets the {@link #value}, if the notation was successfully interpreted
+     * @return the {@link #value}, or {@code null} if the notation could not be interpreted
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the {@link #message} saying why the notation could not be interpreted
+     * @return the {@link #message}, or {@code null} if the notation was successfully interpreted
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the {@link #value}, throwing an exception if the notation could not be interpreted
+     * @return the {@link #value}
+     * @throws NotationInterpretationException when the notation could not be interpreted. The exception does not
+     * carry a stack trace
+     */
+    public T getOrThrow() throws NotationInterpretationException {
+        if (message != null) {
+            throw new NotationInterpretationException(message, null, false, false);
+        }
+        return value;
+    }
+
+    /**
+     * Gets a {@code String} representation of the {@code InterpretationResult} object
+     * @return the {@link #value} as a string, or the {@link #message} if the notation could not be interpreted
+     */
+    @Override
+    public String toString() {
+        return isSuccessful() ? String.valueOf(value) : "Something went wrong: " + message;
+    }
+
+    /**
+     * The interpreted value, or {@code null} if the notation could not be interpreted
+     */
+    private final T value;
+
+    /**
+     * Why the notation could not be interpreted, or {@code null} if it was
+     */
+    private final String message;
+}
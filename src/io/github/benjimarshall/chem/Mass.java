@@ -2,28 +2,20 @@ package io.github.benjimarshall.chem;
 
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.MathContext;
-import java.util.HashMap;
 
 /**
- * Metric Mass. An immutable {@code Mass} object is a wrapper for the {@link BigDecimal} class with methods to convert
- * between metric units of mass
+ * Metric Mass. An immutable {@code Mass} object is a {@link Quantity} in grams with methods to convert between metric
+ * units of mass
  * @see MetricMassUnit
  */
-public class Mass {
-
-    private Mass() {
-
-    }
-
+public class Mass extends Quantity<Mass> {
     /**
      * Makes a {@code Mass} object from a {@code BigDecimal} mass, with grams as the assumed {@code MetricMassUnit}
      * @param mass a {@code BigDecimal} mass value
      */
     public Mass(BigDecimal mass) {
         // If no units are provided, assume grams so do nothing
-        this.mass = mass;
+        super(mass);
     }
 
     /**
@@ -32,116 +24,73 @@ public class Mass {
      * @param units a {@code MetricMassUnit} of the passed value
      */
     public Mass(BigDecimal mass , MetricMassUnit units) {
-        this(mass.multiply(power(BigDecimal.TEN, getSIExponentFromMassUnit(units))));
+        this(toBaseUnit(mass, units));
     }
 
     /**
      * Makes a {@code Mass} object from a {@code double} mass, with provided {@code MetricMassUnit}
-     * @param mass a {@code double} mass value
+     * @param mass a {@code double} mass value, held as a
+     * {@code double} unless the current {@link NumericPolicy} is exact
      * @param units a {@code MetricMassUnit} of the passed value
      */
     public Mass(double mass, MetricMassUnit units) {
-        this(BigDecimal.valueOf(mass), units);
+        super(mass, units);
     }
 
     /**
      * Makes a {@code Mass} object from a {@code double} mass, with grams as the assumed {@code MetricMassUnit}
-     * @param mass a {@code double} mass value
+     * @param mass a {@code double} mass value, held as a
+     * {@code double} unless the current {@link NumericPolicy} is exact
      */
     public Mass(double mass) {
         // If no units are provided, assume grams so do nothing
-        this(BigDecimal.valueOf(mass));
-    }
-
-    /**
-     * Add this {@code Mass} object to the {@code Mass} parameter, and return a new {@code Mass} object of the resultant
-     * value
-     * @param mass the {@code Mass} object to add to this object
-     * @return a new {@code Mass} object of the resultant value
-     */
-    public Mass add(Mass mass) {
-        return new Mass(this.mass.add(mass.getMassInGrams()));
+        super(mass);
     }
 
     /**
-     * Subtract the {@code Mass} parameter from this {@code Mass} object, and return a new {@code Mass} object of the
-     * resultant value
-     * @param mass the {@code Mass} object to subtract from this object
-     * @return a new {@code Mass} object of the resultant value
+     * Makes a new {@code Mass} object with a given value in grams
+     * @param value a {@code BigDecimal} mass value in grams
+     * @return a new {@code Mass} object
      */
-    public Mass subtract(Mass mass) {
-        return new Mass(this.mass.subtract(mass.getMassInGrams()));
-    }
-
-    /**
-     * Multiply this {@code Mass} object by the {@code Mass} parameter, and return a new {@code Mass} object of the
-     * resultant value
-     * @param mass the {@code Mass} object to multiply by this object
-     * @return a new {@code Mass} object of the resultant value
-     */
-    public Mass multiply(Mass mass) {
-        return new Mass(this.mass.multiply(mass.getMassInGrams()));
+    @Override
+    protected Mass make(BigDecimal value) {
+        return new Mass(value);
     }
 
     /**
-     * Divide this {@code Mass} object by the {@code Mass} parameter, and return a new {@code Mass} object of the
-     * resultant value
-     * @param mass the {@code Mass} object to divide this object by
-     * @return a new {@code Mass} object of the resultant value
+     * Makes a new {@code Mass} object with a given {@code double} value in grams
+     * @param value a {@code double} mass value in grams
+     * @return a new {@code Mass} object
      */
-    public Mass divide(Mass mass) {
-        return new Mass(this.mass.divide(mass.getMassInGrams(), MathContext.DECIMAL64));
+    @Override
+    protected Mass make(double value) {
+        return new Mass(value);
     }
 
     /**
-     * Gets the {@link #mass} of the {@code Mass} object in grams
-     * @return the {@link #mass} of the {@code Mass} object in grams
+     * Gets the value of the {@code Mass} object in grams
+     * @return the value of the {@code Mass} object in grams
      */
     public BigDecimal getMassInGrams() {
-        return this.mass;
+        return getValue();
     }
 
     /**
-     * Generates a {@code String} representation of the {@code Mass} object with appropriate units
+     * Generates a {@code String} representation of the {@code Mass} object with appropriate units, to 3 significant
+     * figures
      * @return a {@code String} representation of the {@code Mass} object with appropriate units
      */
     public String getMass() {
-        // Find engineering exponent
-        int exponent = -24;
-        BigDecimal newMass;
-        BigDecimal THOUSAND = new BigDecimal(BigInteger.valueOf(1000));
-        BigDecimal ONE = new BigDecimal(BigInteger.valueOf(1));
-
-        newMass = mass.divide(power(BigDecimal.TEN, exponent), MathContext.DECIMAL64);
-        // Start with mass e-24 (which should yield a huge number), eg. 1 == 10000000000E-10
-        // So if the number is less than 1, it must be less than yg, so do nothing,
-        // Otherwise, make the exponent bigger to find a more sensible newMass
-        if ((newMass.abs().compareTo(ONE) == 1)) {
-            // If the exponent is bigger than 24, then it is in Yg and beyond this class' capabilities
-            while (exponent < 24) {
-                // If the newMass is less than a thousand, or (-1000 which is absolute value'd out), then the number
-                // is now in Engineering form.
-                // if (newMass.abs() < 1000)
-                if (newMass.abs().compareTo(THOUSAND) == -1) {
-                    break;
-                }
-
-                // Find the next mass
-                exponent += 3;
-                newMass = mass.divide(power(BigDecimal.TEN, exponent), MathContext.DECIMAL64);
-            }
-        }
-
-        return newMass.round(new MathContext(3)).toEngineeringString() +  SI_EXPONENT_UNITS.get(exponent).name();
+        return QuantityFormatter.DEFAULT.format(this);
     }
 
     /**
-     * Generates the {@code BigDecimal} object with the value of the {@link #mass} with the given units
+     * Generates the {@code BigDecimal} object with the value of the mass with the given units
      * @param targetUnit the desired units for the value
      * @return the {@code BigDecimal} object with the value of the mass with the given units
      */
     public BigDecimal getMass(MetricMassUnit targetUnit) {
-        return mass.divide(power(BigDecimal.TEN, SI_UNIT_EXPONENTS.get(targetUnit)), MathContext.DECIMAL64);
+        return getValue(targetUnit);
     }
 
     /**
@@ -150,14 +99,10 @@ public class Mass {
      * @param base base of the expression to be evaluated
      * @param n exponent of the expression to be evaluated
      * @return a {@code BigDecimal} object with the value of the base to the power of n
+     * @see Quantity#power(BigDecimal, int)
      */
     public static BigDecimal power(BigDecimal base, int n) {
-        if (n < 0) {
-            return BigDecimal.ONE.divide(base.pow(n * -1), MathContext.DECIMAL128);
-        }
-        else {
-            return base.pow(n);
-        }
+        return Quantity.power(base, n);
     }
 
     /**
@@ -173,102 +118,166 @@ public class Mass {
     /**
      * Metric Units of Mass
      */
-    public enum MetricMassUnit {
+    public enum MetricMassUnit implements MetricUnit {
         /**
          * Yottagram 10<sup>24</sup>g
          */
-        Yg,
+        Yg(24),
 
         /**
          * Zettagram 10<sup>21</sup>g
          */
-        Zg,
+        Zg(21),
 
         /**
          * Exagram 10<sup>18</sup>g
          */
-        Eg,
+        Eg(18),
 
         /**
          * Petagram 10<sup>15</sup>g
          */
-        Pg,
+        Pg(15),
 
         /**
          * Teragram 10<sup>12</sup>g
          */
-        Tg,
+        Tg(12),
 
         /**
          * Gigagram 10<sup>9</sup>g
          */
-        Gg,
+        Gg(9),
 
         /**
          * Megagram 10<sup>6</sup>g
          */
-        Mg,
+        Mg(6),
 
         /**
          * Tonne 10<sup>6</sup>g
          */
-        tonne,
-
+        tonne(6),
 
         /**
          * Metric tonne 10<sup>6</sup>g
          */
-        mt,
+        mt(6),
 
         /**
          * Kilogram 10<sup>3</sup>g
          */
-        kg,
+        kg(3),
 
         /**
          * Gram 10<sup>0</sup>g
          */
-        g,
+        g(0),
 
         /**
          * Milligram 10<sup>-3</sup>g
          */
-        mg,
+        mg(-3),
 
         /**
          * Microgram 10<sup>-6</sup>g
          */
-        µg,
+        µg(-6),
 
         /**
          * Nanogram 10<sup>-9</sup>g
          */
-        ng,
+        ng(-9),
 
         /**
          * Picogram 10<sup>-12</sup>g
          */
-        pg,
+        pg(-12),
 
         /**
          * Femtogram 10<sup>-15</sup>g
          */
-        fg,
+        fg(-15),
 
         /**
          * Attogram 10<sup>-18</sup>g
          */
-        ag,
+        ag(-18),
 
         /**
          * Zeptogram 10<sup>-21</sup>g
          */
-        zg,
+        zg(-21),
 
         /**
          * Yoctogram 10<sup>-24</sup>g
          */
-        yg
+        yg(-24);
+
+        MetricMassUnit(int exponent) {
+            this.exponent = exponent;
+            this.factor = Double.parseDouble("1e" + exponent);
+        }
+
+        /**
+         * Gets the exponent for the base 10, relative to grams
+         * @return the exponent for the base 10, relative to grams
+         */
+        @Override
+        public int getExponent() {
+            return exponent;
+        }
+
+        /**
+         * Gets the number of grams in one of this unit
+         * @return the number of grams in one of this unit
+         */
+        @Override
+        public double getFactor() {
+            return factor;
+        }
+
+        /**
+         * Gets the symbol of the unit, which is its name
+         * @return the symbol of the unit
+         */
+        @Override
+        public String getSymbol() {
+            return name();
+        }
+
+        /**
+         * Gets the preferred {@code MetricMassUnit} for an engineering exponent, from 10<sup>-24</sup>g to
+         * 10<sup>24</sup>g
+         * @param exponent a multiple of 3, from -24 to 24
+         * @return the preferred {@code MetricMassUnit} for the exponent
+         */
+        public static MetricMassUnit fromExponent(int exponent) {
+            return ENGINEERING_UNITS[(exponent + 24) / 3];
+        }
+
+        /**
+         * The exponent for the base 10, relative to grams
+         */
+        private final int exponent;
+
+        /**
+         * The number of grams in one of this unit
+         */
+        private final double factor;
+
+        /**
+         * The preferred unit for each engineering exponent, from 10<sup>-24</sup>g upwards
+         */
+        private static final MetricMassUnit[] ENGINEERING_UNITS = new MetricMassUnit[17];
+        static {
+            for (MetricMassUnit unit : values()) {
+                // The first unit listed for an exponent is preferred, so megagrams are preferred to tonnes
+                if (ENGINEERING_UNITS[(unit.exponent + 24) / 3] == null) {
+                    ENGINEERING_UNITS[(unit.exponent + 24) / 3] = unit;
+                }
+            }
+        }
     }
 
     /**
@@ -277,48 +286,6 @@ public class Mass {
      * @return the exponent for the base 10, relative to grams
      */
     public static int getSIExponentFromMassUnit(MetricMassUnit unit) {
-        return SI_UNIT_EXPONENTS.get(unit);
+        return unit.getExponent();
     }
-
-    /**
-     * A map of exponents with {@code MetricMassUnit} items as keys
-     */
-    protected static HashMap<MetricMassUnit, Integer> SI_UNIT_EXPONENTS = new HashMap<>();
-
-    /**
-     * A map of {@code MetricMassUnit} items of with exponents as keys
-     */
-    protected static HashMap<Integer, MetricMassUnit> SI_EXPONENT_UNITS = new HashMap<>();
-    static {
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Yg, 24);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Zg, 21);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Eg, 18);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Pg, 15);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Tg, 12);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Gg, 9);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.tonne, 6);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.mt, 6);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.Mg, 6);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.kg, 3);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.g, 0);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.mg, -3);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.µg, -6);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.ng, -9);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.pg, -12);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.fg, -15);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.ag, -18);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.zg, -21);
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.yg, -24);
-
-        for (HashMap.Entry<MetricMassUnit, Integer> entry : SI_UNIT_EXPONENTS.entrySet()) {
-            SI_EXPONENT_UNITS.put(entry.getValue(), entry.getKey());
-        }
-        SI_UNIT_EXPONENTS.put(MetricMassUnit.mt, 6);
-    }
-
-    // Mass in g
-    /**
-     * A {@code BigDecimal} object with the value of the mass in grams
-     */
-    protected BigDecimal mass;
 }
@@ -0,0 +1,28 @@
+package io.github.benjimarshall.chem;
+
+/**
+ * Metric unit. A {@code MetricUnit} is a power of ten multiple of the base unit of a {@link Quantity}, such as the
+ * kilogram for a {@link Mass} in grams.
+ *
+ * @see Mass.MetricMassUnit
+ * @see Volume.MetricVolumeUnit
+ */
+public interface MetricUnit {
+    /**
+     * Gets the exponent for the base 10, relative to the base unit
+     * @return the exponent for the base 10, relative to the base unit
+     */
+    int getExponent();
+
+    /**
+     * Gets the number of base units in one of this unit, 10 to the power of {@link #getExponent()}
+     * @return the number of base units in one of this unit
+     */
+    double getFactor();
+
+    /**
+     * Gets the symbol of the unit, as written after a value
+     * @return the symbol of the unit
+     */
+    String getSymbol();
+}
@@ -0,0 +1,383 @@
+package io.github.benjimarshall.chem;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built in metrics registry for equation balancing. Records how long each {@link Stage} of interpreting and balancing
+ * an equation takes, which {@link Strategy} balanced each equation, how many nodes the brute force balancer visits,
+ * and the hits and misses of named caches.
+ * <p>
+ * Metrics are off by default, and while they are off each instrumented point costs one read of a flag. They can be
+ * turned on with {@link #setEnabled(boolean)}, or from the start with the system property {@code chem.metrics=true}.
+ * Everything is recorded in thread safe counters, so metrics can be read while equations are being balanced on other
+ * threads, although a reading taken then isn't an atomic snapshot.
+ */
+public final class Metrics {
+    private Metrics() {
+
+    }
+
+    /**
+     * A stage of interpreting and balancing an equation. Stages after {@link #VALIDATION} run in order, except that
+     * {@link #SIMULTANEOUS} time is also part of {@link #SUBSTITUTION} time, and {@link #EQUATION} covers all of them
+     */
+    public enum Stage {
+        /**
+         * Interpreting and balancing a whole equation
+         */
+        EQUATION,
+        /**
+         * Matching the equation against {@link Equation#EQUATION_REGEX}
+         */
+        VALIDATION,
+        /**
+         * Interpreting the molecules on each side of the equation
+         */
+        PARSING,
+        /**
+         * Checking that both sides have the same elements, and whether the equation is already balanced
+         */
+        BALANCE_CHECK,
+        /**
+         * Setting up and solving an algebraic equation for each element
+         */
+        SUBSTITUTION,
+        /**
+         * Solving pairs of algebraic equations simultaneously, as part of {@link #SUBSTITUTION}
+         */
+        SIMULTANEOUS,
+        /**
+         * Guessing coefficients with the brute force balancer
+         */
+        BRUTE_FORCE
+    }
+
+    /**
+     * How an equation was balanced
+     */
+    public enum Strategy {
+        /**
+         * The equation was balanced as written
+         */
+        ALREADY_BALANCED,
+        /**
+         * The equation was balanced by solving an algebraic equation for each element
+         */
+        SUBSTITUTION,
+        /**
+         * The equation was balanced by the brute force balancer
+         */
+        BRUTE_FORCE,
+        /**
+         * No strategy could balance the equation
+         */
+        FAILED
+    }
+
+    /**
+     * Distribution of recorded values, such as nanoseconds or node counts. Values are counted in buckets by powers of
+     * two, so percentiles are accurate to within a factor of two
+     */
+    public static final class Histogram {
+        private Histogram() {
+
+        }
+
+        private void record(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            total.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+
+        /**
+         * Gets the number of values recorded
+         * @return the number of values recorded
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the sum of every value recorded
+         * @return the sum of every value recorded
+         */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * Gets the mean of the values recorded
+         * @return the mean of the values recorded, or 0 if none have been
+         */
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getTotal() / count;
+        }
+
+        /**
+         * Gets the largest value recorded
+         * @return the largest value recorded, or 0 if none have been
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Gets an upper bound on a percentile of the values recorded
+         * @param percentile the percentile, from 0 to 100
+         * @return the top of the bucket holding the percentile, which is at most twice the true value, or 0 if no
+         * values have been recorded
+         * @throws IllegalArgumentException when the percentile isn't between 0 and 100
+         */
+        public long getPercentile(double percentile) throws IllegalArgumentException {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentiles must be between 0 and 100");
+            }
+            long count = getCount();
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(1, rank) && seen > 0) {
+                    return i == 0 ? 0 : Math.min(getMax(), i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * The number of values recorded in each bucket, where bucket {@code i} holds values below {@code 2^i} and at
+         * least {@code 2^(i-1)}
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(65);
+
+        /**
+         * The number of values recorded
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * The sum of every value recorded
+         */
+        private final LongAdder total = new LongAdder();
+
+        /**
+         * The largest value recorded
+         */
+        private final AtomicLong max = new AtomicLong();
+    }
+
+    /**
+     * Checks whether metrics are being recorded
+     * @return whether metrics are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording metrics. Metrics already recorded are kept
+     * @param enabled whether to record metrics
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Clears every metric recorded so far
+     */
+    public static void reset() {
+        for (Histogram histogram : STAGE_TIMES) {
+            histogram.reset();
+        }
+        for (LongAdder counter : STRATEGY_COUNTS) {
+            counter.reset();
+        }
+        BRUTE_FORCE_NODES.reset();
+        CACHES.clear();
+    }
+
+    /**
+     * Starts timing a stage
+     * @return the time the stage started, to pass to {@link #stop(Stage, long)}
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Finishes timing a stage
+     * @param stage the stage being timed
+     * @param start the time the stage started, from {@link #start()} or an earlier call to this method
+     * @return the time the stage finished, so the next stage can be timed from it
+     */
+    public static long stop(Stage stage, long start) {
+        if (start == NOT_TIMED || !enabled) {
+            return NOT_TIMED;
+        }
+        long now = System.nanoTime();
+        STAGE_TIMES[stage.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * Counts an equation balanced, or not, by a strategy
+     * @param strategy how the equation was balanced
+     */
+    public static void count(Strategy strategy) {
+        if (enabled) {
+            STRATEGY_COUNTS[strategy.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records the number of nodes the brute force balancer visited in one run
+     * @param nodes the number of sets of coefficients tried
+     */
+    public static void countBruteForceNodes(long nodes) {
+        if (enabled) {
+            BRUTE_FORCE_NODES.record(nodes);
+        }
+    }
+
+    /**
+     * Counts a lookup in a named cache
+     * @param cache the name of the cache, such as {@code repl.molecules}
+     * @param hit whether the lookup found a cached value
+     */
+    public static void countCacheLookup(String cache, boolean hit) {
+        if (enabled) {
+            CACHES.computeIfAbsent(cache, name -> new LongAdder[] {new LongAdder(), new LongAdder()})[hit ? 0 : 1]
+                    .increment();
+        }
+    }
+
+    /**
+     * Gets the distribution of times taken by a stage, in nanoseconds
+     * @param stage the stage
+     * @return the distribution of times taken by the stage, in nanoseconds
+     */
+    public static Histogram getStageTimes(Stage stage) {
+        return STAGE_TIMES[stage.ordinal()];
+    }
+
+    /**
+     * Gets the number of equations balanced, or not, by a strategy
+     * @param strategy the strategy
+     * @return the number of equations balanced, or not, by the strategy
+     */
+    public static long getStrategyCount(Strategy strategy) {
+        return STRATEGY_COUNTS[strategy.ordinal()].sum();
+    }
+
+    /**
+     * Gets the distribution of the number of nodes visited by each run of the brute force balancer
+     * @return the distribution of the number of nodes visited by each run of the brute force balancer
+     */
+    public static Histogram getBruteForceNodes() {
+        return BRUTE_FORCE_NODES;
+    }
+
+    /**
+     * Gets the hits and misses of every cache that has been looked up in
+     * @return the number of hits and the number of misses of each cache, by name, in name order
+     */
+    public static TreeMap<String, long[]> getCacheLookups() {
+        TreeMap<String, long[]> lookups = new TreeMap<>();
+        for (Map.Entry<String, LongAdder[]> cache : CACHES.entrySet()) {
+            lookups.put(cache.getKey(), new long[] {cache.getValue()[0].sum(), cache.getValue()[1].sum()});
+        }
+        return lookups;
+    }
+
+    /**
+     * Makes a plain text report of every metric
+     * @return a plain text report, with a line for each stage, strategy and cache
+     */
+    public static String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("metrics %s%n", enabled ? "enabled" : "disabled"));
+        builder.append(String.format("%-15s %10s %12s %12s %12s %12s%n",
+                "stage", "count", "mean us", "p50 us", "p99 us", "max us"));
+        for (Stage stage : Stage.values()) {
+            Histogram times = getStageTimes(stage);
+            builder.append(String.format("%-15s %10d %12.1f %12.1f %12.1f %12.1f%n",
+                    stage.name().toLowerCase(Locale.ROOT), times.getCount(), times.getMean() / 1e3,
+                    times.getPercentile(50) / 1e3, times.getPercentile(99) / 1e3, times.getMax() / 1e3));
+        }
+
+        builder.append("strategies");
+        for (Strategy strategy : Strategy.values()) {
+            builder.append(' ').append(strategy.name().toLowerCase(Locale.ROOT)).append('=');
+            builder.append(getStrategyCount(strategy));
+        }
+
+        Histogram nodes = getBruteForceNodes();
+        builder.append(String.format("%nbrute force runs=%d nodes mean=%.1f p99=%d max=%d%n", nodes.getCount(),
+                nodes.getMean(), nodes.getPercentile(99), nodes.getMax()));
+
+        for (Map.Entry<String, long[]> cache : getCacheLookups().entrySet()) {
+            long hits = cache.getValue()[0];
+            long misses = cache.getValue()[1];
+            builder.append(String.format("cache %s hits=%d misses=%d hit rate=%.1f%%%n", cache.getKey(), hits, misses,
+                    hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The start time returned when metrics are off, so that the matching stop records nothing
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * The times taken by each {@link Stage}, by ordinal
+     */
+    private static final Histogram[] STAGE_TIMES = new Histogram[Stage.values().length];
+
+    /**
+     * The number of equations balanced by each {@link Strategy}, by ordinal
+     */
+    private static final LongAdder[] STRATEGY_COUNTS = new LongAdder[Strategy.values().length];
+
+    static {
+        for (int i = 0; i < STAGE_TIMES.length; i++) {
+            STAGE_TIMES[i] = new Histogram();
+        }
+        for (int i = 0; i < STRATEGY_COUNTS.length; i++) {
+            STRATEGY_COUNTS[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * The number of nodes visited by each run of the brute force balancer
+     */
+    private static final Histogram BRUTE_FORCE_NODES = new Histogram();
+
+    /**
+     * The hits and misses of each named cache
+     */
+    private static final ConcurrentHashMap<String, LongAdder[]> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * Whether metrics are being recorded
+     */
+    private static volatile boolean enabled = Boolean.getBoolean("chem.metrics");
+}
@@ -0,0 +1,324 @@
+package io.github.benjimarshall.chem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Mixture of solutes in a volume of solvent. An immutable {@code Mixture} object holds the number of moles of each
+ * species as one {@code double[]}, indexed by species, along with the total volume, so that mixing and diluting are
+ * a few array operations rather than new {@link Solution} objects. Solutions are only made when asked for.
+ * <p>
+ * Amounts and volumes are always {@code double}s, whatever the current {@link NumericPolicy}, so a long series of
+ * steps is only rounded by {@code double} arithmetic, rather than to a fixed number of significant figures at each step
+ * as {@code Solution} is. {@link #toSolution(int)} gives {@code BigDecimal} quantities again when they are needed.
+ *
+ * @see SerialDilution
+ * @see Solution
+ */
+public final class Mixture {
+    private Mixture(Molecule[] species, double[] moles, double volume) {
+        this.species = species;
+        this.moles = moles;
+        this.volume = volume;
+    }
+
+    /**
+     * Makes a {@code Mixture} object of one or more solutions mixed together
+     * @param solutions the solutions to mix
+     * @return a {@code Mixture} object of the solutions
+     * @throws IllegalArgumentException when a volume is negative or not finite
+     */
+    public static Mixture of(Solution... solutions) throws IllegalArgumentException {
+        HashMap<Molecule, Integer> index = new HashMap<>();
+        List<Molecule> species = new ArrayList<>();
+        List<Double> moles = new ArrayList<>();
+        double volume = 0;
+
+        for (Solution solution : solutions) {
+            Molecule molecule = solution.getMolecule();
+            Integer i = index.get(molecule);
+            if (i == null) {
+                index.put(molecule, species.size());
+                species.add(molecule);
+                moles.add(solution.getMoles().doubleValue());
+            }
+            else {
+                moles.set(i, moles.get(i) + solution.getMoles().doubleValue());
+            }
+            double solutionVolume = solution.getVolume().doubleValue();
+            checkVolume(solutionVolume);
+            volume += solutionVolume;
+        }
+        checkVolume(volume);
+
+        double[] molesArray = new double[moles.size()];
+        for (int i = 0; i < molesArray.length; i++) {
+            molesArray[i] = moles.get(i);
+        }
+        return new Mixture(species.toArray(new Molecule[0]), molesArray, volume);
+    }
+
+    /**
+     * Makes a {@code Mixture} object of pure solvent, with no species
+     * @param volume the volume of solvent in litres
+     * @return a {@code Mixture} object of pure solvent
+     * @throws IllegalArgumentException when the volume is negative or not finite
+     */
+    public static Mixture solvent(double volume) throws IllegalArgumentException {
+        checkVolume(volume);
+        return new Mixture(new Molecule[0], new double[0], volume);
+    }
+
+    /**
+     * Mixes this mixture with another
+     * @param other the mixture to mix with this one
+     * @return a new {@code Mixture} object of both mixtures
+     */
+    public Mixture mix(Mixture other) {
+        // Species are matched by index when both mixtures share the same species, which is the common case of
+        // mixing parts of the same stock
+        if (sameSpecies(other)) {
+            double[] result = new double[moles.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = moles[i] + other.moles[i];
+            }
+            return new Mixture(species, result, volume + other.volume);
+        }
+
+        HashMap<Molecule, Integer> index = new HashMap<>();
+        List<Molecule> combinedSpecies = new ArrayList<>();
+        for (Molecule molecule : species) {
+            index.put(molecule, combinedSpecies.size());
+            combinedSpecies.add(molecule);
+        }
+        for (Molecule molecule : other.species) {
+            if (!index.containsKey(molecule)) {
+                index.put(molecule, combinedSpecies.size());
+                combinedSpecies.add(molecule);
+            }
+        }
+
+        double[] result = new double[combinedSpecies.size()];
+        System.arraycopy(moles, 0, result, 0, moles.length);
+        for (int i = 0; i < other.species.length; i++) {
+            result[index.get(other.species[i])] += other.moles[i];
+        }
+        return new Mixture(combinedSpecies.toArray(new Molecule[0]), result, volume + other.volume);
+    }
+
+    /**
+     * Adds solvent to the mixture
+     * @param solventVolume the volume of solvent to add in litres
+     * @return a new {@code Mixture} object with the solvent added
+     * @throws IllegalArgumentException when the volume is negative or not finite
+     */
+    public Mixture addSolvent(double solventVolume) throws IllegalArgumentException {
+        checkVolume(solventVolume);
+        checkVolume(volume + solventVolume);
+        return new Mixture(species, moles, volume + solventVolume);
+    }
+
+    /**
+     * Dilutes the mixture by adding solvent up to a total volume
+     * @param totalVolume the volume of the diluted mixture in litres
+     * @return a new {@code Mixture} object of the diluted mixture
+     * @throws IllegalArgumentException when the total volume is not finite, or is less than the volume of the mixture
+     */
+    public Mixture diluteTo(double totalVolume) throws IllegalArgumentException {
+        checkVolume(totalVolume);
+        if (totalVolume < volume) {
+            throw new IllegalArgumentException("Can't dilute to less than the volume of the mixture");
+        }
+        return new Mixture(species, moles, totalVolume);
+    }
+
+    /**
+     * Takes a part of the mixture, with the same concentrations
+     * @param partVolume the volume to take in litres
+     * @return a new {@code Mixture} object of the part taken
+     * @throws IllegalArgumentException when the part is negative, not a number, or more than the volume of the mixture
+     */
+    public Mixture aliquot(double partVolume) throws IllegalArgumentException {
+        return new Mixture(species, scaled(partVolume), partVolume);
+    }
+
+    /**
+     * Takes a part of the mixture away, leaving the rest
+     * @param partVolume the volume to take away in litres
+     * @return a new {@code Mixture} object of what is left
+     * @throws IllegalArgumentException when the part is negative, not a number, or more than the volume of the mixture
+     */
+    public Mixture remove(double partVolume) throws IllegalArgumentException {
+        return new Mixture(species, scaled(volume - partVolume), volume - partVolume);
+    }
+
+    /**
+     * Gets the index of a species in the mixture
+     * @param molecule the species to find
+     * @return the index of the species, or -1 if it isn't in the mixture
+     */
+    public int indexOf(Molecule molecule) {
+        for (int i = 0; i < species.length; i++) {
+            if (species[i].equals(molecule)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of moles of a species in the mixture
+     * @param molecule the species
+     * @return the number of moles of the species, or 0 if it isn't in the mixture
+     */
+    public double getMoles(Molecule molecule) {
+        int i = indexOf(molecule);
+        return i < 0 ? 0 : moles[i];
+    }
+
+    /**
+     * Gets the concentration of a species in the mixture
+     * @param molecule the species
+     * @return the concentration of the species in moldm<sup>-3</sup>, or 0 if it isn't in the mixture
+     */
+    public double getConcentration(Molecule molecule) {
+        return getMoles(molecule) / volume;
+    }
+
+    /**
+     * Gets the concentration of each species in the mixture, in the order of {@link #getSpecies(int)}
+     * @return the concentration of each species in moldm<sup>-3</sup>
+     */
+    public double[] getConcentrations() {
+        double[] result = new double[moles.length];
+        double inverseVolume = 1 / volume;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moles[i] * inverseVolume;
+        }
+        return result;
+    }
+
+    /**
+     * Gets a species of the mixture
+     * @param index the index of the species
+     * @return the species
+     */
+    public Molecule getSpecies(int index) {
+        return species[index];
+    }
+
+    /**
+     * Gets the number of species in the mixture
+     * @return the number of species in the mixture
+     */
+    public int getSpeciesCount() {
+        return species.length;
+    }
+
+    /**
+     * Gets the {@link #volume} of the mixture in litres
+     * @return the {@link #volume} of the mixture in litres
+     */
+    public double getVolume() {
+        return volume;
+    }
+
+    /**
+     * Makes a {@code Solution} object of one species of the mixture, in the whole volume of the mixture
+     * @param index the index of the species
+     * @return a {@code Solution} object of the species
+     */
+    public Solution toSolution(int index) {
+        return new Solution(species[index], new Mole(moles[index]), new Volume(volume));
+    }
+
+    /**
+     * Makes a {@code Solution} object of each species of the mixture, in the whole volume of the mixture
+     * @return a {@code Solution} object of each species
+     */
+    public List<Solution> toSolutions() {
+        List<Solution> solutions = new ArrayList<>(species.length);
+        for (int i = 0; i < species.length; i++) {
+            solutions.add(toSolution(i));
+        }
+        return solutions;
+    }
+
+    /**
+     * Generates a {@code String} representation of the {@code Mixture} object
+     * @return a {@code String} representation of the {@code Mixture} object
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < species.length; i++) {
+            if (i > 0) {
+                builder.append(" + ");
+            }
+            QuantityFormatter.DEFAULT.append(builder, new Mole(moles[i]));
+            builder.append(" of ").append(species[i]);
+        }
+        return builder.append(" in ").append(volume).append(" dm3").toString();
+    }
+
+    /**
+     * Makes a mixture of the same species with different amounts, for {@link SerialDilution}
+     * @param newMoles the moles of every species
+     * @param newVolume the total volume in litres
+     * @return a new {@code Mixture} object of the same species
+     */
+    Mixture withAmounts(double[] newMoles, double newVolume) {
+        return new Mixture(species, newMoles, newVolume);
+    }
+
+    private boolean sameSpecies(Mixture other) {
+        if (other.species == species) {
+            return true;
+        }
+        if (other.species.length != species.length) {
+            return false;
+        }
+        for (int i = 0; i < species.length; i++) {
+            if (!species[i].equals(other.species[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double[] scaled(double partVolume) {
+        // Written so that NaN fails the comparison
+        if (!(partVolume >= 0 && partVolume <= volume)) {
+            throw new IllegalArgumentException("Volume must be between 0 and the volume of the mixture");
+        }
+        double fraction = partVolume / volume;
+        double[] result = new double[moles.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moles[i] * fraction;
+        }
+        return result;
+    }
+
+    private static void checkVolume(double volume) {
+        // Written so that NaN fails the comparison
+        if (!(volume >= 0) || Double.isInfinite(volume)) {
+            throw new IllegalArgumentException("Volumes must be finite and not negative");
+        }
+    }
+
+    /**
+     * The species in the mixture
+     */
+    private final Molecule[] species;
+
+    /**
+     * The number of moles of each species in the mixture
+     */
+    private final double[] moles;
+
+    /**
+     * The total volume of the mixture in litres
+     */
+    private final double volume;
+}
@@ -1,106 +1,77 @@
 package io.github.benjimarshall.chem;
 
 import java.math.BigDecimal;
-import java.math.MathContext;
 
 /**
- * Moles of particles. An immutable {@code Mole} object is a wrapper for the {@link BigDecimal} class with a method to 
- * convert between moles and number of particles
+ * Moles of particles. An immutable {@code Mole} object is a {@link Quantity} with a method to convert between moles and
+ * number of particles
  */
-public class Mole {
-    private Mole() {
-
-    }
-
+public class Mole extends Quantity<Mole> {
     /**
      * Makes a {@code Mole} object from a {@code BigDecimal} quantity
      * @param quantity a {@code BigDecimal} quantity
      */
     public Mole(BigDecimal quantity) {
-        this.quantity = quantity;
+        super(quantity);
     }
 
     /**
      * Makes a {@code Mole} object from a {@code double} quantity
-     * @param quantity a {@code double} quantity
+     * @param quantity a {@code double} quantity, held as a {@code double} unless the current {@link NumericPolicy}
+     * is exact
      */
     public Mole(double quantity) {
-        this(BigDecimal.valueOf(quantity));
-    }
-
-    /**
-     * Add this {@code mole} object to the {@code mole} parameter, and return a new {@code mole} object of the resultant
-     * value
-     * @param mole the {@code mole} object to add to this object
-     * @return a new {@code mole} object of the resultant value
-     */
-    public Mole add(Mole mole) {
-        return new Mole(this.quantity.add(mole.getQuantity()));
-    }
-
-    /**
-     * Subtract the {@code Mole} parameter from this {@code Mole} object, and return a new {@code Mole} object of the
-     * resultant value
-     * @param mole the {@code Mole} object to subtract from this object
-     * @return a new {@code Mole} object of the resultant value
-     */
-    public Mole subtract(Mole mole) {
-        return new Mole(this.quantity.subtract(mole.getQuantity()));
+        super(quantity);
     }
 
     /**
-     * Multiply this {@code Mole} object by the {@code Mole} parameter, and return a new {@code Mole} object of the
-     * resultant value
-     * @param mole the {@code Mole} object to multiply by this object
-     * @return a new {@code Mole} object of the resultant value
+     * Makes a new {@code Mole} object with a given quantity
+     * @param value a {@code BigDecimal} quantity
+     * @return a new {@code Mole} object
      */
-    public Mole multiply(Mole mole) {
-        return new Mole(this.quantity.multiply(mole.getQuantity()));
+    @Override
+    protected Mole make(BigDecimal value) {
+        return new Mole(value);
     }
 
     /**
-     * Divide this {@code Mole} object by the {@code Mole} parameter, and return a new {@code Mole} object of the
-     * resultant value
-     * @param mole the {@code Mole} object to divide this object by
-     * @return a new {@code Mole} object of the resultant value
+     * Makes a new {@code Mole} object with a given {@code double} value in moles
+     * @param value a {@code double} quantity value in moles
+     * @return a new {@code Mole} object
      */
-    public Mole divide(Mole mole) {
-        return new Mole(this.quantity.divide(mole.getQuantity(), MathContext.DECIMAL64));
+    @Override
+    protected Mole make(double value) {
+        return new Mole(value);
     }
 
     /**
-     * Gets the {@link #quantity} of the {@code Mole} object
-     * @return the {@link #quantity} of the {@code Mole} object
+     * Gets the quantity of the {@code Mole} object
+     * @return the quantity of the {@code Mole} object
      */
     public BigDecimal getQuantity() {
-        return quantity;
+        return getValue();
     }
 
 
     /**
-     * Gets a {@code String} representation of this {@code Mole} object. It is the {@link #quantity} with the units
-     * "mol" appended
-     * @return the {@link #quantity} with the units "mol" appended
+     * Gets a {@code String} representation of this {@code Mole} object. It is the quantity with the units "mol"
+     * appended
+     * @return the quantity with the units "mol" appended
      */
     @Override
     public String toString() {
-        return this.quantity.round(new MathContext(3)).toEngineeringString() + "mol";
+        return QuantityFormatter.DEFAULT.format(this);
     }
 
     /**
-     * Gets the number of molecules in this {@code Mole} object. This is found by multiplying {@link #quantity} by the
+     * Gets the number of molecules in this {@code Mole} object. This is found by multiplying the quantity by the
      * {@link #AVOGADRO_CONST}
      * @return the number of molecules in this {@code Mole} object.
      */
     public BigDecimal getNumberofMolecules() {
-        return AVOGADRO_CONST.multiply(this.quantity);
+        return AVOGADRO_CONST.multiply(getValue());
     }
 
-    /**
-     * The number of moles this {@code Mole} object contains
-     */
-    protected BigDecimal quantity;
-
     /**
      * The Avogadro constant
      */
@@ -3,60 +3,119 @@ package io.github.benjimarshall.chem;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Chemical Molecule. A {@code Molecule} object consists of its constituent {@code Element} objects, their ratios,
  * and the {@code Molecule} object's relative formula mass
+ * <p>
+ * {@code Molecule} objects are immutable: every field is final and the element map can't be modified, so a molecule
+ * can be shared between threads, and kept in caches, without copying or locking.
  *
  * @author Benji Marshall
  * @since 2016-2-4
  */
 public class Molecule {
-    private Molecule() {
-
-    }
-
     /**
      * Make a {@code Molecule} object using a string representation of a formula
      * @param formula written representation of the formula (eg. {@code HNO3})
      * @throws NotationInterpretationException when the string cannot be interpreted as a molecule
      */
     public Molecule(String formula) throws NotationInterpretationException {
+        this(tryParse(formula).getOrThrow());
+    }
+
+    /**
+     * Makes a {@code Molecule} object from its interpreted parts
+     * @param formula written representation of the formula
+     * @param elementMap the number of atoms of each element, which the {@code Molecule} object takes ownership of
+     * @param relativeFormulaMass the relative formula mass
+     * @param empiricalFormula the empirical formula
+     */
+    private Molecule(String formula, HashMap<Element, Integer> elementMap, BigDecimal relativeFormulaMass,
+                     String empiricalFormula) {
+        this.formula = formula;
+        this.elementMap = Collections.unmodifiableMap(elementMap);
+        this.relativeFormulaMass = relativeFormulaMass;
+        this.relativeFormulaMassAsDouble = relativeFormulaMass.doubleValue();
+        this.empiricalFormula = empiricalFormula;
+    }
+
+    /**
+     * Attempts to make a {@code Molecule} object using a string representation of a formula, without throwing an
+     * exception if the formula cannot be interpreted
+     * @param formula written representation of the formula (eg. {@code HNO3})
+     * @return the {@code Molecule} object, or a message saying why the formula could not be interpreted
+     */
+    public static InterpretationResult<Molecule> tryParse(String formula) {
+        FlightRecorderEvents.MoleculeParse event = new FlightRecorderEvents.MoleculeParse();
+        event.begin();
+        long slowStart = SlowOperationLog.start();
+        InterpretationResult<Molecule> molecule = interpretFormula(formula);
+        SlowOperationLog.record(SlowOperationLog.Kind.MOLECULE, formula, null, 0, slowStart);
+
+        // Only fill in the event if a flight recording is being made
+        if (event.shouldCommit()) {
+            event.formula = formula;
+            event.successful = molecule.isSuccessful();
+            event.problem = molecule.getMessage();
+            event.elements = molecule.isSuccessful() ? molecule.getValue().getElementMap().size() : 0;
+            event.commit();
+        }
+        return molecule;
+    }
+
+    /**
+     * Interprets a formula
+     * @param formula written representation of the formula (eg. {@code HNO3})
+     * @return the {@code Molecule} object, or a message saying why the formula could not be interpreted
+     */
+    private static InterpretationResult<Molecule> interpretFormula(String formula) {
+        // The parser rescans the word it is building at each character, and recurses into each bracket, so very long
+        // or deeply nested formulas are rejected first
+        if (formula.length() > MAX_FORMULA_LENGTH) {
+            return InterpretationResult.failure("Formula is longer than " + MAX_FORMULA_LENGTH + " characters");
+        }
+        if (getBracketDepth(formula) > MAX_BRACKET_DEPTH) {
+            return InterpretationResult.failure("Brackets are nested more than " + MAX_BRACKET_DEPTH + " deep");
+        }
+
         // A more explanatory error for finding symbol characters
-        if (!formula.matches(ACCEPTED_LETTERS_AND_SYMBOLS_REGEX)) {
-            throw new NotationInterpretationException("Formula contained non-letter, non-digit characters");
+        if (!ACCEPTED_LETTERS_AND_SYMBOLS_PATTERN.matcher(formula).matches()) {
+            return InterpretationResult.failure("Formula contained non-letter, non-digit characters");
         }
 
         // Check to see if the formula is in a valid format
-        if (!formula.matches(MOLECULE_REGEX)) {
-            throw new NotationInterpretationException("Formula did meet notation standards of capital letters, lower" +
-                    "case letters and numbers");
+        if (!MOLECULE_PATTERN.matcher(formula).matches()) {
+            return InterpretationResult.failure(
+                    "Formula did meet notation standards of capital letters, lower case letters and numbers");
         }
 
-        // Check there are the same number of open brackets as close brackets
-        if (!isMatchingNumberOfBrackets(formula)) {
-            throw new NotationInterpretationException("Number of open brackets doesn't match the number of close " +
-                    "brackets");
+        // Check there are the same number of open brackets as close brackets, and they close in order
+        if (!isBracketsInOrder(formula)) {
+            return InterpretationResult.failure("Number of open brackets doesn't match the number of close brackets");
         }
 
-        this.formula = formula;
-
+        HashMap<Element, Integer> elementMap;
+        BigDecimal relativeFormulaMass = BigDecimal.ZERO;
         try {
-            this.elementMap = parseFormula(formula);
+            elementMap = parseFormula(formula);
 
             // Calculate the relative formula mass by adding up the relative masses multiplied by the number of atoms
-            this.relativeFormulaMass = BigDecimal.ZERO;
-            for (HashMap.Entry<Element, Integer> entry : this.elementMap.entrySet()) {
-                this.relativeFormulaMass = this.relativeFormulaMass.add(entry.getKey().getMassNumber().multiply(
+            for (HashMap.Entry<Element, Integer> entry : elementMap.entrySet()) {
+                relativeFormulaMass = relativeFormulaMass.add(entry.getKey().getMassNumber().multiply(
                         new BigDecimal(BigInteger.valueOf(entry.getValue()))));
             }
-        } catch (IndexOutOfBoundsException e) {
-            throw new NotationInterpretationException("Capital letter expected after number");
+        } catch (NotationInterpretationException e) {
+            return InterpretationResult.failure(e.getMessage());
         }
 
-        this.empiricalFormula = makeEmpiricalFormula();
+        return InterpretationResult.success(
+                new Molecule(formula, elementMap, relativeFormulaMass, makeEmpiricalFormula(elementMap)));
     }
 
     /**
@@ -64,41 +123,46 @@ public class Molecule {
      * @param elementMap a {@code HashMap} of {@link Element} objects with integer quantities
      */
     public Molecule(HashMap<Element, Integer> elementMap) {
-        this.elementMap = new HashMap<>();
-        this.elementMap.putAll(elementMap);
+        HashMap<Element, Integer> copy = new HashMap<>();
+        copy.putAll(elementMap);
+        this.elementMap = Collections.unmodifiableMap(copy);
 
         // Calculate the relative formula mass by adding up the relative masses multiplied by the number of atoms,
         // And generate the formula by adding the symbol then the quantity after it to a string
         // All by iterating over the elementMap
-        this.relativeFormulaMass = BigDecimal.ZERO;
-        this.formula = "";
+        BigDecimal relativeFormulaMass = BigDecimal.ZERO;
+        String formula = "";
         for (HashMap.Entry<Element, Integer> entry : this.elementMap.entrySet()) {
             System.out.println(entry.getKey());
             // Calculate next bit of the RFM
-            this.relativeFormulaMass = this.relativeFormulaMass.add(entry.getKey().getMassNumber().multiply(
+            relativeFormulaMass = relativeFormulaMass.add(entry.getKey().getMassNumber().multiply(
                     new BigDecimal(BigInteger.valueOf(entry.getValue()))));
 
             // Generate next bit of the formula
-            this.formula += entry.getKey().toString();
+            formula += entry.getKey().toString();
             if (entry.getValue() != 1) {
-                this.formula += entry.getValue();
+                formula += entry.getValue();
             }
         }
+        this.formula = formula;
+        this.relativeFormulaMass = relativeFormulaMass;
+        this.relativeFormulaMassAsDouble = relativeFormulaMass.doubleValue();
+        // Molecules made from a map have never had an empirical formula worked out
+        this.empiricalFormula = null;
     }
 
     /**
-     * Makes a deep copy of the {@code Molecule} object
+     * Makes a copy of the {@code Molecule} object. As {@code Molecule} objects are immutable, the copy shares the
+     * parts of the original
      * @param molecule the molecule to copy
      */
     public Molecule(Molecule molecule) {
-        try {
-            this.formula = molecule.getFormula();
-            this.elementMap = parseFormula(formula);
-            relativeFormulaMass = molecule.getRelativeFormulaMass();
-        }
-        catch (NotationInterpretationException e) {
-            System.out.println("A highly unexpected exception has occurred, cloning a Molecule object failed");
-        }
+        // The formula has already been interpreted, so copy the parts rather than parsing it again
+        this.formula = molecule.getFormula();
+        this.elementMap = molecule.getElementMap();
+        this.relativeFormulaMass = molecule.getRelativeFormulaMass();
+        this.relativeFormulaMassAsDouble = molecule.relativeFormulaMassAsDouble;
+        this.empiricalFormula = molecule.getEmpiricalFormula();
     }
 
     /**
@@ -118,8 +182,8 @@ public class Molecule {
         boolean enteredResultYet = true;
         String[] stringParts;
 
-        // If the formula is wrapped in brackets: strip them
-        if (formula.charAt(0) == '(' && formula.charAt(formula.length() - 1) == ')') {
+        // If the formula is wrapped in one pair of brackets: strip them
+        if (formula.charAt(0) == '(' && isClosedAtEnd(formula)) {
             formula = formula.substring(1, formula.length() - 1);
         }
         // Add an end of word character
@@ -128,93 +192,142 @@ public class Molecule {
         // Make an initial word to work with
         String word = formula.substring(0, 1);
         // Iterate over each character, skipping the first character which is already in the word variable
-        try {
-            for (Character c : formula.substring(1).toCharArray()) {
-                // If a bracket has just been expanded, look for the number after the bracket
-                if (!enteredResultYet) {
-                    // If the number has finished
-                    if (!Character.isDigit(c) || word.matches("[\\D]*")) {
-                        // Check for implied 1 at the end of the bracket
-                        if (word.matches("[\\D]")) {
-                            multiplier = 1;
-                        }
-                        // Otherwise find the multiplier at the end of the bracket
-                        else {
-                            multiplier = Integer.parseInt(word);
-                            word = "";
-                        }
-
-                        // Add the found quantities to the map
-                        for (HashMap.Entry<Element, Integer> entry : receivedMap.entrySet()) {
-                            // If that element is already mapped, add the new quantity to the original
-                            if (elementMap.containsKey(entry.getKey())) {
-                                elementMap.put(entry.getKey(),
-                                        elementMap.get(entry.getKey()) + (entry.getValue() * multiplier));
-                            }
-                            // If the element is not already mapped, add it to the map with its quantity
-                            else {
-                                elementMap.put(entry.getKey(), entry.getValue() * multiplier);
-                            }
-                        }
-
-                        enteredResultYet = true;
+        for (Character c : formula.substring(1).toCharArray()) {
+            // If a bracket has just been expanded, look for the number after the bracket
+            if (!enteredResultYet) {
+                // If the number has finished
+                if (!Character.isDigit(c) || word.matches("[\\D]*")) {
+                    // Check for implied 1 at the end of the bracket
+                    if (word.matches("[\\D]")) {
+                        multiplier = 1;
                     }
-                    // If the next character is a number, then the number has not finished, so record it and continue
+                    // Otherwise find the multiplier at the end of the bracket
                     else {
-                        word += c;
+                        multiplier = parseCount(word);
+                        word = "";
                     }
+
+                    // Add the found quantities to the map
+                    addBlock(elementMap, receivedMap, multiplier);
+                    enteredResultYet = true;
+                }
+                // If the next character is a number, then the number has not finished, so record it and continue
+                else {
+                    word += c;
+                    continue;
                 }
-                // Parsing the formula
-                if (isMatchingNumberOfBrackets(word)) {  // If there aren't matching brackets, you can't parse
-                    // If they aren't contained, they might not be a full word
-                    if (getNumberOfBrackets(word) == 0)
-                        if (Character.isUpperCase(c) || c == '(' || c == ')' || c == '*') { // At the end of a word
-                            if (word.equals("")) {
-                                word += c;
-                                continue;
-                            }
-                            // Parse the word (without any brackets)
-                            stringParts = word.split("(?<=\\D)(?=\\d)|(?<=\\d)(?=\\D)");
-                            // If the one is implied, like carbon in CO2, then assign the quantity as one
-                            if (stringParts.length == 1) {
-                                quantity = 1;
-                            } else {
-                                quantity = Integer.parseInt(stringParts[1]);
-                            }
-                            // Feed the symbol and quantity into the element map
-                            // If the element has already been entered, increment the quantity
-                            if (elementMap.containsKey(new Element(stringParts[0], Element.SYMBOL))) {
-                                elementMap.put(new Element(stringParts[0], Element.SYMBOL),
-                                        elementMap.get(new Element(stringParts[0], Element.SYMBOL)) + quantity);
-                            }
-                            // Else if the element hasn't already been entered, enter it with its current quantity
-                            else {
-                                elementMap.put(new Element(stringParts[0], Element.SYMBOL), quantity);
-                            }
-                            // Reset the word to be the next character
-                            word = Character.toString(c);
-                        } else { // The next character is part of this word
+            }
+            // Parsing the formula
+            if (isMatchingNumberOfBrackets(word)) {  // If there aren't matching brackets, you can't parse
+                // If they aren't contained, they might not be a full word
+                if (getNumberOfBrackets(word) == 0)
+                    if (Character.isUpperCase(c) || c == '(' || c == ')' || c == '*') { // At the end of a word
+                        if (word.equals("")) {
                             word += c;
+                            continue;
+                        }
+                        // Parse the word (without any brackets)
+                        stringParts = word.split("(?<=\\D)(?=\\d)|(?<=\\d)(?=\\D)");
+                        // A word is a symbol then maybe a number, so anything else has a number before a symbol
+                        if (stringParts.length > 2 || !Character.isLetter(word.charAt(0))) {
+                            throw new NotationInterpretationException("Capital letter expected after number", null,
+                                    false, false);
+                        }
+                        // If the one is implied, like carbon in CO2, then assign the quantity as one
+                        if (stringParts.length == 1) {
+                            quantity = 1;
+                        } else {
+                            quantity = parseCount(stringParts[1]);
                         }
-                    else { // Matching brackets, must be a block, so parse
-                        // Recurse to parse the block in the brackets
-                        receivedMap = parseFormula(word);
-                        enteredResultYet = false;
+                        // Feed the symbol and quantity into the element map
+                        Element element = Element.findBySymbol(stringParts[0]);
+                        if (element == null) {
+                            throw new NotationInterpretationException(
+                                    "Couldn't find element or symbol in the periodic table", null, false, false);
+                        }
+                        // If the element has already been entered, increment the quantity
+                        if (elementMap.containsKey(element)) {
+                            elementMap.put(element, checkCount((long) elementMap.get(element) + quantity));
+                        }
+                        // Else if the element hasn't already been entered, enter it with its current quantity
+                        else {
+                            elementMap.put(element, quantity);
+                        }
+                        // Reset the word to be the next character
                         word = Character.toString(c);
+                    } else { // The next character is part of this word
+                        word += c;
                     }
-                } // Continue because the brackets don't match
-                else {
-                    word += c;
+                else { // Matching brackets, must be a block, so parse
+                    // Recurse to parse the block in the brackets
+                    receivedMap = parseFormula(word);
+                    enteredResultYet = false;
+                    word = Character.toString(c);
                 }
+            } // Continue because the brackets don't match
+            else {
+                word += c;
             }
+        }
 
-
-        } catch (FlagException e) {
-            System.out.println("An unexpected (and probably impossible) flag exception occurred: " + e.getMessage());
+        // A bracket at the very end of the formula has an implied multiplier of 1, like OH in Ca(OH)
+        if (!enteredResultYet) {
+            addBlock(elementMap, receivedMap, 1);
         }
+
         return elementMap;
     }
 
+    /**
+     * Adds the elements of a bracketed block to an element map
+     * @param elementMap the map to add to
+     * @param receivedMap the elements in the block
+     * @param multiplier the number after the block
+     * @throws NotationInterpretationException when there are too many atoms of an element
+     */
+    private static void addBlock(HashMap<Element, Integer> elementMap, HashMap<Element, Integer> receivedMap,
+                                 int multiplier) throws NotationInterpretationException {
+        for (HashMap.Entry<Element, Integer> entry : receivedMap.entrySet()) {
+            long quantity = (long) entry.getValue() * multiplier;
+            // If that element is already mapped, add the new quantity to the original
+            if (elementMap.containsKey(entry.getKey())) {
+                quantity += elementMap.get(entry.getKey());
+            }
+            elementMap.put(entry.getKey(), checkCount(quantity));
+        }
+    }
+
+    /**
+     * Parses the number of atoms or the multiplier written in a formula
+     * @param digits the digits of the number
+     * @return the number
+     * @throws NotationInterpretationException when the number is zero or too large
+     */
+    private static int parseCount(String digits) throws NotationInterpretationException {
+        // Check the length first, so a huge number is rejected without a NumberFormatException
+        if (digits.length() > MAX_COUNT_DIGITS) {
+            throw new NotationInterpretationException("Number of atoms is too large", null, false, false);
+        }
+        int count = Integer.parseInt(digits);
+        if (count == 0) {
+            throw new NotationInterpretationException("Number of atoms can't be zero", null, false, false);
+        }
+        return count;
+    }
+
+    /**
+     * Checks a number of atoms of an element fits in an {@code int}
+     * @param count the number of atoms
+     * @return the number of atoms
+     * @throws NotationInterpretationException when the number of atoms is too large
+     */
+    private static int checkCount(long count) throws NotationInterpretationException {
+        if (count > Integer.MAX_VALUE) {
+            throw new NotationInterpretationException("Number of atoms is too large", null, false, false);
+        }
+        return (int) count;
+    }
+
     /**
      * Find the number of sets of brackets in a string
      * @param s the string to count the number of brackets in
@@ -233,11 +346,68 @@ public class Molecule {
         return s.replaceAll("[^\\(]", "").length() == s.replaceAll("[^\\)]", "").length();
     }
 
-    private String makeEmpiricalFormula() {
-        int divisor = AlgebraicEquation.gcd(new ArrayList<>(this.elementMap.values()));
+    /**
+     * Checks whether every closing bracket in a string closes an earlier opening bracket, and every opening bracket is
+     * closed
+     * @param s the string to check the brackets of
+     * @return whether the brackets in the string are matched and in order
+     */
+    private static boolean isBracketsInOrder(String s) {
+        int depth = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '(') {
+                depth++;
+            }
+            else if (s.charAt(i) == ')' && --depth < 0) {
+                return false;
+            }
+        }
+        return depth == 0;
+    }
+
+    /**
+     * Finds how deeply the brackets in a string are nested
+     * @param s the string to find the depth of the brackets of
+     * @return the most brackets open at once
+     */
+    private static int getBracketDepth(String s) {
+        int depth = 0;
+        int maxDepth = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '(') {
+                maxDepth = Math.max(maxDepth, ++depth);
+            }
+            else if (s.charAt(i) == ')') {
+                depth--;
+            }
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Checks whether the opening bracket at the start of a string is closed by the last character of the string, so
+     * the whole string is wrapped in one pair of brackets
+     * @param s the string starting with an opening bracket
+     * @return whether the whole string is wrapped in one pair of brackets
+     */
+    private static boolean isClosedAtEnd(String s) {
+        int depth = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '(') {
+                depth++;
+            }
+            else if (s.charAt(i) == ')' && --depth == 0) {
+                return i == s.length() - 1;
+            }
+        }
+        return false;
+    }
+
+    private static String makeEmpiricalFormula(HashMap<Element, Integer> elementMap) {
+        int divisor = AlgebraicEquation.gcd(new ArrayList<>(elementMap.values()));
         HashMap<Element, Integer> empiricalElementMap = new HashMap<>();
 
-        for (HashMap.Entry<Element, Integer> element : this.elementMap.entrySet()) {
+        for (HashMap.Entry<Element, Integer> element : elementMap.entrySet()) {
             empiricalElementMap.put(element.getKey(), (element.getValue() / divisor));
         }
 
@@ -326,9 +496,9 @@ public class Molecule {
 
     /**
      * Gets the {@link #elementMap} of the {@code Molecule} object
-     * @return the {@link #elementMap} of the {@code Molecule} object
+     * @return the {@link #elementMap} of the {@code Molecule} object, which can't be modified
      */
-    public HashMap<Element, Integer> getElementMap() {
+    public Map<Element, Integer> getElementMap() {
         return elementMap;
     }
 
@@ -340,6 +510,15 @@ public class Molecule {
         return relativeFormulaMass;
     }
 
+    /**
+     * Gets the {@link #relativeFormulaMass} of the {@code Molecule} object as a {@code double}, which is worked out
+     * when the molecule is made
+     * @return the {@link #relativeFormulaMass} of the {@code Molecule} object as a {@code double}
+     */
+    public double getRelativeFormulaMassAsDouble() {
+        return relativeFormulaMassAsDouble;
+    }
+
     public String getEmpiricalFormula() {
         return empiricalFormula;
     }
@@ -352,32 +531,66 @@ public class Molecule {
     public static final String ACCEPTED_LETTERS_AND_SYMBOLS_REGEX = "[a-zA-Z0-9\\(\\)]*";
 
     /**
-     * A regex pattern of the accepted format of the {@code String} representation a {@code Molecule} object.
+     * A regex pattern of the accepted format of the {@code String} representation a {@code Molecule} object. Brackets
+     * can be nested, but not empty. The quantifiers are possessive, as there is only ever one way to match a formula,
+     * so matching doesn't use stack for each character of a long formula.
      * @see java.util.regex.Pattern
      */
-    public static final String MOLECULE_REGEX = "([\\(]?" + Element.ELEMENT_REGEX + "\\d*(\\)\\d*)?)+";
+    public static final String MOLECULE_REGEX =
+            "(?:\\(*+(?:" + Element.ELEMENT_REGEX + ")\\d*+(?:\\)\\d*+)*+)++";
+
+    /**
+     * The longest formula that is interpreted
+     */
+    private static final int MAX_FORMULA_LENGTH = 1000;
+
+    /**
+     * The most brackets that can be open at once in a formula
+     */
+    private static final int MAX_BRACKET_DEPTH = 32;
+
+    /**
+     * The most digits in a number in a formula, so that every number written fits in an {@code int}
+     */
+    private static final int MAX_COUNT_DIGITS = 9;
+
+    /**
+     * A compiled {@link #ACCEPTED_LETTERS_AND_SYMBOLS_REGEX}
+     */
+    private static final Pattern ACCEPTED_LETTERS_AND_SYMBOLS_PATTERN =
+            Pattern.compile(ACCEPTED_LETTERS_AND_SYMBOLS_REGEX);
+
+    /**
+     * A compiled {@link #MOLECULE_REGEX}
+     */
+    private static final Pattern MOLECULE_PATTERN = Pattern.compile(MOLECULE_REGEX);
 
     /**
      * The {@code Molecule} object's formula. For example: {@code HNO3}
      */
-    protected String formula;
+    protected final String formula;
 
     /**
      * The {@code Molecule} object's {@link HashMap} of elements. For example:
-     * <code>{H=1, N=1, O=3}</code>
+     * <code>{H=1, N=1, O=3}</code>, which can't be modified
      */
-    protected HashMap<Element, Integer> elementMap = new HashMap<>();
+    protected final Map<Element, Integer> elementMap;
 
     /**
      * The {@code Molecule} object's relative formula mass. For example: {@code HNO3} has a relative formula mass of
      * {@code 63.0}
      */
-    protected BigDecimal relativeFormulaMass;
+    protected final BigDecimal relativeFormulaMass;
+
+    /**
+     * The {@link #relativeFormulaMass} as a {@code double}
+     */
+    private final double relativeFormulaMassAsDouble;
 
     /**
      * The {@code Molecule} object's empirical formula; the simplest ratio of atoms. For example: {@code C2H6} has an
      * empirical formula of {@code CH3}
      */
-    protected String empiricalFormula;
+    protected final String empiricalFormula;
 }
 
@@ -0,0 +1,157 @@
+package io.github.benjimarshall.chem;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global intern table of {@link Molecule} objects, shared by every thread. Interning a formula that is already in the
+ * table returns the same {@code Molecule} object without interpreting the formula again, so threads that see the same
+ * formulas share one copy of each molecule instead of each building its own.
+ * <p>
+ * Molecules are keyed by their formula as written, which is what makes two {@code Molecule} objects equal: formulas
+ * with the same composition written differently, such as {@code CH3OH} and {@code CH4O}, are different molecules.
+ * Lookups of formulas already in the table are reads of a {@link ConcurrentHashMap}, which don't lock, so threads
+ * don't contend. Formulas are interpreted outside of the map's locks, so two threads that miss on the same formula at
+ * once may both interpret it, but only one of the molecules is kept and both threads are given it.
+ * <p>
+ * The table only holds weak references to its molecules, so a molecule that isn't used anywhere else can be garbage
+ * collected, and its entry is removed the next time a molecule is added. Formulas that can't be interpreted aren't
+ * kept.
+ *
+ * @see Molecule#tryParse(String)
+ */
+public final class MoleculeInternTable {
+    private MoleculeInternTable() {
+
+    }
+
+    /**
+     * Gets the {@code Molecule} object for a formula, interpreting the formula and adding it to the table if it isn't
+     * there already
+     * @param formula written representation of the formula (eg. {@code HNO3})
+     * @return the shared {@code Molecule} object, or a message saying why the formula could not be interpreted
+     */
+    public static InterpretationResult<Molecule> tryIntern(String formula) {
+        Molecule molecule = lookUp(formula);
+        Metrics.countCacheLookup("molecules.intern", molecule != null);
+        if (molecule != null) {
+            return InterpretationResult.success(molecule);
+        }
+
+        InterpretationResult<Molecule> parsed = Molecule.tryParse(formula);
+        if (!parsed.isSuccessful()) {
+            return parsed;
+        }
+        Molecule interned = add(parsed.getValue());
+        return interned == parsed.getValue() ? parsed : InterpretationResult.success(interned);
+    }
+
+    /**
+     * Gets the {@code Molecule} object for a formula, interpreting the formula and adding it to the table if it isn't
+     * there already
+     * @param formula written representation of the formula (eg. {@code HNO3})
+     * @return the shared {@code Molecule} object
+     * @throws NotationInterpretationException when the string cannot be interpreted as a molecule
+     */
+    public static Molecule intern(String formula) throws NotationInterpretationException {
+        return tryIntern(formula).getOrThrow();
+    }
+
+    /**
+     * Gets the shared {@code Molecule} object equal to a molecule, adding the molecule to the table if there isn't one.
+     * Only plain {@code Molecule} objects are added, so a subclass such as a {@link Substance} is copied to a
+     * {@code Molecule} first
+     * @param molecule the molecule to intern
+     * @return the shared {@code Molecule} object equal to the molecule, or the molecule itself if a different molecule
+     * with the same formula is already in the table
+     */
+    public static Molecule intern(Molecule molecule) {
+        Molecule interned = lookUp(molecule.getFormula());
+        Metrics.countCacheLookup("molecules.intern", interned != null);
+        if (interned == null) {
+            return add(molecule.getClass() == Molecule.class ? molecule : new Molecule(molecule));
+        }
+        return interned.equals(molecule) ? interned : molecule;
+    }
+
+    /**
+     * Gets the number of formulas in the table, including any whose molecules have been garbage collected but whose
+     * entries haven't been removed yet
+     * @return the number of formulas in the table
+     */
+    public static int size() {
+        return TABLE.size();
+    }
+
+    /**
+     * Removes every molecule from the table. Molecules already handed out are still valid, but formulas interned
+     * afterwards give new {@code Molecule} objects
+     */
+    public static void clear() {
+        TABLE.clear();
+    }
+
+    private static Molecule lookUp(String formula) {
+        Entry entry = TABLE.get(formula);
+        return entry == null ? null : entry.get();
+    }
+
+    private static Molecule add(Molecule molecule) {
+        expungeCollected();
+
+        String formula = molecule.getFormula();
+        Entry entry = new Entry(formula, molecule);
+        while (true) {
+            Entry existing = TABLE.putIfAbsent(formula, entry);
+            if (existing == null) {
+                return molecule;
+            }
+
+            // Another thread may have added the formula first, in which case its molecule is the shared one. A molecule
+            // with the same formula that isn't equal, such as one made from a map, is left out of the table
+            Molecule winner = existing.get();
+            if (winner != null) {
+                return winner.equals(molecule) ? winner : molecule;
+            }
+            if (TABLE.replace(formula, existing, entry)) {
+                return molecule;
+            }
+        }
+    }
+
+    private static void expungeCollected() {
+        Object collected;
+        while ((collected = QUEUE.poll()) != null) {
+            Entry entry = (Entry) collected;
+            // Only remove the entry if it hasn't already been replaced by a live molecule
+            TABLE.remove(entry.formula, entry);
+        }
+    }
+
+    /**
+     * A weak reference to an interned molecule, which remembers its formula so that its entry can be removed once the
+     * molecule has been garbage collected
+     */
+    private static final class Entry extends WeakReference<Molecule> {
+        private Entry(String formula, Molecule molecule) {
+            super(molecule, QUEUE);
+            this.formula = formula;
+        }
+
+        /**
+         * The formula the molecule is interned under
+         */
+        private final String formula;
+    }
+
+    /**
+     * The interned molecules, by formula
+     */
+    private static final ConcurrentHashMap<String, Entry> TABLE = new ConcurrentHashMap<>();
+
+    /**
+     * Where the entries of garbage collected molecules are queued to be removed
+     */
+    private static final ReferenceQueue<Molecule> QUEUE = new ReferenceQueue<>();
+}
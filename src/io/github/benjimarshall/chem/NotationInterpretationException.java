@@ -39,4 +39,18 @@ public class NotationInterpretationException extends Exception {
     public NotationInterpretationException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * Constructs an {@code NotationInterpretationException} object with a given message and cause, choosing whether
+     * suppression and the stack trace are enabled. Without a stack trace, the exception is cheap enough to throw for
+     * routinely bad input
+     * @param message the message of the {@code NotationInterpretationException}
+     * @param cause the cause of the exception
+     * @param enableSuppression whether suppression is enabled
+     * @param writableStackTrace whether the stack trace is filled in
+     */
+    protected NotationInterpretationException(String message, Throwable cause, boolean enableSuppression,
+                                              boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
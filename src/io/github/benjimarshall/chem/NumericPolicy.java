@@ -0,0 +1,221 @@
+package io.github.benjimarshall.chem;
+
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Numeric policy. An immutable {@code NumericPolicy} object chooses how {@link Quantity} arithmetic, and the
+ * {@link Substance}, {@link Solution} and {@link Titration} calculations built on it, are carried out: either exactly
+ * with {@link java.math.BigDecimal} at a declared precision, or on primitive {@code double}s, which is much faster and
+ * good enough for Monte Carlo style runs.
+ * <p>
+ * An exact policy with a precision of {@link MathContext#UNLIMITED} doesn't round addition, subtraction and
+ * multiplication at all. Division can't always be exact, so it is carried out to a separate division precision.
+ * <p>
+ * The policy in use is the one set for the current thread with {@link #runWith(NumericPolicy, Calculation)}, or the
+ * global default otherwise. The global default starts as {@link #DEFAULT}, which is how quantities have always been
+ * calculated.
+ *
+ * @see Quantity
+ */
+public final class NumericPolicy {
+    private NumericPolicy(boolean exact, MathContext mathContext, MathContext divisionContext,
+                          MathContext resultContext) {
+        this.exact = exact;
+        this.mathContext = mathContext;
+        this.divisionContext = divisionContext;
+        this.resultContext = resultContext;
+    }
+
+    /**
+     * Makes an exact {@code NumericPolicy} object. Division is carried out to the same precision as the rest of the
+     * arithmetic, or to 16 significant figures if that is {@link MathContext#UNLIMITED}
+     * @param mathContext the precision that quantity arithmetic is carried out to
+     * @param resultContext the precision that derived results, such as concentrations and atom economies, are rounded
+     *                      to
+     * @return an exact {@code NumericPolicy} object
+     */
+    public static NumericPolicy exact(MathContext mathContext, MathContext resultContext) {
+        if (mathContext == null || resultContext == null) {
+            throw new IllegalArgumentException("Math contexts can't be null");
+        }
+        MathContext divisionContext = mathContext.getPrecision() == 0 ? MathContext.DECIMAL64 : mathContext;
+        return new NumericPolicy(true, mathContext, divisionContext, resultContext);
+    }
+
+    /**
+     * Makes an exact {@code NumericPolicy} object, with derived results rounded to the same precision as division
+     * @param mathContext the precision that quantity arithmetic and derived results are carried out to
+     * @return an exact {@code NumericPolicy} object
+     */
+    public static NumericPolicy exact(MathContext mathContext) {
+        if (mathContext == null) {
+            throw new IllegalArgumentException("Math contexts can't be null");
+        }
+        return exact(mathContext, mathContext.getPrecision() == 0 ? MathContext.DECIMAL64 : mathContext);
+    }
+
+    /**
+     * Gets the global default {@code NumericPolicy}, used when no policy has been set for the current thread
+     * @return the global default {@code NumericPolicy}
+     */
+    public static NumericPolicy getDefault() {
+        return globalDefault;
+    }
+
+    /**
+     * Sets the global default {@code NumericPolicy}, used when no policy has been set for the current thread
+     * @param policy the new global default {@code NumericPolicy}
+     */
+    public static void setDefault(NumericPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Numeric policy can't be null");
+        }
+        globalDefault = policy;
+    }
+
+    /**
+     * Gets the {@code NumericPolicy} in use on the current thread
+     * @return the policy set by {@link #runWith(NumericPolicy, Calculation)}, or the global default
+     */
+    public static NumericPolicy current() {
+        NumericPolicy policy = THREAD_POLICY.get();
+        return policy == null ? globalDefault : policy;
+    }
+
+    /**
+     * Runs a calculation on the current thread with a given {@code NumericPolicy}, restoring the previous policy
+     * afterwards
+     * @param policy the {@code NumericPolicy} to carry out the calculation with
+     * @param calculation the calculation to run
+     * @param <T> the type of the result of the calculation
+     * @param <E> the type of exception the calculation can throw
+     * @return the result of the calculation
+     * @throws E when the calculation throws it
+     */
+    public static <T, E extends Exception> T runWith(NumericPolicy policy, Calculation<T, E> calculation) throws E {
+        if (policy == null) {
+            throw new IllegalArgumentException("Numeric policy can't be null");
+        }
+
+        NumericPolicy previous = THREAD_POLICY.get();
+        THREAD_POLICY.set(policy);
+        try {
+            return calculation.calculate();
+        }
+        finally {
+            if (previous == null) {
+                THREAD_POLICY.remove();
+            }
+            else {
+                THREAD_POLICY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * A calculation to be run with a {@code NumericPolicy}
+     * @param <T> the type of the result of the calculation
+     * @param <E> the type of exception the calculation can throw
+     */
+    @FunctionalInterface
+    public interface Calculation<T, E extends Exception> {
+        /**
+         * Carries out the calculation
+         * @return the result of the calculation
+         * @throws E when the calculation fails
+         */
+        T calculate() throws E;
+    }
+
+    /**
+     * Gets whether quantities are calculated exactly with {@code BigDecimal}, rather than with {@code double}
+     * @return whether quantities are calculated exactly
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Gets the {@link #mathContext} that quantity addition, subtraction and multiplication are carried out to
+     * @return the {@link #mathContext} that quantity addition, subtraction and multiplication are carried out to
+     */
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * Gets the {@link #divisionContext} that quantity division is carried out to
+     * @return the {@link #divisionContext} that quantity division is carried out to
+     */
+    public MathContext getDivisionContext() {
+        return divisionContext;
+    }
+
+    /**
+     * Gets the {@link #resultContext} that derived results are rounded to
+     * @return the {@link #resultContext} that derived results are rounded to
+     */
+    public MathContext getResultContext() {
+        return resultContext;
+    }
+
+    /**
+     * Generates a {@code String} representation of the {@code NumericPolicy} object
+     * @return a {@code String} representation of the {@code NumericPolicy} object
+     */
+    @Override
+    public String toString() {
+        if (!exact) {
+            return "double";
+        }
+        return "exact(" + (mathContext.getPrecision() == 0 ? "unrounded" : mathContext.getPrecision() + " digits") +
+                ", division to " + divisionContext.getPrecision() + " digits, results to " +
+                resultContext.getPrecision() + " digits)";
+    }
+
+    /**
+     * Exact arithmetic, with addition, subtraction and multiplication unrounded, division to 16 significant figures,
+     * and derived results rounded to 5 significant figures. This is how quantities have always been calculated
+     */
+    public static final NumericPolicy DEFAULT = new NumericPolicy(true, MathContext.UNLIMITED, MathContext.DECIMAL64,
+            new MathContext(5, RoundingMode.HALF_UP));
+
+    /**
+     * Primitive {@code double} arithmetic. Where a {@code BigDecimal} result still has to be given, it is to the
+     * precision of a {@code double}
+     */
+    public static final NumericPolicy DOUBLE =
+            new NumericPolicy(false, MathContext.DECIMAL64, MathContext.DECIMAL64, MathContext.DECIMAL64);
+
+    /**
+     * The policy used when no policy has been set for the current thread
+     */
+    private static volatile NumericPolicy globalDefault = DEFAULT;
+
+    /**
+     * The policy set for each thread by {@link #runWith(NumericPolicy, Calculation)}
+     */
+    private static final ThreadLocal<NumericPolicy> THREAD_POLICY = new ThreadLocal<>();
+
+    /**
+     * Whether quantities are calculated exactly with {@code BigDecimal}
+     */
+    private final boolean exact;
+
+    /**
+     * The precision that quantity addition, subtraction and multiplication are carried out to, which is
+     * {@link MathContext#UNLIMITED} when they aren't rounded
+     */
+    private final MathContext mathContext;
+
+    /**
+     * The precision that quantity division is carried out to
+     */
+    private final MathContext divisionContext;
+
+    /**
+     * The precision that derived results are rounded to
+     */
+    private final MathContext resultContext;
+}
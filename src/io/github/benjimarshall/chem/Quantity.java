@@ -0,0 +1,232 @@
+package io.github.benjimarshall.chem;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Dimensioned quantity. An immutable {@code Quantity} object holds a value in the base unit of its dimension, with
+ * arithmetic shared between every dimension. Units are converted by moving the decimal point with
+ * {@link BigDecimal#scaleByPowerOfTen(int)}, which is exact and needs no division.
+ * <p>
+ * The value is held either as a {@link BigDecimal} or as a primitive {@code double}, chosen by the
+ * {@link NumericPolicy} in use when the quantity is made. A {@code double} quantity only makes a {@code BigDecimal}
+ * when one is asked for.
+ * <p>
+ * Quantities can be shared between threads without locking. The only field that isn't final is the {@code BigDecimal}
+ * made on demand from a {@code double} value, and as {@code BigDecimal} objects are immutable, a thread that doesn't
+ * see another thread's copy just makes an equal one.
+ *
+ * @param <Q> the type of the quantity, so that arithmetic returns the same type
+ * @see Mass
+ * @see Volume
+ * @see Mole
+ * @see Concentration
+ */
+public abstract class Quantity<Q extends Quantity<Q>> implements Comparable<Q> {
+    /**
+     * Makes an exact {@code Quantity} object from a {@code BigDecimal} value in the base unit
+     * @param value a {@code BigDecimal} value in the base unit
+     */
+    protected Quantity(BigDecimal value) {
+        this.value = value;
+        this.primitiveValue = 0;
+        this.exact = true;
+    }
+
+    /**
+     * Makes a {@code Quantity} object from a {@code double} value in the base unit, held exactly or as a
+     * {@code double} according to the current {@link NumericPolicy}
+     * @param value a {@code double} value in the base unit
+     */
+    protected Quantity(double value) {
+        this.exact = NumericPolicy.current().isExact();
+        this.value = exact ? BigDecimal.valueOf(value) : null;
+        this.primitiveValue = value;
+    }
+
+    /**
+     * Makes a {@code Quantity} object from a {@code double} value in a unit, held exactly or as a {@code double}
+     * according to the current {@link NumericPolicy}
+     * @param value a {@code double} value in the given unit
+     * @param unit the unit of the value
+     */
+    protected Quantity(double value, MetricUnit unit) {
+        this.exact = NumericPolicy.current().isExact();
+        this.value = exact ? toBaseUnit(BigDecimal.valueOf(value), unit) : null;
+        this.primitiveValue = value * unit.getFactor();
+    }
+
+    /**
+     * Makes a new quantity of the same type with a given value in the base unit
+     * @param value a {@code BigDecimal} value in the base unit
+     * @return a new quantity of the same type
+     */
+    protected abstract Q make(BigDecimal value);
+
+    /**
+     * Makes a new quantity of the same type with a given {@code double} value in the base unit
+     * @param value a {@code double} value in the base unit
+     * @return a new quantity of the same type
+     */
+    protected abstract Q make(double value);
+
+    /**
+     * Add this quantity to the parameter, and return a new quantity of the resultant value
+     * @param quantity the quantity to add to this object
+     * @return a new quantity of the resultant value
+     */
+    public Q add(Q quantity) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return make(this.doubleValue() + quantity.doubleValue());
+        }
+        return make(this.getValue().add(quantity.getValue(), policy.getMathContext()));
+    }
+
+    /**
+     * Subtract the parameter from this quantity, and return a new quantity of the resultant value
+     * @param quantity the quantity to subtract from this object
+     * @return a new quantity of the resultant value
+     */
+    public Q subtract(Q quantity) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return make(this.doubleValue() - quantity.doubleValue());
+        }
+        return make(this.getValue().subtract(quantity.getValue(), policy.getMathContext()));
+    }
+
+    /**
+     * Multiply this quantity by the parameter, and return a new quantity of the resultant value
+     * @param quantity the quantity to multiply by this object
+     * @return a new quantity of the resultant value
+     */
+    public Q multiply(Q quantity) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return make(this.doubleValue() * quantity.doubleValue());
+        }
+        return make(this.getValue().multiply(quantity.getValue(), policy.getMathContext()));
+    }
+
+    /**
+     * Divide this quantity by the parameter, and return a new quantity of the resultant value
+     * @param quantity the quantity to divide this object by
+     * @return a new quantity of the resultant value
+     */
+    public Q divide(Q quantity) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return make(this.doubleValue() / quantity.doubleValue());
+        }
+        return make(this.getValue().divide(quantity.getValue(), policy.getDivisionContext()));
+    }
+
+    /**
+     * Compares the value of this quantity with the parameter
+     * @param quantity the quantity to compare to this object
+     * @return a negative number, zero, or a positive number as this quantity is less than, equal to, or greater than
+     * the parameter
+     */
+    @Override
+    public int compareTo(Q quantity) {
+        if (!this.exact || !quantity.isExact()) {
+            return Double.compare(this.doubleValue(), quantity.doubleValue());
+        }
+        return this.value.compareTo(quantity.getValue());
+    }
+
+    /**
+     * Gets whether the quantity is held exactly as a {@code BigDecimal}, rather than as a {@code double}
+     * @return whether the quantity is held exactly
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Gets the value of the quantity in the base unit as a {@code double}, without making a {@code BigDecimal}
+     * @return the value of the quantity in the base unit as a {@code double}
+     */
+    public double doubleValue() {
+        return exact ? value.doubleValue() : primitiveValue;
+    }
+
+    /**
+     * Gets the {@link #value} of the quantity in the base unit, making it from the {@code double} value the first time
+     * it is needed
+     * @return the {@link #value} of the quantity in the base unit
+     * @throws NumberFormatException when a {@code double} quantity is infinite or not a number
+     */
+    protected BigDecimal getValue() {
+        BigDecimal result = value;
+        if (result == null) {
+            // Racing threads each make an equal value, so there is no need to lock
+            result = BigDecimal.valueOf(primitiveValue);
+            value = result;
+        }
+        return result;
+    }
+
+    /**
+     * Converts the value of the quantity from the base unit into another unit. Trailing zeros added by moving
+     * the decimal point are removed, so the result has no more decimal places than it needs or than the value had
+     * @param unit the unit to convert to
+     * @return the value of the quantity in the given unit
+     */
+    protected BigDecimal getValue(MetricUnit unit) {
+        BigDecimal value = getValue();
+        BigDecimal converted = value.scaleByPowerOfTen(-unit.getExponent());
+        if (converted.scale() > value.scale()) {
+            BigDecimal stripped = converted.stripTrailingZeros();
+            converted = stripped.scale() < value.scale() ? stripped.setScale(value.scale()) : stripped;
+        }
+        return converted;
+    }
+
+    /**
+     * Converts a value in a unit into the base unit, keeping at least the decimal places of the given value
+     * @param value the value in the given unit
+     * @param unit the unit of the value
+     * @return the value in the base unit
+     */
+    protected static BigDecimal toBaseUnit(BigDecimal value, MetricUnit unit) {
+        BigDecimal converted = value.scaleByPowerOfTen(unit.getExponent());
+        return converted.scale() < value.scale() ? converted.setScale(value.scale()) : converted;
+    }
+
+    /**
+     * Calculates the value of the base to the power of n, a power method for {@code BigDecimal} to accept negative
+     * exponents. Powers of ten are found by moving the decimal point.
+     * @param base base of the expression to be evaluated
+     * @param n exponent of the expression to be evaluated
+     * @return a {@code BigDecimal} object with the value of the base to the power of n
+     */
+    public static BigDecimal power(BigDecimal base, int n) {
+        if (base.compareTo(BigDecimal.TEN) == 0) {
+            return BigDecimal.ONE.scaleByPowerOfTen(n);
+        }
+        else if (n < 0) {
+            return BigDecimal.ONE.divide(base.pow(n * -1), MathContext.DECIMAL128);
+        }
+        else {
+            return base.pow(n);
+        }
+    }
+
+    /**
+     * A {@code BigDecimal} object with the value of the quantity in the base unit, or {@code null} if a {@code double}
+     * quantity hasn't needed one yet
+     */
+    private BigDecimal value;
+
+    /**
+     * The value of the quantity in the base unit, if the quantity is held as a {@code double}
+     */
+    private final double primitiveValue;
+
+    /**
+     * Whether the quantity is held exactly as a {@code BigDecimal}
+     */
+    private final boolean exact;
+}
@@ -0,0 +1,310 @@
+package io.github.benjimarshall.chem;
+
+import java.util.Arrays;
+
+/**
+ * Column of quantities. A {@code QuantityColumn} object holds many values of the same dimension, such as a dataset of
+ * sensor masses, in one {@code double[]} with a single {@link MetricUnit}, instead of one {@link Quantity} object per
+ * value. Bulk operations are plain counted loops over the array, which the JIT compiles to SIMD instructions, and
+ * make no per-element objects.
+ * <p>
+ * Operations return a new column and leave this one unchanged, so a column can be shared between threads once made.
+ *
+ * @param <U> the type of unit of the column, such as {@link Mass.MetricMassUnit}
+ * @see StoichiometryBatch
+ */
+public final class QuantityColumn<U extends MetricUnit> {
+    private QuantityColumn(double[] values, U unit) {
+        if (unit == null) {
+            throw new IllegalArgumentException("Unit can't be null");
+        }
+        this.values = values;
+        this.unit = unit;
+    }
+
+    /**
+     * Makes a {@code QuantityColumn} object from a copy of an array of values
+     * @param values the values of the column
+     * @param unit the unit of the values
+     * @param <U> the type of unit of the column
+     * @return a {@code QuantityColumn} object of the values
+     */
+    public static <U extends MetricUnit> QuantityColumn<U> of(double[] values, U unit) {
+        return new QuantityColumn<>(values.clone(), unit);
+    }
+
+    /**
+     * Makes a {@code QuantityColumn} object around an array of values without copying it. The array must not be
+     * changed afterwards
+     * @param values the values of the column
+     * @param unit the unit of the values
+     * @param <U> the type of unit of the column
+     * @return a {@code QuantityColumn} object of the values
+     */
+    public static <U extends MetricUnit> QuantityColumn<U> wrap(double[] values, U unit) {
+        return new QuantityColumn<>(values, unit);
+    }
+
+    /**
+     * Makes a {@code QuantityColumn} object from fixed-point values, each a whole number of 10<sup>-decimalPlaces</sup>
+     * of the unit
+     * @param fixedPoint the fixed-point values
+     * @param decimalPlaces the number of decimal places of the fixed-point values
+     * @param unit the unit of the values
+     * @param <U> the type of unit of the column
+     * @return a {@code QuantityColumn} object of the values
+     */
+    public static <U extends MetricUnit> QuantityColumn<U> fromFixedPoint(long[] fixedPoint, int decimalPlaces,
+                                                                          U unit) {
+        // Divide by the power of ten, which is exact, rather than multiplying by its inexact inverse, so that values
+        // round trip through toFixedPoint
+        double[] values = new double[fixedPoint.length];
+        if (decimalPlaces >= 0) {
+            double divisor = Double.parseDouble("1e" + decimalPlaces);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = fixedPoint[i] / divisor;
+            }
+        }
+        else {
+            double factor = Double.parseDouble("1e" + (-decimalPlaces));
+            for (int i = 0; i < values.length; i++) {
+                values[i] = fixedPoint[i] * factor;
+            }
+        }
+        return new QuantityColumn<>(values, unit);
+    }
+
+    /**
+     * Makes a {@code QuantityColumn} object from a set of {@code Mass} objects
+     * @param masses the {@code Mass} objects
+     * @param unit the unit of the column
+     * @return a {@code QuantityColumn} object of the masses
+     */
+    public static QuantityColumn<Mass.MetricMassUnit> ofMasses(Mass[] masses, Mass.MetricMassUnit unit) {
+        return ofQuantities(masses, unit);
+    }
+
+    /**
+     * Makes a {@code QuantityColumn} object from a set of {@code Volume} objects
+     * @param volumes the {@code Volume} objects
+     * @param unit the unit of the column
+     * @return a {@code QuantityColumn} object of the volumes
+     */
+    public static QuantityColumn<Volume.MetricVolumeUnit> ofVolumes(Volume[] volumes, Volume.MetricVolumeUnit unit) {
+        return ofQuantities(volumes, unit);
+    }
+
+    private static <U extends MetricUnit> QuantityColumn<U> ofQuantities(Quantity<?>[] quantities, U unit) {
+        double inverseFactor = 1.0 / unit.getFactor();
+        double[] values = new double[quantities.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = quantities[i].doubleValue() * inverseFactor;
+        }
+        return new QuantityColumn<>(values, unit);
+    }
+
+    /**
+     * Converts the column into another unit
+     * @param target the unit to convert to
+     * @return a new {@code QuantityColumn} object of the values in the target unit
+     */
+    public QuantityColumn<U> convertTo(U target) {
+        if (target.getExponent() == unit.getExponent()) {
+            return new QuantityColumn<>(values, target);
+        }
+        double[] result = new double[values.length];
+        scale(values, unit.getFactor() / target.getFactor(), result);
+        return new QuantityColumn<>(result, target);
+    }
+
+    /**
+     * Adds a column of the same dimension to this one, element by element. The result is in this column's unit
+     * @param other the column to add
+     * @return a new {@code QuantityColumn} object of the sums
+     * @throws IllegalArgumentException when the columns are different sizes
+     */
+    public QuantityColumn<U> add(QuantityColumn<U> other) {
+        double[] result = new double[checkSize(other)];
+        addScaled(values, other.values, other.unit.getFactor() / unit.getFactor(), result);
+        return new QuantityColumn<>(result, unit);
+    }
+
+    /**
+     * Subtracts a column of the same dimension from this one, element by element. The result is in this column's unit
+     * @param other the column to subtract
+     * @return a new {@code QuantityColumn} object of the differences
+     * @throws IllegalArgumentException when the columns are different sizes
+     */
+    public QuantityColumn<U> subtract(QuantityColumn<U> other) {
+        double[] result = new double[checkSize(other)];
+        addScaled(values, other.values, -other.unit.getFactor() / unit.getFactor(), result);
+        return new QuantityColumn<>(result, unit);
+    }
+
+    /**
+     * Multiplies every value of the column by a number
+     * @param factor the number to multiply by
+     * @return a new {@code QuantityColumn} object of the products
+     */
+    public QuantityColumn<U> scale(double factor) {
+        double[] result = new double[values.length];
+        scale(values, factor, result);
+        return new QuantityColumn<>(result, unit);
+    }
+
+    /**
+     * Divides every value of the column by a number
+     * @param divisor the number to divide by
+     * @return a new {@code QuantityColumn} object of the quotients
+     */
+    public QuantityColumn<U> divide(double divisor) {
+        return scale(1.0 / divisor);
+    }
+
+    /**
+     * Divides this column by another, element by element, with both in their base units. For example, dividing a
+     * column of moles by a column of volumes gives concentrations in moldm<sup>-3</sup>
+     * @param divisor the column to divide by
+     * @return the quotients, in the base unit of this column over the base unit of the divisor
+     * @throws IllegalArgumentException when the columns are different sizes
+     */
+    public double[] divide(QuantityColumn<?> divisor) {
+        double[] result = new double[checkSize(divisor)];
+        double factor = unit.getFactor() / divisor.unit.getFactor();
+        double[] divisorValues = divisor.values;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values[i] * factor / divisorValues[i];
+        }
+        return result;
+    }
+
+    /**
+     * Adds up every value of the column
+     * @return the total of the column, in its unit
+     */
+    public double sum() {
+        // Four accumulators break the dependency between additions, so they can be carried out side by side
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for (; i + 3 < values.length; i += 4) {
+            sum0 += values[i];
+            sum1 += values[i + 1];
+            sum2 += values[i + 2];
+            sum3 += values[i + 3];
+        }
+        for (; i < values.length; i++) {
+            sum0 += values[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Converts the column to fixed-point values, each a whole number of 10<sup>-decimalPlaces</sup> of the unit,
+     * rounded to the nearest
+     * @param decimalPlaces the number of decimal places to keep
+     * @return the fixed-point values
+     */
+    public long[] toFixedPoint(int decimalPlaces) {
+        double factor = Double.parseDouble("1e" + decimalPlaces);
+        long[] result = new long[values.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.round(values[i] * factor);
+        }
+        return result;
+    }
+
+    /**
+     * Gets a value of the column
+     * @param index the index of the value
+     * @return the value, in the unit of the column
+     */
+    public double get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Gets a value of the column as a {@code Mass} object
+     * @param index the index of the value
+     * @return the value as a {@code Mass} object
+     * @throws ClassCastException when the column isn't of masses
+     */
+    public Mass getMass(int index) {
+        return new Mass(values[index], (Mass.MetricMassUnit) unit);
+    }
+
+    /**
+     * Gets a value of the column as a {@code Volume} object
+     * @param index the index of the value
+     * @return the value as a {@code Volume} object
+     * @throws ClassCastException when the column isn't of volumes
+     */
+    public Volume getVolume(int index) {
+        return new Volume(values[index], (Volume.MetricVolumeUnit) unit);
+    }
+
+    /**
+     * Gets a copy of the values of the column
+     * @return a copy of the values of the column, in its unit
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Gets the number of values in the column
+     * @return the number of values in the column
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Gets the {@link #unit} of the column
+     * @return the {@link #unit} of the column
+     */
+    public U getUnit() {
+        return unit;
+    }
+
+    /**
+     * Generates a {@code String} representation of the {@code QuantityColumn} object
+     * @return a {@code String} representation of the {@code QuantityColumn} object
+     */
+    @Override
+    public String toString() {
+        if (values.length <= 8) {
+            return Arrays.toString(values) + " " + unit.getSymbol();
+        }
+        return "[" + values[0] + ", " + values[1] + ", ... " + values[values.length - 1] + "] (" + values.length +
+                " values) " + unit.getSymbol();
+    }
+
+    private int checkSize(QuantityColumn<?> other) {
+        if (other.values.length != values.length) {
+            throw new IllegalArgumentException("Columns are different sizes");
+        }
+        return values.length;
+    }
+
+    private static void scale(double[] source, double factor, double[] destination) {
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = source[i] * factor;
+        }
+    }
+
+    private static void addScaled(double[] a, double[] b, double factor, double[] destination) {
+        for (int i = 0; i < destination.length; i++) {
+            destination[i] = a[i] + b[i] * factor;
+        }
+    }
+
+    /**
+     * The values of the column, in its {@link #unit}
+     */
+    private final double[] values;
+
+    /**
+     * The unit of the values of the column
+     */
+    private final U unit;
+}
@@ -0,0 +1,245 @@
+package io.github.benjimarshall.chem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Quantity formatter. An immutable {@code QuantityFormatter} object writes quantities in engineering notation to a
+ * number of significant figures, with a choice of how the unit is written. The engineering exponent is worked out
+ * straight from the {@link BigDecimal#precision()} and {@link BigDecimal#scale()} of the value, rather than by
+ * repeatedly dividing, and text is appended into a caller-supplied {@link StringBuilder} or {@link Appendable}, so
+ * that many quantities can be written without building a {@code String} for each.
+ *
+ * @see Mass#getMass()
+ * @see Mole#toString()
+ */
+public final class QuantityFormatter {
+    /**
+     * Makes a {@code QuantityFormatter} object
+     * @param significantFigures the number of significant figures to write values to
+     * @param unitStyle how units are written after values
+     */
+    public QuantityFormatter(int significantFigures, UnitStyle unitStyle) {
+        if (significantFigures < 1) {
+            throw new IllegalArgumentException("At least one significant figure is needed");
+        }
+        if (unitStyle == null) {
+            throw new IllegalArgumentException("Unit style can't be null");
+        }
+        this.mathContext = new MathContext(significantFigures);
+        this.unitStyle = unitStyle;
+    }
+
+    /**
+     * Ways of writing a unit after a value
+     */
+    public enum UnitStyle {
+        /**
+         * The unit symbol straight after the value, for example {@code 3.00mg}
+         */
+        COMPACT,
+
+        /**
+         * The unit symbol after a space, for example {@code 3.00 mg}
+         */
+        SPACED,
+
+        /**
+         * The unit symbol after a space, using only ASCII characters, for example {@code 3.00 ug} for micrograms
+         */
+        ASCII
+    }
+
+    /**
+     * Formats a {@code Mass} object with the metric mass unit that keeps the value between 1 and 1000
+     * @param mass the {@code Mass} object to format
+     * @return the formatted mass
+     */
+    public String format(Mass mass) {
+        return append(new StringBuilder(12), mass).toString();
+    }
+
+    /**
+     * Formats a {@code Mole} object in engineering notation
+     * @param moles the {@code Mole} object to format
+     * @return the formatted number of moles
+     */
+    public String format(Mole moles) {
+        return append(new StringBuilder(12), moles).toString();
+    }
+
+    /**
+     * Appends a {@code Mass} object with the metric mass unit that keeps the value between 1 and 1000
+     * @param builder the {@code StringBuilder} to append to
+     * @param mass the {@code Mass} object to append
+     * @return the {@code StringBuilder}
+     */
+    public StringBuilder append(StringBuilder builder, Mass mass) {
+        // Pick the unit from the rounded value, so that 999.7mg is written as 1.00g rather than 1.00E+3mg
+        BigDecimal grams = mass.getValue().round(mathContext);
+        Mass.MetricMassUnit unit = grams.signum() == 0 ?
+                Mass.MetricMassUnit.g : Mass.MetricMassUnit.fromExponent(engineeringExponent(grams, -24, 24));
+
+        builder.append(mass.getValue(unit).round(mathContext).toEngineeringString());
+        return appendUnit(builder, unit.getSymbol());
+    }
+
+    /**
+     * Appends a {@code Mole} object in engineering notation
+     * @param builder the {@code StringBuilder} to append to
+     * @param moles the {@code Mole} object to append
+     * @return the {@code StringBuilder}
+     */
+    public StringBuilder append(StringBuilder builder, Mole moles) {
+        return append(builder, moles.getValue(), "mol");
+    }
+
+    /**
+     * Appends a {@code Volume} object in engineering notation, in dm<sup>3</sup>
+     * @param builder the {@code StringBuilder} to append to
+     * @param volume the {@code Volume} object to append
+     * @return the {@code StringBuilder}
+     */
+    public StringBuilder append(StringBuilder builder, Volume volume) {
+        return append(builder, volume.getValue(), Volume.MetricVolumeUnit.dm3.getSymbol());
+    }
+
+    /**
+     * Appends a {@code Concentration} object in engineering notation, in moldm<sup>-3</sup>
+     * @param builder the {@code StringBuilder} to append to
+     * @param concentration the {@code Concentration} object to append
+     * @return the {@code StringBuilder}
+     */
+    public StringBuilder append(StringBuilder builder, Concentration concentration) {
+        return append(builder, concentration.getValue(), "moldm-3");
+    }
+
+    /**
+     * Appends a value in engineering notation, followed by a unit
+     * @param builder the {@code StringBuilder} to append to
+     * @param value the value to append
+     * @param unit the symbol of the unit of the value
+     * @return the {@code StringBuilder}
+     */
+    public StringBuilder append(StringBuilder builder, BigDecimal value, String unit) {
+        builder.append(value.round(mathContext).toEngineeringString());
+        return appendUnit(builder, unit);
+    }
+
+    /**
+     * Appends a {@code Mass} object to an {@code Appendable}, with the metric mass unit that keeps the value between 1
+     * and 1000
+     * @param out the {@code Appendable} to append to
+     * @param mass the {@code Mass} object to append
+     * @param <A> the type of the {@code Appendable}
+     * @return the {@code Appendable}
+     * @throws UncheckedIOException when the {@code Appendable} can't be written to
+     */
+    public <A extends Appendable> A appendTo(A out, Mass mass) {
+        if (out instanceof StringBuilder) {
+            append((StringBuilder) out, mass);
+            return out;
+        }
+        return write(out, append(new StringBuilder(12), mass));
+    }
+
+    /**
+     * Appends a {@code Mole} object to an {@code Appendable} in engineering notation
+     * @param out the {@code Appendable} to append to
+     * @param moles the {@code Mole} object to append
+     * @param <A> the type of the {@code Appendable}
+     * @return the {@code Appendable}
+     * @throws UncheckedIOException when the {@code Appendable} can't be written to
+     */
+    public <A extends Appendable> A appendTo(A out, Mole moles) {
+        if (out instanceof StringBuilder) {
+            append((StringBuilder) out, moles);
+            return out;
+        }
+        return write(out, append(new StringBuilder(12), moles));
+    }
+
+    /**
+     * Appends a value to an {@code Appendable} in engineering notation, followed by a unit
+     * @param out the {@code Appendable} to append to
+     * @param value the value to append
+     * @param unit the symbol of the unit of the value
+     * @param <A> the type of the {@code Appendable}
+     * @return the {@code Appendable}
+     * @throws UncheckedIOException when the {@code Appendable} can't be written to
+     */
+    public <A extends Appendable> A appendTo(A out, BigDecimal value, String unit) {
+        if (out instanceof StringBuilder) {
+            append((StringBuilder) out, value, unit);
+            return out;
+        }
+        return write(out, append(new StringBuilder(12), value, unit));
+    }
+
+    /**
+     * Works out the power of ten, a multiple of 3, that brings a non-zero value to between 1 and 1000. The order of
+     * magnitude of a {@code BigDecimal} is one less than its precision minus its scale, so no arithmetic is needed
+     * @param value the non-zero value to find the exponent of
+     * @param minimum the smallest exponent that can be given
+     * @param maximum the largest exponent that can be given
+     * @return the engineering exponent of the value, limited to between the minimum and maximum
+     */
+    public static int engineeringExponent(BigDecimal value, int minimum, int maximum) {
+        int magnitude = value.precision() - value.scale() - 1;
+        int exponent = Math.floorDiv(magnitude, 3) * 3;
+        return Math.max(minimum, Math.min(maximum, exponent));
+    }
+
+    /**
+     * Gets the number of significant figures values are written to
+     * @return the number of significant figures values are written to
+     */
+    public int getSignificantFigures() {
+        return mathContext.getPrecision();
+    }
+
+    /**
+     * Gets the {@link #unitStyle} of the {@code QuantityFormatter} object
+     * @return the {@link #unitStyle} of the {@code QuantityFormatter} object
+     */
+    public UnitStyle getUnitStyle() {
+        return unitStyle;
+    }
+
+    private StringBuilder appendUnit(StringBuilder builder, String unit) {
+        switch (unitStyle) {
+            case SPACED:
+                return builder.append(' ').append(unit);
+            case ASCII:
+                return builder.append(' ').append(unit.replace('µ', 'u'));
+            default:
+                return builder.append(unit);
+        }
+    }
+
+    private static <A extends Appendable> A write(A out, CharSequence text) {
+        try {
+            out.append(text);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Three significant figures with compact units, which is how quantities have always been written
+     */
+    public static final QuantityFormatter DEFAULT = new QuantityFormatter(3, UnitStyle.COMPACT);
+
+    /**
+     * The significant figures values are written to
+     */
+    private final MathContext mathContext;
+
+    /**
+     * How units are written after values
+     */
+    private final UnitStyle unitStyle;
+}
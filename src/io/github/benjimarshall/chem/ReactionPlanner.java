@@ -0,0 +1,195 @@
+package io.github.benjimarshall.chem;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Reaction planner. A static class of static methods for working backwards through a balanced {@link Equation}, from
+ * the products that are wanted to the reactants that are needed to make them.
+ *
+ * <p>For example, to find the reactants needed to make 5 tonnes of ammonia at an 85% yield:</p>
+ * <pre>{@code
+ * HashMap<Molecule, Substance> reactants = ReactionPlanner.planReactants(new Equation("N2 + H2 -> NH3"),
+ *         new Substance("NH3", new Mass(5, Mass.MetricMassUnit.tonne)), new BigDecimal("0.85"));
+ * }</pre>
+ *
+ * @see SubstanceEquation
+ * @see StoichiometricMatrix
+ */
+public final class ReactionPlanner {
+    private ReactionPlanner() {
+
+    }
+
+    /**
+     * Finds the minimum quantities of reactants needed to make a target quantity of one product
+     * @param equation the balanced equation of the reaction
+     * @param target the product, with the quantity wanted
+     * @param yield the fraction of the theoretical yield which is achieved, greater than 0 and at most 1
+     * @return a map of each reactant to the quantity of it needed
+     * @throws IllegalArgumentException when the target is not a product of the equation, or the yield is out of range
+     */
+    public static HashMap<Molecule, Substance> planReactants(Equation equation, Substance target, BigDecimal yield)
+            throws IllegalArgumentException {
+        return planReactants(equation, Collections.singletonList(target), yield);
+    }
+
+    /**
+     * Finds the minimum quantities of reactants needed to make at least the target quantity of every one of a number of
+     * products, in a single pass over the targets
+     * @param equation the balanced equation of the reaction
+     * @param targets the products, with the quantities wanted
+     * @param yield the fraction of the theoretical yield which is achieved, greater than 0 and at most 1
+     * @return a map of each reactant to the quantity of it needed
+     * @throws IllegalArgumentException when a target is not a product of the equation, or the yield is out of range
+     */
+    public static HashMap<Molecule, Substance> planReactants(Equation equation, Collection<Substance> targets,
+                                                             BigDecimal yield) throws IllegalArgumentException {
+        if (yield.signum() <= 0 || yield.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Yield must be greater than 0 and at most 1");
+        }
+
+        StoichiometricMatrix stoichiometry = equation.getStoichiometry();
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return planReactants(stoichiometry, targets, yield.doubleValue());
+        }
+
+        // The reactant multiplier must be big enough to make the most demanding target
+        BigDecimal multiplier = BigDecimal.ZERO;
+        for (Substance target : targets) {
+            int index = findProduct(stoichiometry, target.getMolecule());
+            BigDecimal targetMultiplier = target.getMoles().getQuantity().divide(
+                    stoichiometry.getExactCoefficient(index), policy.getDivisionContext());
+            if (targetMultiplier.compareTo(multiplier) > 0) {
+                multiplier = targetMultiplier;
+            }
+        }
+
+        // Scale up to make up for the lost yield
+        multiplier = multiplier.divide(yield, policy.getDivisionContext());
+
+        // Generate the reactants
+        HashMap<Molecule, Substance> reactants = new HashMap<>();
+        for (int i = 0; i < stoichiometry.getReactantCount(); i++) {
+            reactants.put(stoichiometry.getSpecies(i), new Substance(stoichiometry.getSpecies(i),
+                    new Mole(multiplier.multiply(stoichiometry.getExactCoefficient(i), policy.getMathContext()))));
+        }
+        return reactants;
+    }
+
+    /**
+     * Finds the minimum quantities of reactants needed to make at least the target quantity of every one of a number of
+     * products with {@code double} arithmetic, for when the current {@link NumericPolicy} isn't exact
+     * @param stoichiometry the stoichiometry of the reaction
+     * @param targets the products, with the quantities wanted
+     * @param yield the fraction of the theoretical yield which is achieved, greater than 0 and at most 1
+     * @return a map of each reactant to the quantity of it needed
+     * @throws IllegalArgumentException when a target is not a product of the equation
+     */
+    private static HashMap<Molecule, Substance> planReactants(StoichiometricMatrix stoichiometry,
+                                                              Collection<Substance> targets, double yield)
+            throws IllegalArgumentException {
+        double multiplier = 0;
+        for (Substance target : targets) {
+            int index = findProduct(stoichiometry, target.getMolecule());
+            multiplier = Math.max(multiplier, target.getMoles().doubleValue() / stoichiometry.getCoefficient(index));
+        }
+        multiplier /= yield;
+
+        HashMap<Molecule, Substance> reactants = new HashMap<>();
+        for (int i = 0; i < stoichiometry.getReactantCount(); i++) {
+            reactants.put(stoichiometry.getSpecies(i), new Substance(stoichiometry.getSpecies(i),
+                    new Mole(multiplier * stoichiometry.getCoefficient(i))));
+        }
+        return reactants;
+    }
+
+    /**
+     * Finds the masses of reactants needed for each of a batch of target masses of one product, such as the runs of a
+     * production schedule. Masses are given and returned in the same units.
+     * @param equation the balanced equation of the reaction
+     * @param product the product being made
+     * @param targetMasses the masses of the product wanted, one per run
+     * @param yield the fraction of the theoretical yield which is achieved, greater than 0 and at most 1
+     * @return the masses of each reactant needed, as one column per reactant with one row per run, indexed in the
+     * order of the equation's {@link StoichiometricMatrix}
+     * @throws IllegalArgumentException when the product is not a product of the equation, or the yield is out of
+     * range
+     */
+    public static double[][] planReactantMasses(Equation equation, Molecule product, double[] targetMasses,
+                                                double yield) throws IllegalArgumentException {
+        return planReactantMasses(equation, product, targetMasses, Mass.MetricMassUnit.g, Mass.MetricMassUnit.g,
+                yield);
+    }
+
+    /**
+     * Finds the masses of reactants needed for each of a batch of target masses of one product, such as the runs of a
+     * production schedule
+     * @param equation the balanced equation of the reaction
+     * @param product the product being made
+     * @param targetMasses the masses of the product wanted, one per run
+     * @param targetUnit the units of the target masses
+     * @param reactantUnit the units to give the reactant masses in
+     * @param yield the fraction of the theoretical yield which is achieved, greater than 0 and at most 1
+     * @return the masses of each reactant needed, as one column per reactant with one row per run, indexed in the
+     * order of the equation's {@link StoichiometricMatrix}
+     * @throws IllegalArgumentException when the product is not a product of the equation, or the yield is out of
+     * range
+     */
+    public static double[][] planReactantMasses(Equation equation, Molecule product, double[] targetMasses,
+                                                Mass.MetricMassUnit targetUnit, Mass.MetricMassUnit reactantUnit,
+                                                double yield) throws IllegalArgumentException {
+        if (!(yield > 0 && yield <= 1)) {
+            throw new IllegalArgumentException("Yield must be greater than 0 and at most 1");
+        }
+
+        StoichiometricMatrix stoichiometry = equation.getStoichiometry();
+        int productIndex = findProduct(stoichiometry, product);
+        double productRFM = stoichiometry.getSpecies(productIndex).getRelativeFormulaMass().doubleValue();
+        double unitFactor = targetUnit.getFactor() / reactantUnit.getFactor();
+
+        double[][] reactantMasses = new double[stoichiometry.getReactantCount()][];
+        for (int r = 0; r < reactantMasses.length; r++) {
+            // Every run scales linearly, so fold the whole conversion into one factor per reactant
+            double factor = stoichiometry.getRatio(productIndex, r) *
+                    stoichiometry.getSpecies(r).getRelativeFormulaMass().doubleValue() / productRFM / yield *
+                    unitFactor;
+
+            double[] column = new double[targetMasses.length];
+            for (int row = 0; row < targetMasses.length; row++) {
+                column[row] = targetMasses[row] * factor;
+            }
+            reactantMasses[r] = column;
+        }
+        return reactantMasses;
+    }
+
+    /**
+     * Finds the index of a product in the stoichiometry of an equation
+     * @param stoichiometry the stoichiometry of the equation
+     * @param product the product to find
+     * @return the index of the product
+     * @throws IllegalArgumentException when the molecule is not a product of the equation
+     */
+    private static int findProduct(StoichiometricMatrix stoichiometry, Molecule product)
+            throws IllegalArgumentException {
+        int index = stoichiometry.indexOf(product);
+        if (index != -1 && stoichiometry.isReactant(index)) {
+            // A molecule on both sides is indexed as a reactant, so look for it among the products
+            index = -1;
+            for (int i = stoichiometry.getReactantCount(); i < stoichiometry.getSpeciesCount(); i++) {
+                if (stoichiometry.getSpecies(i).equals(product)) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+        if (index == -1 || stoichiometry.getCoefficient(index) == 0) {
+            throw new IllegalArgumentException("Product not found");
+        }
+        return index;
+    }
+}
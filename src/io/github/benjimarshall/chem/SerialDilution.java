@@ -0,0 +1,215 @@
+package io.github.benjimarshall.chem;
+
+/**
+ * Serial dilution plan. An immutable {@code SerialDilution} object describes a series of wells, where each well
+ * receives a transfer from the one before it and is made up with diluent. Applying the plan to a starting
+ * {@link Mixture} works out every well in one pass, from the running product of the dilution factors, without making
+ * a {@code Mixture} or {@link Solution} for each step.
+ * <p>
+ * As with {@code Mixture}, volumes and concentrations are {@code double}s whatever the current {@link NumericPolicy},
+ * so the only rounding is that of {@code double} arithmetic, rather than rounding each step to a fixed number of
+ * significant figures as {@code Solution} does.
+ *
+ * @see Mixture
+ */
+public final class SerialDilution {
+    /**
+     * Constructs a {@code SerialDilution} object from the volumes of each step
+     * @param transferVolumes the volume moved into each well from the one before it, in litres. The first is taken
+     *                        from the starting mixture
+     * @param diluentVolumes the volume of diluent in each well, in litres
+     * @throws IllegalArgumentException when the arrays are different lengths, a transfer isn't positive, or a diluent
+     * volume is negative, or a volume isn't finite
+     */
+    public SerialDilution(double[] transferVolumes, double[] diluentVolumes) {
+        if (transferVolumes.length != diluentVolumes.length) {
+            throw new IllegalArgumentException("Transfer and diluent volumes are different lengths");
+        }
+        for (int i = 0; i < transferVolumes.length; i++) {
+            // Written so that NaN fails the checks too
+            if (!(transferVolumes[i] > 0 && diluentVolumes[i] >= 0) ||
+                    Double.isInfinite(transferVolumes[i]) || Double.isInfinite(diluentVolumes[i])) {
+                throw new IllegalArgumentException("Volumes must be positive and finite");
+            }
+        }
+        this.transferVolumes = transferVolumes.clone();
+        this.diluentVolumes = diluentVolumes.clone();
+    }
+
+    /**
+     * Makes a {@code SerialDilution} object where every step dilutes by the same factor, with the same volume left in
+     * each well, such as a 1 in 2 dilution across a plate row
+     * @param factor the dilution factor of each step, such as 2 for a 1 in 2 dilution
+     * @param wellVolume the volume left in each well once the transfer to the next has been taken, in litres
+     * @param steps the number of wells
+     * @return a {@code SerialDilution} object of the plan
+     * @throws IllegalArgumentException when the factor isn't more than 1, the well volume isn't positive, or the
+     * number of wells is negative
+     */
+    public static SerialDilution ofFactor(double factor, double wellVolume, int steps) {
+        // A factor of 1 would need an infinite transfer to leave any volume in the well
+        if (!(factor > 1)) {
+            throw new IllegalArgumentException("Dilution factor must be more than 1");
+        }
+        if (steps < 0) {
+            throw new IllegalArgumentException("Number of wells can't be negative");
+        }
+        // Each well holds wellVolume plus the transfer onwards, and the transfer is 1/factor of that
+        double transfer = wellVolume / (factor - 1);
+        double[] transferVolumes = new double[steps];
+        double[] diluentVolumes = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            transferVolumes[i] = transfer;
+            diluentVolumes[i] = transfer * (factor - 1);
+        }
+        return new SerialDilution(transferVolumes, diluentVolumes);
+    }
+
+    /**
+     * Applies the plan to a starting mixture
+     * @param source the starting mixture, which the first transfer is taken from
+     * @return the wells of the plan
+     * @throws IllegalArgumentException when the first transfer is more than the volume of the starting mixture
+     */
+    public Result apply(Mixture source) {
+        int steps = transferVolumes.length;
+        if (steps > 0 && transferVolumes[0] > source.getVolume()) {
+            throw new IllegalArgumentException("The first transfer is more than the starting mixture");
+        }
+
+        // The concentration in each well is the starting concentration times the product of the factors so far, and
+        // the volume left is what was made up less what was taken onwards
+        double[] cumulativeFactors = new double[steps];
+        double[] wellVolumes = new double[steps];
+        double factor = 1;
+        for (int i = 0; i < steps; i++) {
+            double made = transferVolumes[i] + diluentVolumes[i];
+            factor *= transferVolumes[i] / made;
+            cumulativeFactors[i] = factor;
+            wellVolumes[i] = i + 1 < steps ? made - transferVolumes[i + 1] : made;
+            if (wellVolumes[i] < 0) {
+                throw new IllegalArgumentException("Well " + i + " can't supply the next transfer");
+            }
+        }
+
+        double[] startConcentrations = source.getConcentrations();
+        double[][] concentrations = new double[startConcentrations.length][steps];
+        for (int s = 0; s < startConcentrations.length; s++) {
+            double start = startConcentrations[s];
+            double[] row = concentrations[s];
+            for (int i = 0; i < steps; i++) {
+                row[i] = start * cumulativeFactors[i];
+            }
+        }
+
+        return new Result(source, cumulativeFactors, wellVolumes, concentrations);
+    }
+
+    /**
+     * Gets the number of wells in the plan
+     * @return the number of wells in the plan
+     */
+    public int getSteps() {
+        return transferVolumes.length;
+    }
+
+    /**
+     * The wells of a serial dilution
+     */
+    public static final class Result {
+        private Result(Mixture source, double[] cumulativeFactors, double[] wellVolumes, double[][] concentrations) {
+            this.source = source;
+            this.cumulativeFactors = cumulativeFactors;
+            this.wellVolumes = wellVolumes;
+            this.concentrations = concentrations;
+        }
+
+        /**
+         * Gets the concentration of a species in a well
+         * @param species the index of the species in the starting mixture
+         * @param well the index of the well
+         * @return the concentration in moldm<sup>-3</sup>
+         */
+        public double getConcentration(int species, int well) {
+            return concentrations[species][well];
+        }
+
+        /**
+         * Gets the concentration of a species in every well
+         * @param species the index of the species in the starting mixture
+         * @return the concentration in each well in moldm<sup>-3</sup>
+         */
+        public double[] getConcentrations(int species) {
+            return concentrations[species].clone();
+        }
+
+        /**
+         * Gets the total dilution of a well compared to the starting mixture
+         * @param well the index of the well
+         * @return the concentration in the well as a fraction of the starting concentration
+         */
+        public double getCumulativeFactor(int well) {
+            return cumulativeFactors[well];
+        }
+
+        /**
+         * Gets the volume left in a well, once the transfer to the next has been taken
+         * @param well the index of the well
+         * @return the volume left in the well in litres
+         */
+        public double getWellVolume(int well) {
+            return wellVolumes[well];
+        }
+
+        /**
+         * Makes a {@code Mixture} object of what is left in a well
+         * @param well the index of the well
+         * @return a {@code Mixture} object of the well
+         */
+        public Mixture getWell(int well) {
+            double[] moles = new double[concentrations.length];
+            for (int s = 0; s < moles.length; s++) {
+                moles[s] = concentrations[s][well] * wellVolumes[well];
+            }
+            return source.withAmounts(moles, wellVolumes[well]);
+        }
+
+        /**
+         * Gets the number of wells
+         * @return the number of wells
+         */
+        public int size() {
+            return wellVolumes.length;
+        }
+
+        /**
+         * The starting mixture
+         */
+        private final Mixture source;
+
+        /**
+         * The total dilution of each well
+         */
+        private final double[] cumulativeFactors;
+
+        /**
+         * The volume left in each well in litres
+         */
+        private final double[] wellVolumes;
+
+        /**
+         * The concentration of each species in each well, by species then well
+         */
+        private final double[][] concentrations;
+    }
+
+    /**
+     * The volume moved into each well from the one before it, in litres
+     */
+    private final double[] transferVolumes;
+
+    /**
+     * The volume of diluent in each well, in litres
+     */
+    private final double[] diluentVolumes;
+}
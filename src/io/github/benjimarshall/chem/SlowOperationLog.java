@@ -0,0 +1,451 @@
+package io.github.benjimarshall.chem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Log of slow operations. When a threshold is set, every {@link Molecule} interpretation and {@link Equation}
+ * construction that takes longer than it is recorded as an {@link Entry}, with its input text, how it was balanced,
+ * how long it took and how many nodes the brute force balancer visited.
+ * <p>
+ * Entries are kept in a ring buffer of a fixed capacity, 256 by default, where the newest entries replace the oldest,
+ * and can also be appended to a rolling file, one tab separated line for each entry, which moves to {@code file.1},
+ * {@code file.2} and so on when it grows past a size. Either can be read back with {@link Entry#parse(String)}, so that
+ * the offending inputs can be replayed, for example through the benchmark harness.
+ * <p>
+ * The log is off by default, and while it is off each instrumented operation costs one read of a flag. Only slow
+ * operations take the log's lock, so operations under the threshold never wait for each other.
+ */
+public final class SlowOperationLog {
+    private SlowOperationLog() {
+
+    }
+
+    /**
+     * The kind of operation that was slow
+     */
+    public enum Kind {
+        /**
+         * Interpreting a formula as a {@link Molecule}
+         */
+        MOLECULE,
+        /**
+         * Interpreting and balancing an {@link Equation}
+         */
+        EQUATION
+    }
+
+    /**
+     * A slow operation. An {@code Entry} object is immutable
+     */
+    public static final class Entry {
+        /**
+         * Constructs an {@code Entry} object
+         * @param timestamp when the operation finished, in milliseconds since the epoch
+         * @param kind the kind of operation
+         * @param durationNanos how long the operation took, in nanoseconds
+         * @param strategy how the equation was balanced, or {@code null} for molecules and equations that couldn't be
+         *                 interpreted
+         * @param bruteForceNodes the number of nodes the brute force balancer visited
+         * @param input the formula or equation, without tabs or line breaks
+         */
+        public Entry(long timestamp, Kind kind, long durationNanos, Metrics.Strategy strategy, long bruteForceNodes,
+                     String input) {
+            this.timestamp = timestamp;
+            this.kind = kind;
+            this.durationNanos = durationNanos;
+            this.strategy = strategy;
+            this.bruteForceNodes = bruteForceNodes;
+            this.input = input;
+        }
+
+        /**
+         * Reads an {@code Entry} object from a line written by {@link #toString()}
+         * @param line the line
+         * @return the {@code Entry} object
+         * @throws IllegalArgumentException when the line isn't an entry
+         */
+        public static Entry parse(String line) throws IllegalArgumentException {
+            String[] fields = line.split("\t", 6);
+            if (fields.length != 6) {
+                throw new IllegalArgumentException("Expected 6 tab separated fields: " + line);
+            }
+            return new Entry(Long.parseLong(fields[0]), Kind.valueOf(fields[1]), Long.parseLong(fields[2]),
+                    fields[3].equals("-") ? null : Metrics.Strategy.valueOf(fields[3]), Long.parseLong(fields[4]),
+                    fields[5]);
+        }
+
+        /**
+         * Gets the strategies tried, in order, such as {@code SUBSTITUTION>BRUTE_FORCE}
+         * @return the strategies tried, separated by {@code >}, or {@code -} if none were
+         */
+        public String getStrategyPath() {
+            if (strategy == null) {
+                return "-";
+            }
+            switch (strategy) {
+                case ALREADY_BALANCED:
+                    return "ALREADY_BALANCED";
+                case SUBSTITUTION:
+                    return "SUBSTITUTION";
+                case BRUTE_FORCE:
+                    return "SUBSTITUTION>BRUTE_FORCE";
+                default:
+                    return "SUBSTITUTION>BRUTE_FORCE>FAILED";
+            }
+        }
+
+        /**
+         * Gets the {@code Entry} object as a tab separated line of the timestamp, kind, duration in nanoseconds,
+         * strategy, brute force nodes and input, which {@link #parse(String)} reads
+         * @return the {@code Entry} object as a tab separated line
+         */
+        @Override
+        public String toString() {
+            return timestamp + "\t" + kind + "\t" + durationNanos + "\t" + (strategy == null ? "-" : strategy.name()) +
+                    "\t" + bruteForceNodes + "\t" + input;
+        }
+
+        /**
+         * Gets the {@link #timestamp} of the {@code Entry} object
+         * @return the {@link #timestamp} of the {@code Entry} object
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Gets the {@link #kind} of the {@code Entry} object
+         * @return the {@link #kind} of the {@code Entry} object
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Gets the {@link #durationNanos} of the {@code Entry} object
+         * @return the {@link #durationNanos} of the {@code Entry} object
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * Gets the {@link #strategy} of the {@code Entry} object
+         * @return the {@link #strategy} of the {@code Entry} object
+         */
+        public Metrics.Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * Gets the {@link #bruteForceNodes} of the {@code Entry} object
+         * @return the {@link #bruteForceNodes} of the {@code Entry} object
+         */
+        public long getBruteForceNodes() {
+            return bruteForceNodes;
+        }
+
+        /**
+         * Gets the {@link #input} of the {@code Entry} object
+         * @return the {@link #input} of the {@code Entry} object
+         */
+        public String getInput() {
+            return input;
+        }
+
+        /**
+         * When the operation finished, in milliseconds since the epoch
+         */
+        private final long timestamp;
+
+        /**
+         * The kind of operation
+         */
+        private final Kind kind;
+
+        /**
+         * How long the operation took, in nanoseconds
+         */
+        private final long durationNanos;
+
+        /**
+         * How the equation was balanced, or {@code null}
+         */
+        private final Metrics.Strategy strategy;
+
+        /**
+         * The number of nodes the brute force balancer visited
+         */
+        private final long bruteForceNodes;
+
+        /**
+         * The formula or equation, with any tabs and line breaks replaced by spaces
+         */
+        private final String input;
+    }
+
+    /**
+     * Starts recording operations slower than a threshold
+     * @param thresholdNanos the threshold, in nanoseconds
+     * @throws IllegalArgumentException when the threshold is negative
+     */
+    public static void setThreshold(long thresholdNanos) throws IllegalArgumentException {
+        if (thresholdNanos < 0) {
+            throw new IllegalArgumentException("The threshold can't be negative");
+        }
+        SlowOperationLog.thresholdNanos = thresholdNanos;
+        enabled = true;
+    }
+
+    /**
+     * Stops recording slow operations. Entries already recorded are kept, and the rolling file is closed
+     */
+    public static void disable() {
+        enabled = false;
+        try {
+            setFile(null, 0, 0);
+        } catch (IOException e) {
+            // Closing can't fail in a way that matters once no more entries will be written
+        }
+    }
+
+    /**
+     * Checks whether slow operations are being recorded
+     * @return whether slow operations are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the {@link #thresholdNanos}
+     * @return the {@link #thresholdNanos}
+     */
+    public static long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Sets how many entries the ring buffer keeps, clearing it
+     * @param capacity the number of entries kept
+     * @throws IllegalArgumentException when the capacity isn't positive
+     */
+    public static synchronized void setCapacity(int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        ring = new Entry[capacity];
+        recorded = 0;
+    }
+
+    /**
+     * Sets the rolling file that entries are appended to, closing any earlier file
+     * @param file the file, or {@code null} to only keep entries in memory
+     * @param maxBytes the size past which the file is moved to {@code file.1}, and a new file started
+     * @param maxFiles the number of old files kept, as {@code file.1} up to {@code file.maxFiles}
+     * @throws IOException when the file can't be opened
+     * @throws IllegalArgumentException when the size or number of old files isn't positive
+     */
+    public static synchronized void setFile(Path file, long maxBytes, int maxFiles)
+            throws IOException, IllegalArgumentException {
+        if (writer != null) {
+            BufferedWriter oldWriter = writer;
+            writer = null;
+            oldWriter.close();
+        }
+        SlowOperationLog.file = null;
+        if (file == null) {
+            return;
+        }
+        if (maxBytes < 1 || maxFiles < 1) {
+            throw new IllegalArgumentException("The file size and the number of old files must be positive");
+        }
+
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        SlowOperationLog.file = file;
+        SlowOperationLog.maxBytes = maxBytes;
+        SlowOperationLog.maxFiles = maxFiles;
+        fileBytes = Files.size(file);
+        fileError = null;
+    }
+
+    /**
+     * Gets why writing to the rolling file last failed, after which entries are only kept in memory
+     * @return the exception that stopped the file being written, or {@code null} if it hasn't failed
+     */
+    public static synchronized IOException getFileError() {
+        return fileError;
+    }
+
+    /**
+     * Gets every entry in the ring buffer
+     * @return the entries, oldest first
+     */
+    public static synchronized List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>();
+        long first = Math.max(0, recorded - ring.length);
+        for (long i = first; i < recorded; i++) {
+            entries.add(ring[(int) (i % ring.length)]);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of slow operations recorded, including those since replaced in the ring buffer
+     * @return the number of slow operations recorded
+     */
+    public static synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Clears the ring buffer, leaving the rolling file alone
+     */
+    public static synchronized void clear() {
+        ring = new Entry[ring.length];
+        recorded = 0;
+    }
+
+    /**
+     * Starts timing an operation
+     * @return the time the operation started, to pass to {@link #record(Kind, String, Metrics.Strategy, long, long)}
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Records an operation if it took longer than the threshold
+     * @param kind the kind of operation
+     * @param input the formula or equation, as given
+     * @param strategy how the equation was balanced, or {@code null}
+     * @param bruteForceNodes the number of nodes the brute force balancer visited
+     * @param start the time the operation started, from {@link #start()}
+     */
+    static void record(Kind kind, String input, Metrics.Strategy strategy, long bruteForceNodes, long start) {
+        if (start == NOT_TIMED || !enabled) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        if (duration > thresholdNanos) {
+            add(new Entry(System.currentTimeMillis(), kind, duration, strategy, bruteForceNodes,
+                    LINE_BREAKS_AND_TABS.matcher(input).replaceAll(" ")));
+        }
+    }
+
+    private static synchronized void add(Entry entry) {
+        ring[(int) (recorded++ % ring.length)] = entry;
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            String line = entry + System.lineSeparator();
+            int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+            if (fileBytes > 0 && fileBytes + lineBytes > maxBytes) {
+                roll();
+            }
+            writer.write(line);
+            // Flushed every time, so that the slowest inputs survive the process being killed
+            writer.flush();
+            fileBytes += lineBytes;
+        } catch (IOException e) {
+            fileError = e;
+            try {
+                setFile(null, 0, 0);
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+        }
+    }
+
+    /**
+     * Moves the rolling file to {@code file.1}, and each older file up by one, dropping the oldest, then starts a new
+     * file
+     * @throws IOException when a file can't be moved or opened
+     */
+    private static void roll() throws IOException {
+        writer.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = Paths.get(file + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        fileBytes = 0;
+    }
+
+    /**
+     * The start time returned when the log is off, so that the matching record does nothing
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * Matches the characters that would break an entry's line
+     */
+    private static final Pattern LINE_BREAKS_AND_TABS = Pattern.compile("[\t\r\n]");
+
+    /**
+     * Whether slow operations are being recorded
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * Operations that take longer than this, in nanoseconds, are recorded
+     */
+    private static volatile long thresholdNanos = Long.MAX_VALUE;
+
+    /**
+     * The ring buffer of entries, which wraps around once full
+     */
+    private static Entry[] ring = new Entry[256];
+
+    /**
+     * The number of entries recorded since the ring buffer was last cleared
+     */
+    private static long recorded;
+
+    /**
+     * The rolling file, or {@code null}
+     */
+    private static Path file;
+
+    /**
+     * Writes to the rolling file, or {@code null} if there isn't one
+     */
+    private static BufferedWriter writer;
+
+    /**
+     * The size of the rolling file, in bytes
+     */
+    private static long fileBytes;
+
+    /**
+     * The size past which the rolling file is moved aside
+     */
+    private static long maxBytes;
+
+    /**
+     * The number of old rolling files kept
+     */
+    private static int maxFiles;
+
+    /**
+     * Why writing to the rolling file last failed, or {@code null}
+     */
+    private static IOException fileError;
+}
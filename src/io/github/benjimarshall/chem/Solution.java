@@ -1,12 +1,11 @@
 package io.github.benjimarshall.chem;
 
-import java.math.MathContext;
-import java.math.RoundingMode;
-
 /**
  * A Chemical Solution, a {@link Substance} object with a {@link Volume} and {@link Concentration}. The
  * {@code Solution} class extends the {@code Substance} class. It has all of the extended fields and methods of the
  * {@code Substance} class, as well as a {@code Volume} and {@code Concentration} object.
+ * <p>
+ * Like {@code Substance} objects, {@code Solution} objects are immutable and can be shared between threads.
  */
 public class Solution extends Substance {
     /**
@@ -137,14 +136,19 @@ public class Solution extends Substance {
 
     /**
      * Calculates the {@code Concentration} of a solution, from the number of {@code Mole}s of the solute, and the
-     * {@code Volume} of the solution
+     * {@code Volume} of the solution. Exact results are rounded to the result precision of the current
+     * {@link NumericPolicy}
      * @param moles the number of {@code Mole}s of the solute
      * @param volume the {@code Volume} of the solution
      * @return the {@code Concentration} of the solution
      */
     public static Concentration calculateConcentration(Mole moles, Volume volume) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return new Concentration(moles.doubleValue() / volume.doubleValue());
+        }
         return new Concentration(moles.getQuantity().divide(volume.getVolumeInLitres(),
-                new MathContext(5, RoundingMode.HALF_UP)));
+                policy.getResultContext()));
     }
 
     /**
@@ -155,8 +159,12 @@ public class Solution extends Substance {
      * @return the {@code Volume} of the solution
      */
     public static Volume calculateVolume(Mole moles, Concentration concentration) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return new Volume(moles.doubleValue() / concentration.doubleValue());
+        }
         return new Volume(moles.getQuantity().divide(concentration.getConcentration(),
-                new MathContext(5, RoundingMode.HALF_UP)));
+                policy.getResultContext()));
     }
 
     /**
@@ -167,8 +175,12 @@ public class Solution extends Substance {
      * @return the number of {@code Mole}s of the solute
      */
     public static Mole calculateMoles(Volume volume, Concentration concentration) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return new Mole(volume.doubleValue() * concentration.doubleValue());
+        }
         return new Mole(volume.getVolumeInLitres().multiply(concentration.getConcentration(),
-                new MathContext(5, RoundingMode.HALF_UP)));
+                policy.getResultContext()));
     }
 
     /**
@@ -199,10 +211,10 @@ public class Solution extends Substance {
     /**
      * The volume of the {@code Solution} object, as a {@link Volume} object.
      */
-    protected Volume volume;
+    protected final Volume volume;
 
     /**
      * The concentration of the {@code Solution} object, as a {@link Concentration} object.
      */
-    protected Concentration concentration;
+    protected final Concentration concentration;
 }
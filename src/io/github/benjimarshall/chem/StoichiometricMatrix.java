@@ -0,0 +1,206 @@
+package io.github.benjimarshall.chem;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stoichiometric representation of a balanced {@link Equation}. An immutable {@code StoichiometricMatrix} object
+ * consists of an index of the species in the equation, their coefficients, and a table of the molar ratios between
+ * every pair of species, in both {@code double} and exact {@link Fraction} form.
+ *
+ * <p>Species are indexed with the reactants first, followed by the products, so reactant {@code i} has the index
+ * {@code i} and product {@code j} has the index {@link #getReactantCount()} {@code + j}.</p>
+ *
+ * @see Equation#getStoichiometry()
+ */
+public final class StoichiometricMatrix {
+    /**
+     * Constructs a {@code StoichiometricMatrix} object from the reactants and products of a balanced equation
+     * @param reactants the reactants of the equation, with their coefficients
+     * @param products the products of the equation, with their coefficients
+     */
+    StoichiometricMatrix(Map<Molecule, Integer> reactants, Map<Molecule, Integer> products) {
+        this.reactantCount = reactants.size();
+        int size = reactants.size() + products.size();
+
+        this.species = new Molecule[size];
+        this.coefficients = new int[size];
+        HashMap<Molecule, Integer> index = new HashMap<>();
+
+        // Index the reactants, then the products
+        int position = 0;
+        for (Map.Entry<Molecule, Integer> reactant : reactants.entrySet()) {
+            species[position] = reactant.getKey();
+            coefficients[position] = reactant.getValue();
+            index.put(reactant.getKey(), position++);
+        }
+        for (Map.Entry<Molecule, Integer> product : products.entrySet()) {
+            species[position] = product.getKey();
+            coefficients[position] = product.getValue();
+            // A molecule on both sides keeps its reactant index
+            if (!index.containsKey(product.getKey())) {
+                index.put(product.getKey(), position);
+            }
+            position++;
+        }
+        this.index = Collections.unmodifiableMap(index);
+
+        // Build the ratio tables, ratio[from][to] being the moles of "to" per mole of "from"
+        this.ratios = new double[size][size];
+        this.exactRatios = new Fraction[size][size];
+        this.exactCoefficients = new BigDecimal[size];
+        for (int from = 0; from < size; from++) {
+            exactCoefficients[from] = BigDecimal.valueOf(coefficients[from]);
+            for (int to = 0; to < size; to++) {
+                // A coefficient of zero has no meaningful ratio
+                if (coefficients[from] == 0) {
+                    ratios[from][to] = Double.NaN;
+                    exactRatios[from][to] = null;
+                }
+                else {
+                    ratios[from][to] = (double) coefficients[to] / coefficients[from];
+                    exactRatios[from][to] = Fraction.getReducedFraction(coefficients[to], coefficients[from]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the index of a species in the {@code StoichiometricMatrix} object
+     * @param molecule the species to find the index of
+     * @return the index of the species, or {@code -1} if it is not involved in the equation
+     */
+    public int indexOf(Molecule molecule) {
+        Integer position = index.get(molecule);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Gets the species at an index
+     * @param index the index of the species
+     * @return the species at the index
+     */
+    public Molecule getSpecies(int index) {
+        return species[index];
+    }
+
+    /**
+     * Gets the coefficient of the species at an index
+     * @param index the index of the species
+     * @return the coefficient of the species at the index
+     */
+    public int getCoefficient(int index) {
+        return coefficients[index];
+    }
+
+    /**
+     * Gets the coefficient of the species at an index as a {@code BigDecimal}
+     * @param index the index of the species
+     * @return the coefficient of the species at the index as a {@code BigDecimal}
+     */
+    public BigDecimal getExactCoefficient(int index) {
+        return exactCoefficients[index];
+    }
+
+    /**
+     * Gets the number of moles of one species reacting with, or produced by, one mole of another species
+     * @param from the index of the species with a known number of moles
+     * @param to the index of the species to find the number of moles of
+     * @return the molar ratio of {@code to} per mole of {@code from}, or {@code NaN} if {@code from} has a
+     * coefficient of zero
+     */
+    public double getRatio(int from, int to) {
+        return ratios[from][to];
+    }
+
+    /**
+     * Gets the exact number of moles of one species reacting with, or produced by, one mole of another species
+     * @param from the index of the species with a known number of moles
+     * @param to the index of the species to find the number of moles of
+     * @return the molar ratio of {@code to} per mole of {@code from}, or {@code null} if {@code from} has a coefficient
+     * of zero
+     */
+    public Fraction getExactRatio(int from, int to) {
+        return exactRatios[from][to];
+    }
+
+    /**
+     * Gets whether the species at an index is a reactant
+     * @param index the index of the species
+     * @return whether the species at the index is a reactant
+     */
+    public boolean isReactant(int index) {
+        return index < reactantCount;
+    }
+
+    /**
+     * Gets the number of species in the equation
+     * @return the number of species in the equation
+     */
+    public int getSpeciesCount() {
+        return species.length;
+    }
+
+    /**
+     * Gets the number of reactants in the equation
+     * @return the number of reactants in the equation
+     */
+    public int getReactantCount() {
+        return reactantCount;
+    }
+
+    /**
+     * Gets the number of products in the equation
+     * @return the number of products in the equation
+     */
+    public int getProductCount() {
+        return species.length - reactantCount;
+    }
+
+    /**
+     * Gets a copy of the coefficient vector, indexed by species
+     * @return a copy of the coefficient vector
+     */
+    public int[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * The species of the equation, reactants first
+     */
+    private final Molecule[] species;
+
+    /**
+     * A map of each species to its index
+     */
+    private final Map<Molecule, Integer> index;
+
+    /**
+     * The coefficient of each species
+     */
+    private final int[] coefficients;
+
+    /**
+     * The coefficient of each species, as a {@code BigDecimal}
+     */
+    private final BigDecimal[] exactCoefficients;
+
+    /**
+     * The number of reactants, and so the index of the first product
+     */
+    private final int reactantCount;
+
+    /**
+     * The molar ratio table, {@code ratios[from][to]}
+     */
+    private final double[][] ratios;
+
+    /**
+     * The exact molar ratio table, {@code exactRatios[from][to]}
+     */
+    private final Fraction[][] exactRatios;
+}
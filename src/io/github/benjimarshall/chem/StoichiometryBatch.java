@@ -0,0 +1,253 @@
+package io.github.benjimarshall.chem;
+
+import java.util.stream.IntStream;
+
+/**
+ * Batch stoichiometry calculator. A {@code StoichiometryBatch} object runs many input-quantity scenarios against one
+ * balanced {@link Equation}, finding the limiting reagent, the excess of each reactant and the amount of each product
+ * for every scenario.
+ *
+ * <p>Amounts are held in columns, one {@code double[]} per species, indexed in the order of the equation's
+ * {@link StoichiometricMatrix}. Column {@code r} of the input is reactant {@code r}, and column {@code p} of the
+ * products is the species at index {@link StoichiometricMatrix#getReactantCount()} {@code + p}. A {@code NaN} reactant
+ * amount means that the amount is unknown, so that reactant is assumed to be in excess, as with
+ * {@link SubstanceEquation#fillInSubstances()}.</p>
+ *
+ * @see SubstanceEquation
+ * @see StoichiometricMatrix
+ */
+public final class StoichiometryBatch {
+    /**
+     * Constructs a {@code StoichiometryBatch} object for a balanced equation
+     * @param equation the balanced equation to run scenarios against
+     */
+    public StoichiometryBatch(Equation equation) {
+        this.stoichiometry = equation.getStoichiometry();
+
+        this.reactantCoefficients = new double[stoichiometry.getReactantCount()];
+        this.productCoefficients = new double[stoichiometry.getProductCount()];
+        this.relativeFormulaMasses = new double[stoichiometry.getSpeciesCount()];
+
+        for (int i = 0; i < stoichiometry.getSpeciesCount(); i++) {
+            if (stoichiometry.isReactant(i)) {
+                reactantCoefficients[i] = stoichiometry.getCoefficient(i);
+            }
+            else {
+                productCoefficients[i - stoichiometry.getReactantCount()] = stoichiometry.getCoefficient(i);
+            }
+            relativeFormulaMasses[i] = stoichiometry.getSpecies(i).getRelativeFormulaMass().doubleValue();
+        }
+    }
+
+    /**
+     * Runs every scenario sequentially
+     * @param reactantMoles the moles of each reactant, as one column per reactant with one row per scenario
+     * @return the results of every scenario
+     * @throws IllegalArgumentException when there is not one column per reactant, or the columns differ in length
+     */
+    public Result run(double[][] reactantMoles) throws IllegalArgumentException {
+        return run(reactantMoles, false);
+    }
+
+    /**
+     * Runs every scenario, optionally splitting the rows across the common fork-join pool
+     * @param reactantMoles the moles of each reactant, as one column per reactant with one row per scenario
+     * @param parallel whether to process blocks of rows in parallel
+     * @return the results of every scenario
+     * @throws IllegalArgumentException when there is not one column per reactant, or the columns differ in length
+     */
+    public Result run(double[][] reactantMoles, boolean parallel) throws IllegalArgumentException {
+        if (reactantMoles.length != reactantCoefficients.length) {
+            throw new IllegalArgumentException("Expected " + reactantCoefficients.length + " reactant columns");
+        }
+
+        final int rows = reactantMoles.length == 0 ? 0 : reactantMoles[0].length;
+        for (double[] column : reactantMoles) {
+            if (column.length != rows) {
+                throw new IllegalArgumentException("Reactant columns differ in length");
+            }
+        }
+
+        final Result result = new Result(reactantCoefficients.length, productCoefficients.length, rows);
+        int blocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        if (parallel && blocks > 1) {
+            IntStream.range(0, blocks).parallel().forEach(
+                    block -> runBlock(reactantMoles, result, block * BLOCK_SIZE,
+                            Math.min(rows, (block + 1) * BLOCK_SIZE)));
+        }
+        else {
+            runBlock(reactantMoles, result, 0, rows);
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts columns of reactant masses in grams to columns of moles, using each reactant's relative formula mass
+     * @param reactantGrams the mass of each reactant in grams, as one column per reactant
+     * @return the moles of each reactant, as one column per reactant
+     * @throws IllegalArgumentException when there is not one column per reactant
+     */
+    public double[][] massesToMoles(double[][] reactantGrams) throws IllegalArgumentException {
+        if (reactantGrams.length != reactantCoefficients.length) {
+            throw new IllegalArgumentException("Expected " + reactantCoefficients.length + " reactant columns");
+        }
+
+        double[][] moles = new double[reactantGrams.length][];
+        for (int r = 0; r < reactantGrams.length; r++) {
+            double[] grams = reactantGrams[r];
+            double[] column = new double[grams.length];
+            double inverseRFM = 1.0 / relativeFormulaMasses[r];
+            for (int row = 0; row < grams.length; row++) {
+                column[row] = grams[row] * inverseRFM;
+            }
+            moles[r] = column;
+        }
+        return moles;
+    }
+
+    private void runBlock(double[][] reactantMoles, Result result, int from, int to) {
+        double[] extent = result.extent;
+        int[] limitingReagent = result.limitingReagent;
+
+        // Start with no limit, so any known reactant will replace it
+        for (int row = from; row < to; row++) {
+            extent[row] = Double.POSITIVE_INFINITY;
+            limitingReagent[row] = -1;
+        }
+
+        // Find the smallest multiplier, one reactant column at a time. NaN amounts never compare as smaller
+        for (int r = 0; r < reactantCoefficients.length; r++) {
+            if (reactantCoefficients[r] == 0) {
+                continue;
+            }
+            double[] column = reactantMoles[r];
+            double inverseCoefficient = 1.0 / reactantCoefficients[r];
+            for (int row = from; row < to; row++) {
+                double multiplier = column[row] * inverseCoefficient;
+                if (multiplier < extent[row]) {
+                    extent[row] = multiplier;
+                    limitingReagent[row] = r;
+                }
+            }
+        }
+
+        // Scenarios without any known reactant have no result
+        for (int row = from; row < to; row++) {
+            if (limitingReagent[row] == -1) {
+                extent[row] = Double.NaN;
+            }
+        }
+
+        // The excess is whatever is left over once the limiting reagent has been used up
+        for (int r = 0; r < reactantCoefficients.length; r++) {
+            double[] column = reactantMoles[r];
+            double[] excess = result.excess[r];
+            double coefficient = reactantCoefficients[r];
+            for (int row = from; row < to; row++) {
+                excess[row] = column[row] - coefficient * extent[row];
+            }
+        }
+
+        // Generate the products
+        for (int p = 0; p < productCoefficients.length; p++) {
+            double[] products = result.products[p];
+            double coefficient = productCoefficients[p];
+            for (int row = from; row < to; row++) {
+                products[row] = coefficient * extent[row];
+            }
+        }
+    }
+
+    /**
+     * Gets the {@link #stoichiometry} that the {@code StoichiometryBatch} object runs against
+     * @return the {@link #stoichiometry} that the {@code StoichiometryBatch} object runs against
+     */
+    public StoichiometricMatrix getStoichiometry() {
+        return stoichiometry;
+    }
+
+    /**
+     * Results of a batch of scenarios. Every array has one entry per scenario.
+     */
+    public static final class Result {
+        private Result(int reactants, int products, int rows) {
+            this.limitingReagent = new int[rows];
+            this.extent = new double[rows];
+            this.excess = new double[reactants][rows];
+            this.products = new double[products][rows];
+        }
+
+        /**
+         * Gets the number of scenarios
+         * @return the number of scenarios
+         */
+        public int size() {
+            return extent.length;
+        }
+
+        /**
+         * Gets the reactant index of the limiting reagent of each scenario, or {@code -1} when no reactant was known
+         * @return the reactant index of the limiting reagent of each scenario
+         */
+        public int[] getLimitingReagent() {
+            return limitingReagent;
+        }
+
+        /**
+         * Gets the reactant multiplier of each scenario, which when multiplied by a coefficient gives moles
+         * @return the reactant multiplier of each scenario
+         * @see SubstanceEquation#getReactantMultiplier()
+         */
+        public double[] getExtent() {
+            return extent;
+        }
+
+        /**
+         * Gets the moles of each reactant left over, as one column per reactant
+         * @return the moles of each reactant left over
+         */
+        public double[][] getExcess() {
+            return excess;
+        }
+
+        /**
+         * Gets the moles of each product made, as one column per product
+         * @return the moles of each product made
+         */
+        public double[][] getProducts() {
+            return products;
+        }
+
+        private final int[] limitingReagent;
+        private final double[] extent;
+        private final double[][] excess;
+        private final double[][] products;
+    }
+
+    /**
+     * The number of rows given to each parallel task
+     */
+    private static final int BLOCK_SIZE = 1 << 14;
+
+    /**
+     * The stoichiometry of the equation
+     */
+    private final StoichiometricMatrix stoichiometry;
+
+    /**
+     * The coefficient of each reactant
+     */
+    private final double[] reactantCoefficients;
+
+    /**
+     * The coefficient of each product
+     */
+    private final double[] productCoefficients;
+
+    /**
+     * The relative formula mass of each species
+     */
+    private final double[] relativeFormulaMasses;
+}
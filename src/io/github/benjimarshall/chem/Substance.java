@@ -1,14 +1,13 @@
 package io.github.benjimarshall.chem;
 
 
-import java.math.MathContext;
-
 /**
  * Chemical Substance, a {@code Molecule} object with mass. The {@code Substance} class extends the {@link Molecule}
  * class. A {@code Substance} object consists of its constituent {@code Element} objects, their ratios, each
  * {@code Substance}'s relative formula mass, and a mass part consisting of a {@link Mass} object and a {@link Mole}
  * object.
- *
+ * <p>
+ * Like {@code Molecule} objects, {@code Substance} objects are immutable and can be shared between threads.
  *
  * @author Benji Marshall
  * @since 2016-3-9
@@ -24,7 +23,7 @@ public class Substance extends Molecule {
         super(formula);
         this.moles = moles;
 
-        mass = new Mass(moles.getQuantity().multiply(this.relativeFormulaMass));
+        mass = massFromMoles(moles);
     }
 
     /**
@@ -37,7 +36,7 @@ public class Substance extends Molecule {
         super(formula);
         this.mass = mass;
 
-        moles = new Mole(mass.getMassInGrams().divide(this.relativeFormulaMass, MathContext.DECIMAL64));
+        moles = molesFromMass(mass);
     }
 
     /**
@@ -49,7 +48,7 @@ public class Substance extends Molecule {
         super(molecule);
         this.moles = moles;
 
-        mass = new Mass(moles.getQuantity().multiply(this.relativeFormulaMass));
+        mass = massFromMoles(moles);
     }
 
     /**
@@ -61,7 +60,7 @@ public class Substance extends Molecule {
         super(molecule);
         this.mass = mass;
 
-        moles = new Mole(mass.getMassInGrams().divide(this.relativeFormulaMass, MathContext.DECIMAL64));
+        moles = molesFromMass(mass);
     }
 
     /**
@@ -74,6 +73,34 @@ public class Substance extends Molecule {
         moles = substance.moles;
     }
 
+    /**
+     * Calculates the {@code Mass} of a number of {@code Mole}s of this substance, with the current
+     * {@link NumericPolicy}
+     * @param moles the number of {@code Mole}s of this substance
+     * @return the {@code Mass} of the substance
+     */
+    private Mass massFromMoles(Mole moles) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return new Mass(moles.doubleValue() * getRelativeFormulaMassAsDouble());
+        }
+        return new Mass(moles.getQuantity().multiply(this.relativeFormulaMass, policy.getMathContext()));
+    }
+
+    /**
+     * Calculates the number of {@code Mole}s in a {@code Mass} of this substance, with the current
+     * {@link NumericPolicy}
+     * @param mass the {@code Mass} of this substance
+     * @return the number of {@code Mole}s of the substance
+     */
+    private Mole molesFromMass(Mass mass) {
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return new Mole(mass.doubleValue() / getRelativeFormulaMassAsDouble());
+        }
+        return new Mole(mass.getMassInGrams().divide(this.relativeFormulaMass, policy.getDivisionContext()));
+    }
+
     /**
      * Gets a {@link String} representation of the {@code Substance} object, as the number of {@link #moles} as a string
      * with the {@code Molecule} part as a string. (Eg. {@code 3mol of NH3})
@@ -141,10 +168,10 @@ public class Substance extends Molecule {
     /**
      * The mass of the {@code Substance} object, as a {@link Mass} object.
      */
-    protected Mass mass;
+    protected final Mass mass;
 
     /**
      * The number of moles of the {@code Substance} object, as a {@link Mole} object.
      */
-    protected Mole moles;
+    protected final Mole moles;
 }
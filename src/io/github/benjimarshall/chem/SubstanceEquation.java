@@ -2,15 +2,25 @@ package io.github.benjimarshall.chem;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Chemical equation with amounts. A {@code SubstanceEquation} object consists of two maps, of its reactants and its
  * products, with a string representation of it. It also contains two maps of {@code Substance} objects to calculate
  * quantities from. Also, a reference to the limiting reagent is kept.
  *
+ * <p>Once filled in, changing a single reactant only updates the limiting reagent and products it affects, and any
+ * registered {@link SubstanceEquationListener} objects are told what changed.</p>
+ *
+ * <p>Unlike {@link Equation} objects, {@code SubstanceEquation} objects hold amounts that change, so they are not
+ * thread safe: each thread should fill in its own {@code SubstanceEquation} object.</p>
+ *
  * @see AlgebraicEquation
  * @see Substance
+ * @see SubstanceEquationListener
  */
 public class SubstanceEquation extends Equation {
     /**
@@ -24,27 +34,83 @@ public class SubstanceEquation extends Equation {
         super(equation);
     }
 
+    /**
+     * Constructs a {@code SubstanceEquation} object from an equation that has already been balanced, without amounts
+     * of reactants or products. The equation isn't balanced again, and isn't changed.
+     * @param equation the balanced equation
+     */
+    public SubstanceEquation(Equation equation) {
+        super(equation);
+    }
+
     /**
      * Deduces all of the quantities of the substances from one substance, to exactly react with no left over reacants.
      * @param substance the substance with the known quantities to deduce all other quantities from
      * @throws IllegalArgumentException when the substance is of a molecule not involved in the reaction
      */
     public void fillInFromSubstance(Substance substance) throws IllegalArgumentException {
-        deleteQuantities();
+        Molecule molecule = substance.getMolecule();
+        if (!getReactants().containsKey(molecule)) {
+            throw new IllegalArgumentException("Molecule not found");
+        }
+
+        // Forget the other reactants, so that the products are only recalculated if the multiplier moves
+        for (Molecule reactant : new ArrayList<>(substanceReactants.keySet())) {
+            if (!reactant.equals(molecule)) {
+                removeReactantSubstance(reactant);
+            }
+        }
+
+        boolean filledIn = reactantMultiplier != null;
         putReactantSubstance(substance);
-        fillInSubstances();
+        if (!filledIn) {
+            fillInSubstances();
+        }
     }
 
     /**
-     * Adds a reactant with a known quantity to the {@code SubstanceEquation} object
+     * Adds a reactant with a known quantity to the {@code SubstanceEquation} object. If the quantities have already
+     * been filled in, the limiting reagent and products are updated incrementally: the products are only
+     * recalculated if the change moves the reactant multiplier.
      * @param substance a reactant with a known quantity
      * @throws IllegalArgumentException when the substance is the child of a molecule not involved in the reaction
      */
     public void putReactantSubstance(Substance substance) throws IllegalArgumentException {
-        if (!super.reactants.containsKey(substance.getMolecule())) {
+        Molecule molecule = substance.getMolecule();
+        if (!getReactants().containsKey(molecule)) {
             throw new IllegalArgumentException("Molecule not found");
         }
-        substanceReactants.put(substance.getMolecule(), substance);
+
+        Substance oldValue = substanceReactants.put(molecule, substance);
+        for (SubstanceEquationListener listener : listeners) {
+            listener.reactantChanged(this, molecule, oldValue, substance);
+        }
+
+        // If the quantities haven't been filled in yet, there is nothing to update
+        if (reactantMultiplier == null) {
+            return;
+        }
+
+        BigDecimal newValue = findMultiplier(molecule, substance);
+        reactantMultipliers.put(molecule, newValue);
+
+        if (limitingMolecule == null) {
+            // The limiting reagent has been removed, so it has to be found again
+            findLimitingReagent();
+        }
+        else if (molecule.equals(limitingMolecule)) {
+            // If the limiting reagent has shrunk it is still limiting, otherwise another reactant may now be
+            if (newValue.compareTo(reactantMultiplier) <= 0) {
+                updateLimitingReagent(molecule, newValue);
+            }
+            else {
+                findLimitingReagent();
+            }
+        }
+        // If the multiplier is now the smallest, this reactant becomes the limiting reagent
+        else if (newValue.compareTo(reactantMultiplier) < 0) {
+            updateLimitingReagent(molecule, newValue);
+        }
     }
 
     /**
@@ -56,28 +122,21 @@ public class SubstanceEquation extends Equation {
         if (substanceReactants.isEmpty()) {
             throw new NullPointerException("No quantities are known");
         }
+        FlightRecorderEvents.SubstanceFill event = new FlightRecorderEvents.SubstanceFill();
+        event.begin();
 
-        // Find the smallest multiplier
-        for (Substance substance : substanceReactants.values()) {
-            BigDecimal newValue = substance.getMoles().divide(new Mole(
-                    super.getReactants().get(substance.getMolecule()))).getQuantity();
-            // If the reactant multiplier is null or is bigger than the found value, replace it
-            if (reactantMultiplier == null || reactantMultiplier.compareTo(newValue) == 1) {
-                reactantMultiplier = newValue;
-                limitingReagent = substance;
-            }
+        reactantMultipliers.clear();
+        for (HashMap.Entry<Molecule, Substance> reactant : substanceReactants.entrySet()) {
+            reactantMultipliers.put(reactant.getKey(), findMultiplier(reactant.getKey(), reactant.getValue()));
         }
 
-        /*// Generate the new reactants
-        for (HashMap.Entry<Molecule, Integer> reactant : super.getReactants().entrySet()) {
-            substanceReactants.put(reactant.getKey(), new Substance(reactant.getKey(), new Mole(
-                    reactantMultiplier.multiply(new BigDecimal(reactant.getValue())))));
-        }*/
+        findLimitingReagent();
 
-        // Generate the products
-        for (HashMap.Entry<Molecule, Integer> product : super.getProducts().entrySet()) {
-            substanceProducts.put(product.getKey(), new Substance(product.getKey(), new Mole(
-                    reactantMultiplier.multiply(new BigDecimal(product.getValue())))));
+        if (event.shouldCommit()) {
+            event.equation = getEquation();
+            event.knownReactants = substanceReactants.size();
+            event.limitingReagent = limitingMolecule.getFormula();
+            event.commit();
         }
     }
 
@@ -86,10 +145,147 @@ public class SubstanceEquation extends Equation {
      * constructed.
      */
     public void deleteQuantities() {
-        substanceReactants = new HashMap<>();
-        substanceProducts = new HashMap<>();
+        Substance oldLimitingReagent = limitingReagent;
+        HashMap<Molecule, Substance> oldReactants = new HashMap<>(substanceReactants);
+        HashMap<Molecule, Substance> oldProducts = new HashMap<>(substanceProducts);
+
+        substanceReactants.clear();
+        substanceProducts.clear();
+        reactantMultipliers.clear();
         reactantMultiplier = null;
         limitingReagent = null;
+        limitingMolecule = null;
+
+        for (SubstanceEquationListener listener : listeners) {
+            for (HashMap.Entry<Molecule, Substance> reactant : oldReactants.entrySet()) {
+                listener.reactantChanged(this, reactant.getKey(), reactant.getValue(), null);
+            }
+            for (HashMap.Entry<Molecule, Substance> product : oldProducts.entrySet()) {
+                listener.productChanged(this, product.getKey(), product.getValue(), null);
+            }
+            if (oldLimitingReagent != null) {
+                listener.limitingReagentChanged(this, oldLimitingReagent, null);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener to be told about changes to the quantities of the {@code SubstanceEquation} object
+     * @param listener the listener to register
+     */
+    public void addListener(SubstanceEquationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from being told about changes to the quantities of the {@code SubstanceEquation} object
+     * @param listener the listener to remove
+     */
+    public void removeListener(SubstanceEquationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Removes a known reactant, telling the listeners. If it was the limiting reagent, the limiting reagent is left
+     * to be found again when the next reactant is put.
+     * @param molecule the reactant to remove
+     */
+    private void removeReactantSubstance(Molecule molecule) {
+        Substance oldValue = substanceReactants.remove(molecule);
+        reactantMultipliers.remove(molecule);
+        if (molecule.equals(limitingMolecule)) {
+            limitingMolecule = null;
+        }
+
+        for (SubstanceEquationListener listener : listeners) {
+            listener.reactantChanged(this, molecule, oldValue, null);
+        }
+    }
+
+    /**
+     * Finds the reactant multiplier that a known reactant would allow on its own, with the current
+     * {@link NumericPolicy}
+     * @param molecule the reactant
+     * @param substance the known quantity of the reactant
+     * @return the moles of the reactant divided by its coefficient
+     */
+    private BigDecimal findMultiplier(Molecule molecule, Substance substance) {
+        StoichiometricMatrix stoichiometry = getStoichiometry();
+        int index = stoichiometry.indexOf(molecule);
+        NumericPolicy policy = NumericPolicy.current();
+        if (!policy.isExact()) {
+            return BigDecimal.valueOf(substance.getMoles().doubleValue() / stoichiometry.getCoefficient(index));
+        }
+        return substance.getMoles().getQuantity().divide(stoichiometry.getExactCoefficient(index),
+                policy.getDivisionContext());
+    }
+
+    /**
+     * Finds the smallest multiplier of all of the known reactants, and updates the limiting reagent to match
+     */
+    private void findLimitingReagent() {
+        Molecule smallestMolecule = null;
+        BigDecimal smallestValue = null;
+
+        for (HashMap.Entry<Molecule, BigDecimal> multiplier : reactantMultipliers.entrySet()) {
+            // If the smallest multiplier is null or is bigger than the found value, replace it
+            if (smallestValue == null || smallestValue.compareTo(multiplier.getValue()) == 1) {
+                smallestValue = multiplier.getValue();
+                smallestMolecule = multiplier.getKey();
+            }
+        }
+
+        updateLimitingReagent(smallestMolecule, smallestValue);
+    }
+
+    /**
+     * Sets the limiting reagent and reactant multiplier, regenerating the products only if the multiplier has changed
+     * @param molecule the limiting reagent
+     * @param multiplier the reactant multiplier
+     */
+    private void updateLimitingReagent(Molecule molecule, BigDecimal multiplier) {
+        Substance oldLimitingReagent = limitingReagent;
+        boolean multiplierChanged = reactantMultiplier == null || reactantMultiplier.compareTo(multiplier) != 0;
+
+        limitingMolecule = molecule;
+        limitingReagent = substanceReactants.get(molecule);
+        reactantMultiplier = multiplier;
+
+        if (oldLimitingReagent != limitingReagent) {
+            for (SubstanceEquationListener listener : listeners) {
+                listener.limitingReagentChanged(this, oldLimitingReagent, limitingReagent);
+            }
+        }
+
+        if (!multiplierChanged && !substanceProducts.isEmpty()) {
+            return;
+        }
+
+        /*// Generate the new reactants
+        for (HashMap.Entry<Molecule, Integer> reactant : super.getReactants().entrySet()) {
+            substanceReactants.put(reactant.getKey(), new Substance(reactant.getKey(), new Mole(
+                    reactantMultiplier.multiply(new BigDecimal(reactant.getValue())))));
+        }*/
+
+        // Generate the products, which follow the reactants in the species index
+        StoichiometricMatrix stoichiometry = getStoichiometry();
+        NumericPolicy policy = NumericPolicy.current();
+        for (int i = stoichiometry.getReactantCount(); i < stoichiometry.getSpeciesCount(); i++) {
+            Molecule product = stoichiometry.getSpecies(i);
+            Mole moles;
+            if (policy.isExact()) {
+                moles = new Mole(reactantMultiplier.multiply(stoichiometry.getExactCoefficient(i),
+                        policy.getMathContext()));
+            }
+            else {
+                moles = new Mole(reactantMultiplier.doubleValue() * stoichiometry.getCoefficient(i));
+            }
+            Substance newValue = new Substance(product, moles);
+            Substance oldValue = substanceProducts.put(product, newValue);
+            for (SubstanceEquationListener listener : listeners) {
+                listener.productChanged(this, product, oldValue, newValue);
+            }
+        }
     }
 
     /**
@@ -171,4 +367,19 @@ public class SubstanceEquation extends Equation {
      * The limiting reagent of the equation, the substance which is fully used when all others are not.
      */
     protected Substance limitingReagent;
+
+    /**
+     * The molecule of the {@link #limitingReagent}
+     */
+    private Molecule limitingMolecule;
+
+    /**
+     * A {@link HashMap} of the reactant multiplier that each known reactant would allow on its own
+     */
+    private final HashMap<Molecule, BigDecimal> reactantMultipliers = new HashMap<>();
+
+    /**
+     * The listeners to tell about changes to the quantities
+     */
+    private final List<SubstanceEquationListener> listeners = new CopyOnWriteArrayList<>();
 }
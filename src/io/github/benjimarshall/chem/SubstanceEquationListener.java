@@ -0,0 +1,40 @@
+package io.github.benjimarshall.chem;
+
+/**
+ * Listener for changes to the quantities of a {@link SubstanceEquation}. Every method does nothing by default, so an
+ * implementation need only override the changes it is interested in.
+ *
+ * @see SubstanceEquation#addListener(SubstanceEquationListener)
+ */
+public interface SubstanceEquationListener {
+    /**
+     * Called when the quantity of a reactant has been put into or removed from the equation
+     * @param source the {@code SubstanceEquation} object that changed
+     * @param molecule the reactant that changed
+     * @param oldValue the previous quantity of the reactant, or {@code null} if it was not known
+     * @param newValue the new quantity of the reactant, or {@code null} if it has been removed
+     */
+    default void reactantChanged(SubstanceEquation source, Molecule molecule, Substance oldValue,
+                                 Substance newValue) {
+    }
+
+    /**
+     * Called when the quantity of a product has been recalculated or removed
+     * @param source the {@code SubstanceEquation} object that changed
+     * @param molecule the product that changed
+     * @param oldValue the previous quantity of the product, or {@code null} if it was not known
+     * @param newValue the new quantity of the product, or {@code null} if it has been removed
+     */
+    default void productChanged(SubstanceEquation source, Molecule molecule, Substance oldValue,
+                                Substance newValue) {
+    }
+
+    /**
+     * Called when the limiting reagent, or its quantity, has changed
+     * @param source the {@code SubstanceEquation} object that changed
+     * @param oldValue the previous limiting reagent, or {@code null} if there was none
+     * @param newValue the new limiting reagent, or {@code null} if there is none
+     */
+    default void limitingReagentChanged(SubstanceEquation source, Substance oldValue, Substance newValue) {
+    }
+}
@@ -6,6 +6,7 @@ import org.apache.commons.lang3.math.Fraction;
  * Titration calculator. A static class of static methods for calculating a titration using static functions.
  *
  * @see Solution
+ * @see TitrationCurve
  */
 public final class Titration {
     private Titration() {
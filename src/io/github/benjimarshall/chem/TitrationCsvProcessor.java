@@ -0,0 +1,306 @@
+package io.github.benjimarshall.chem;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import org.apache.commons.lang3.math.Fraction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk titration processor. A {@code TitrationCsvProcessor} object reads a CSV export of titration runs, works out
+ * the amount of analyte each run neutralised, and writes the results to another CSV, in the same order, in one pass.
+ * <p>
+ * Each input row has the columns:
+ * <ol>
+ *     <li>titrant formula, such as {@code NaOH}</li>
+ *     <li>titrant concentration in moldm<sup>-3</sup></li>
+ *     <li>titrant volume in cm<sup>3</sup></li>
+ *     <li>analyte formula, such as {@code HCl}</li>
+ *     <li>ratio, the moles of titrant that neutralise one mole of analyte, such as {@code 1}, {@code 2} or
+ *     {@code 1/2}</li>
+ *     <li>optionally, the analyte volume in cm<sup>3</sup></li>
+ * </ol>
+ * A first row whose concentration isn't a number is taken as a header. Each output row is the input row followed by
+ * the moles of titrant, the moles of analyte, the mass of analyte in grams, the concentration of analyte in
+ * moldm<sup>-3</sup> if its volume was given, and an error message if the row couldn't be worked out.
+ * <p>
+ * Rows are read in chunks, and each chunk is worked out on a pool of threads while later chunks are read. Only a
+ * fixed number of chunks are held at once, so memory use doesn't grow with the size of the export. Formulas are
+ * interpreted once, through a cache shared by every run this processor handles that holds molecules from the
+ * {@link MoleculeInternTable}. The cache holds a fixed number of formulas, and formulas that couldn't be interpreted
+ * aren't cached, so an export of many different or bad formulas doesn't grow it without bound. Amounts are worked out
+ * with {@code double}s, as with {@link NumericPolicy#DOUBLE}, instead of through {@link Titration#doTitration}.
+ * <p>
+ * A row that can't be worked out, for whatever reason, gets an error message instead of results, and the rest of the
+ * export carries on.
+ *
+ * @see Titration
+ */
+public final class TitrationCsvProcessor {
+    /**
+     * Constructs a {@code TitrationCsvProcessor} object that uses a thread for each available processor
+     */
+    public TitrationCsvProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code TitrationCsvProcessor} object
+     * @param threads the number of threads to work out rows on
+     */
+    public TitrationCsvProcessor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Processes a CSV file of titration runs into a CSV file of results
+     * @param input the path of the CSV file of titration runs
+     * @param output the path to write the CSV file of results to
+     * @return the number of rows processed
+     * @throws IOException when either file can't be read or written
+     */
+    public long process(Path input, Path output) throws IOException {
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            return process(reader, writer);
+        }
+    }
+
+    /**
+     * Processes CSV titration runs into CSV results. Neither the reader nor the writer are closed
+     * @param input the CSV titration runs
+     * @param output where to write the CSV results
+     * @return the number of rows processed
+     * @throws IOException when the input can't be read or the output can't be written
+     */
+    public long process(Reader input, Writer output) throws IOException {
+        CSVReader reader = new CSVReader(input);
+        CSVWriter writer = new CSVWriter(output);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "titration-csv");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Chunks in flight, oldest first, so results are written in the order they were read
+        ArrayDeque<Future<List<String[]>>> pending = new ArrayDeque<>();
+        long rows = 0;
+        boolean firstRow = true;
+
+        try {
+            List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                if (line.length == 1 && line[0].trim().isEmpty()) {
+                    continue;
+                }
+
+                if (firstRow) {
+                    firstRow = false;
+                    if (isHeader(line)) {
+                        writer.writeNext(append(line, OUTPUT_HEADER), false);
+                        continue;
+                    }
+                }
+
+                chunk.add(line);
+                rows++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(executor, pending, chunk, writer);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(executor, pending, chunk, writer);
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.removeFirst(), writer);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        writer.flush();
+        return rows;
+    }
+
+    /**
+     * Works out the results of a single titration run
+     * @param line the columns of the titration run
+     * @return the columns of the run followed by the result columns, with an error message if the run couldn't be
+     * worked out
+     */
+    public String[] processRow(String[] line) {
+        try {
+            return calculateRow(line);
+        } catch (RuntimeException e) {
+            // One unexpected failure shouldn't lose the rest of the export
+            return append(line, "", "", "", "", e.toString());
+        }
+    }
+
+    private String[] calculateRow(String[] line) {
+        if (line.length < 5) {
+            return append(line, "", "", "", "", "Expected at least 5 columns");
+        }
+
+        InterpretationResult<Molecule> titrant = resolve(line[0].trim());
+        InterpretationResult<Molecule> analyte = resolve(line[3].trim());
+        if (!titrant.isSuccessful()) {
+            return append(line, "", "", "", "", "Titrant: " + titrant.getMessage());
+        }
+        if (!analyte.isSuccessful()) {
+            return append(line, "", "", "", "", "Analyte: " + analyte.getMessage());
+        }
+
+        double titrantConcentration;
+        double titrantVolume;
+        Fraction ratio;
+        double analyteVolume = Double.NaN;
+        try {
+            titrantConcentration = Double.parseDouble(line[1].trim());
+            titrantVolume = Double.parseDouble(line[2].trim()) * CM3_IN_LITRES;
+            ratio = Fraction.getFraction(line[4].trim());
+            if (line.length > 5 && !line[5].trim().isEmpty()) {
+                analyteVolume = Double.parseDouble(line[5].trim()) * CM3_IN_LITRES;
+            }
+        } catch (NumberFormatException e) {
+            return append(line, "", "", "", "", "Couldn't read number: " + e.getMessage());
+        } catch (ArithmeticException e) {
+            return append(line, "", "", "", "", "Couldn't read ratio: " + e.getMessage());
+        }
+        if (ratio.getNumerator() == 0) {
+            return append(line, "", "", "", "", "Ratio can't be zero");
+        }
+
+        double titrantMoles = titrantConcentration * titrantVolume;
+        double analyteMoles = titrantMoles * ratio.getDenominator() / ratio.getNumerator();
+        double analyteMass = analyteMoles * analyte.getValue().getRelativeFormulaMassAsDouble();
+        String analyteConcentration = Double.isNaN(analyteVolume) ? "" : String.valueOf(analyteMoles / analyteVolume);
+
+        return append(line, String.valueOf(titrantMoles), String.valueOf(analyteMoles), String.valueOf(analyteMass),
+                analyteConcentration, "");
+    }
+
+    /**
+     * Gets the number of different formulas that have been interpreted
+     * @return the number of different formulas in the cache
+     */
+    public int getCachedFormulaCount() {
+        return formulaCache.size();
+    }
+
+    private InterpretationResult<Molecule> resolve(String formula) {
+        InterpretationResult<Molecule> result = formulaCache.get(formula);
+        Metrics.countCacheLookup("titration.formulas", result != null);
+        if (result == null) {
+            // Parsing twice in a race is harmless, and keeps the parse outside of the map's locks
+            result = MoleculeInternTable.tryIntern(formula);
+            // Once the cache is full, new formulas are still interpreted, just not kept. A race can overfill it by at
+            // most one formula per thread
+            if (result.isSuccessful() && formulaCache.size() < MAX_CACHED_FORMULAS) {
+                InterpretationResult<Molecule> existing = formulaCache.putIfAbsent(formula, result);
+                if (existing != null) {
+                    result = existing;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void submit(ExecutorService executor, ArrayDeque<Future<List<String[]>>> pending, List<String[]> chunk,
+                        CSVWriter writer) throws IOException {
+        // Wait for the oldest chunk before reading any further, which bounds the rows held in memory
+        if (pending.size() >= threads * 2) {
+            writeChunk(pending.removeFirst(), writer);
+        }
+
+        pending.addLast(executor.submit(() -> {
+            List<String[]> results = new ArrayList<>(chunk.size());
+            for (String[] line : chunk) {
+                results.add(processRow(line));
+            }
+            return results;
+        }));
+    }
+
+    private static void writeChunk(Future<List<String[]>> future, CSVWriter writer) throws IOException {
+        try {
+            for (String[] line : future.get()) {
+                writer.writeNext(line, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing titrations", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Processing titrations failed", e.getCause());
+        }
+    }
+
+    private static boolean isHeader(String[] line) {
+        if (line.length < 2) {
+            return false;
+        }
+        try {
+            Double.parseDouble(line[1].trim());
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String[] append(String[] line, String... columns) {
+        String[] result = new String[line.length + columns.length];
+        System.arraycopy(line, 0, result, 0, line.length);
+        System.arraycopy(columns, 0, result, line.length, columns.length);
+        return result;
+    }
+
+    /**
+     * The names of the columns added to each row
+     */
+    private static final String[] OUTPUT_HEADER =
+            {"titrant_moles", "analyte_moles", "analyte_mass_g", "analyte_concentration", "error"};
+
+    /**
+     * The number of rows worked out together on one thread
+     */
+    private static final int CHUNK_SIZE = 2048;
+
+    /**
+     * The most formulas held in the {@link #formulaCache}
+     */
+    private static final int MAX_CACHED_FORMULAS = 4096;
+
+    /**
+     * The number of litres in a cm<sup>3</sup>
+     */
+    private static final double CM3_IN_LITRES = 1e-3;
+
+    /**
+     * The number of threads to work out rows on
+     */
+    private final int threads;
+
+    /**
+     * Interpreted formulas, by formula, up to {@link #MAX_CACHED_FORMULAS}
+     */
+    private final ConcurrentHashMap<String, InterpretationResult<Molecule>> formulaCache = new ConcurrentHashMap<>();
+}
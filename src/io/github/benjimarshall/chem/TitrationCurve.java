@@ -0,0 +1,307 @@
+package io.github.benjimarshall.chem;
+
+/**
+ * Titration curve calculator. A {@code TitrationCurve} object finds the pH of an analyte solution as a titrant is added
+ * to it, for strong or weak, monoprotic or polyprotic acids and bases, including buffer regions.
+ * <p>
+ * For each volume of titrant the charge balance of the mixture,
+ * [H<sup>+</sup>] - K<sub>w</sub>/[H<sup>+</sup>] + the charge of the analyte + the charge of the titrant = 0,
+ * is solved for pH by bisection. The left hand side only ever falls as pH rises, so bisection always converges. Points
+ * are solved a block at a time, with every point in the block stepped through each bisection together, so the inner
+ * loop is a simple loop over arrays. Points are streamed to a {@link PointConsumer} as each block is finished.
+ *
+ * @see AcidBaseSpecies
+ * @see Titration
+ */
+public final class TitrationCurve {
+    /**
+     * Constructs a {@code TitrationCurve} object for an analyte {@code Solution} and a titrant {@code Concentration}
+     * @param analyte the solution being titrated
+     * @param analyteSpecies how the analyte behaves as an acid or base
+     * @param titrantConcentration the concentration of the titrant
+     * @param titrantSpecies how the titrant behaves as an acid or base
+     */
+    public TitrationCurve(Solution analyte, AcidBaseSpecies analyteSpecies, Concentration titrantConcentration,
+                          AcidBaseSpecies titrantSpecies) {
+        this(analyte.getMoles().doubleValue(), analyte.getVolume().doubleValue(), analyteSpecies,
+                titrantConcentration.doubleValue(), titrantSpecies);
+    }
+
+    /**
+     * Constructs a {@code TitrationCurve} object from amounts
+     * @param analyteMoles the number of moles of analyte
+     * @param analyteVolume the volume of the analyte solution in litres
+     * @param analyteSpecies how the analyte behaves as an acid or base
+     * @param titrantConcentration the concentration of the titrant in moldm<sup>-3</sup>
+     * @param titrantSpecies how the titrant behaves as an acid or base
+     * @throws IllegalArgumentException when an amount is negative or not finite, or a volume or concentration is zero
+     */
+    public TitrationCurve(double analyteMoles, double analyteVolume, AcidBaseSpecies analyteSpecies,
+                          double titrantConcentration, AcidBaseSpecies titrantSpecies) throws IllegalArgumentException {
+        // Written so that NaN fails every comparison
+        if (!(analyteVolume > 0 && titrantConcentration > 0 && analyteMoles >= 0) || Double.isInfinite(analyteVolume) ||
+                Double.isInfinite(titrantConcentration) || Double.isInfinite(analyteMoles)) {
+            throw new IllegalArgumentException("Amounts must be positive and finite");
+        }
+        this.analyteMoles = analyteMoles;
+        this.analyteVolume = analyteVolume;
+        this.analyteSpecies = analyteSpecies;
+        this.titrantConcentration = titrantConcentration;
+        this.titrantSpecies = titrantSpecies;
+    }
+
+    /**
+     * Receives the points of a titration curve, in order of increasing titrant volume
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+        /**
+         * Receives a point of the curve
+         * @param titrantVolume the volume of titrant added in litres
+         * @param pH the pH of the mixture
+         */
+        void accept(double titrantVolume, double pH);
+    }
+
+    /**
+     * Calculates the pH after a volume of titrant has been added
+     * @param titrantVolume the volume of titrant added in litres
+     * @return the pH of the mixture
+     * @throws IllegalArgumentException when the volume is negative or not finite
+     */
+    public double pH(double titrantVolume) throws IllegalArgumentException {
+        checkVolume(titrantVolume);
+        double[] volumes = {titrantVolume};
+        double[] pH = new double[1];
+        solve(volumes, pH, 0, 1);
+        return pH[0];
+    }
+
+    /**
+     * Calculates the pH after a {@code Volume} of titrant has been added
+     * @param titrantVolume the volume of titrant added
+     * @return the pH of the mixture
+     * @throws IllegalArgumentException when the volume is negative or not finite
+     */
+    public double pH(Volume titrantVolume) throws IllegalArgumentException {
+        return pH(titrantVolume.doubleValue());
+    }
+
+    /**
+     * Calculates the pH after each of a set of volumes of titrant have been added
+     * @param titrantVolumes the volumes of titrant added in litres
+     * @param pH the array to write the pH of each mixture into
+     * @throws IllegalArgumentException when the arrays are different lengths, or a volume is negative or not finite
+     */
+    public void pH(double[] titrantVolumes, double[] pH) throws IllegalArgumentException {
+        if (titrantVolumes.length != pH.length) {
+            throw new IllegalArgumentException("Volume and pH arrays are different lengths");
+        }
+        for (double titrantVolume : titrantVolumes) {
+            checkVolume(titrantVolume);
+        }
+        for (int from = 0; from < pH.length; from += BLOCK_SIZE) {
+            solve(titrantVolumes, pH, from, Math.min(pH.length, from + BLOCK_SIZE));
+        }
+    }
+
+    /**
+     * Generates evenly spaced points of the curve, from no titrant up to a maximum volume, streaming each to a
+     * consumer. Only one block of points is held at a time
+     * @param maxVolume the largest volume of titrant in litres
+     * @param points the number of points, at least 2
+     * @param consumer the consumer to send each point to
+     * @throws IllegalArgumentException when there are fewer than 2 points, or the maximum volume is negative or not
+     * finite
+     */
+    public void generate(double maxVolume, int points, PointConsumer consumer) throws IllegalArgumentException {
+        if (points < 2) {
+            throw new IllegalArgumentException("At least 2 points are needed");
+        }
+        checkVolume(maxVolume);
+        double step = maxVolume / (points - 1);
+        double[] volumes = new double[Math.min(points, BLOCK_SIZE)];
+        double[] pH = new double[volumes.length];
+
+        for (int from = 0; from < points; from += volumes.length) {
+            int length = Math.min(volumes.length, points - from);
+            for (int i = 0; i < length; i++) {
+                volumes[i] = (from + i) * step;
+            }
+            solve(volumes, pH, 0, length);
+            for (int i = 0; i < length; i++) {
+                consumer.accept(volumes[i], pH[i]);
+            }
+        }
+    }
+
+    /**
+     * Generates evenly spaced points of the curve, from no titrant up to a maximum volume
+     * @param maxVolume the largest volume of titrant in litres
+     * @param points the number of points, at least 2
+     * @return the pH at each point
+     * @throws IllegalArgumentException when there are fewer than 2 points, or the maximum volume is negative or not
+     * finite
+     */
+    public double[] generate(double maxVolume, int points) throws IllegalArgumentException {
+        double[] pH = new double[points];
+        int[] index = {0};
+        generate(maxVolume, points, (volume, value) -> pH[index[0]++] = value);
+        return pH;
+    }
+
+    /**
+     * Calculates the volume of titrant needed to fully neutralise the analyte, which is the last equivalence point
+     * @return the volume of titrant at the last equivalence point in litres
+     */
+    public double getEquivalenceVolume() {
+        return getEquivalenceVolume(analyteSpecies.getCapacity());
+    }
+
+    /**
+     * Calculates the volume of titrant at an equivalence point, where a number of protons per analyte molecule have
+     * been neutralised
+     * @param point the number of the equivalence point, from 1
+     * @return the volume of titrant at the equivalence point in litres
+     */
+    public double getEquivalenceVolume(int point) {
+        return analyteMoles * point / (titrantConcentration * titrantSpecies.getCapacity());
+    }
+
+    /**
+     * Checks that a volume of titrant is finite and not negative
+     * @param titrantVolume the volume of titrant in litres
+     * @throws IllegalArgumentException when the volume is negative or not finite
+     */
+    private static void checkVolume(double titrantVolume) throws IllegalArgumentException {
+        // Written so that NaN fails the comparison
+        if (!(titrantVolume >= 0) || Double.isInfinite(titrantVolume)) {
+            throw new IllegalArgumentException("Titrant volume must be finite and not negative");
+        }
+    }
+
+    /**
+     * Solves the charge balance for a block of points, stepping every point through each bisection together. Once the
+     * bracket is narrow the charge is close to a straight line in pH, so a final interpolation between the ends of the
+     * bracket gives the answer to well within its width
+     * @param volumes the titrant volume of each point in litres
+     * @param pH the array to write the pH of each point into
+     * @param from the index of the first point, inclusive
+     * @param to the index of the last point, exclusive
+     */
+    private void solve(double[] volumes, double[] pH, int from, int to) {
+        int length = to - from;
+        double[] analyteConcentrations = new double[length];
+        double[] titrantConcentrations = new double[length];
+        double[] low = new double[length];
+        double[] high = new double[length];
+        double[] lowCharge = new double[length];
+        double[] highCharge = new double[length];
+
+        for (int i = 0; i < length; i++) {
+            double totalVolume = analyteVolume + volumes[from + i];
+            analyteConcentrations[i] = analyteMoles / totalVolume;
+            titrantConcentrations[i] = titrantConcentration * volumes[from + i] / totalVolume;
+            low[i] = MIN_PH;
+            high[i] = MAX_PH;
+            lowCharge[i] = charge(MIN_PH, analyteConcentrations[i], titrantConcentrations[i]);
+            highCharge[i] = charge(MAX_PH, analyteConcentrations[i], titrantConcentrations[i]);
+        }
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < length; i++) {
+                double middle = 0.5 * (low[i] + high[i]);
+                double charge = charge(middle, analyteConcentrations[i], titrantConcentrations[i]);
+
+                // Positive charge means there is too much H+, so the pH must be higher
+                if (charge > 0) {
+                    low[i] = middle;
+                    lowCharge[i] = charge;
+                }
+                else {
+                    high[i] = middle;
+                    highCharge[i] = charge;
+                }
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            double span = lowCharge[i] - highCharge[i];
+            pH[from + i] = span > 0 ? low[i] + (high[i] - low[i]) * lowCharge[i] / span : 0.5 * (low[i] + high[i]);
+        }
+    }
+
+    /**
+     * Calculates the net charge concentration of the mixture at a pH
+     * @param pH the pH of the mixture
+     * @param analyteConcentration the concentration of the analyte in the mixture in moldm<sup>-3</sup>
+     * @param titrantConcentration the concentration of the titrant in the mixture in moldm<sup>-3</sup>
+     * @return the net charge concentration of the mixture, which is zero at the actual pH
+     */
+    private double charge(double pH, double analyteConcentration, double titrantConcentration) {
+        double hydrogen = Math.exp(-LN_10 * pH);
+        return hydrogen - KW / hydrogen + analyteConcentration * analyteSpecies.meanCharge(hydrogen) +
+                titrantConcentration * titrantSpecies.meanCharge(hydrogen);
+    }
+
+    /**
+     * The pK<sub>w</sub> of water at 25°C
+     */
+    public static final double PKW = 14.0;
+
+    /**
+     * The K<sub>w</sub> of water at 25°C
+     */
+    private static final double KW = 1e-14;
+
+    /**
+     * The lowest pH searched
+     */
+    private static final double MIN_PH = -2;
+
+    /**
+     * The highest pH searched
+     */
+    private static final double MAX_PH = 16;
+
+    /**
+     * The number of bisections, which narrows the bracket to under 10<sup>-3</sup> of a pH unit before the final
+     * interpolation
+     */
+    private static final int ITERATIONS = 16;
+
+    /**
+     * The natural logarithm of 10
+     */
+    private static final double LN_10 = Math.log(10);
+
+    /**
+     * The number of points solved together
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    /**
+     * The number of moles of analyte
+     */
+    private final double analyteMoles;
+
+    /**
+     * The volume of the analyte solution in litres
+     */
+    private final double analyteVolume;
+
+    /**
+     * How the analyte behaves as an acid or base
+     */
+    private final AcidBaseSpecies analyteSpecies;
+
+    /**
+     * The concentration of the titrant in moldm<sup>-3</sup>
+     */
+    private final double titrantConcentration;
+
+    /**
+     * How the titrant behaves as an acid or base
+     */
+    private final AcidBaseSpecies titrantSpecies;
+}
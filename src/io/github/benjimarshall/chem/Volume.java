@@ -2,36 +2,30 @@ package io.github.benjimarshall.chem;
 
 
 import java.math.BigDecimal;
-import java.math.MathContext;
-import java.util.HashMap;
 
 /**
- * Metric Volume. An immutable {@code Volume} object is a wrapper for the {@link BigDecimal} class with methods to
- * convert between metric units of volume
+ * Metric Volume. An immutable {@code Volume} object is a {@link Quantity} in litres with methods to convert between
+ * metric units of volume
  * @see MetricVolumeUnit
  */
-public class Volume {
-
-    private Volume() {
-
-    }
-
+public class Volume extends Quantity<Volume> {
     /**
      * Makes a {@code Volume} object from a {@code BigDecimal} volume, with litres as the assumed {@code MetricVolumeUnit}
      * @param volume a {@code BigDecimal} volume value
      */
     public Volume(BigDecimal volume) {
         // If no units are provided, assume litres so do nothing
-        this.volume = volume;
+        super(volume);
     }
 
     /**
      * Makes a {@code Volume} object from a {@code double} volume, with litres as the assumed {@code MetricVolumeUnit}
-     * @param volume a {@code double} volume value
+     * @param volume a {@code double} volume value, held as a
+     * {@code double} unless the current {@link NumericPolicy} is exact
      */
     public Volume(double volume) {
         // If no units are provided, assume litre so do nothing
-        this(BigDecimal.valueOf(volume));
+        super(volume);
     }
 
     /**
@@ -40,64 +34,45 @@ public class Volume {
      * @param units a {@code MetricVolumeUnit} of the passed value
      */
     public Volume(BigDecimal volume , MetricVolumeUnit units) {
-        this(volume.multiply(power(BigDecimal.TEN, getSIExponentFromVolumeUnit(units))));
+        this(toBaseUnit(volume, units));
     }
 
     /**
      * Makes a {@code Volume} object from a {@code double} volume, with provided {@code MetricVolumeUnit}
-     * @param volume a {@code double} volume value
+     * @param volume a {@code double} volume value, held as a
+     * {@code double} unless the current {@link NumericPolicy} is exact
      * @param units a {@code MetricVolumeUnit} of the passed value
      */
     public Volume(double volume, MetricVolumeUnit units) {
-        this(BigDecimal.valueOf(volume), units);
-    }
-
-    /**
-     * Add this {@code Volume} object to the {@code Volume} parameter, and return a new {@code Volume} object of the
-     * resultant value
-     * @param volume the {@code Volume} object to add to this object
-     * @return a new {@code Volume} object of the resultant value
-     */
-    public Volume add(Volume volume) {
-        return new Volume(this.volume.add(volume.getVolumeInLitres()));
-    }
-
-    /**
-     * Subtract the {@code Volume} parameter from this {@code Volume} object, and return a new {@code Volume} object of
-     * the resultant value
-     * @param volume the {@code Volume} object to subtract from this object
-     * @return a new {@code Volume} object of the resultant value
-     */
-    public Volume subtract(Volume volume) {
-        return new Volume(this.volume.subtract(volume.getVolumeInLitres()));
+        super(volume, units);
     }
 
     /**
-     * Multiply this {@code Volume} object by the {@code Volume} parameter, and return a new {@code Volume} object of the
-     * resultant value
-     * @param volume the {@code Volume} object to multiply by this object
-     * @return a new {@code Volume} object of the resultant value
+     * Makes a new {@code Volume} object with a given value in litres
+     * @param value a {@code BigDecimal} volume value in litres
+     * @return a new {@code Volume} object
      */
-    public Volume multiply(Volume volume) {
-        return new Volume(this.volume.multiply(volume.getVolumeInLitres()));
+    @Override
+    protected Volume make(BigDecimal value) {
+        return new Volume(value);
     }
 
     /**
-     * Divide this {@code Volume} object by the {@code Volume} parameter, and return a new {@code Volume} object of the
-     * resultant value
-     * @param volume the {@code Volume} object to divide this object by
-     * @return a new {@code Volume} object of the resultant value
+     * Makes a new {@code Volume} object with a given {@code double} value in litres
+     * @param value a {@code double} volume value in litres
+     * @return a new {@code Volume} object
      */
-    public Volume divide(Volume volume) {
-        return new Volume(this.volume.divide(volume.getVolumeInLitres(), MathContext.DECIMAL64));
+    @Override
+    protected Volume make(double value) {
+        return new Volume(value);
     }
 
     /**
-     * Gets the {@link #volume} of the {@code Volume} object in litres
-     * @return the {@link #volume} of the {@code Volume} object in litres
+     * Gets the value of the {@code Volume} object in litres
+     * @return the value of the {@code Volume} object in litres
      */
     public BigDecimal getVolumeInLitres() {
-        return this.volume;
+        return getValue();
     }
 
     /**
@@ -105,16 +80,16 @@ public class Volume {
      * @return a {@code String} representation of the {@code Volume} object dm<sup>3</sup>
      */
     public String getVolume() {
-        return volume.toString() + " dm3";
+        return getValue().toString() + " dm3";
     }
 
     /**
-     * Generates the {@code BigDecimal} object with the value of the {@link #volume} with the given units
+     * Generates the {@code BigDecimal} object with the value of the volume with the given units
      * @param targetUnit the desired units for the value
      * @return the {@code BigDecimal} object with the value of the volume with the given units
      */
     public BigDecimal getVolume(MetricVolumeUnit targetUnit) {
-        return volume.divide(power(BigDecimal.TEN, SI_UNIT_EXPONENTS.get(targetUnit)), MathContext.DECIMAL64);
+        return getValue(targetUnit);
     }
 
     /**
@@ -123,14 +98,10 @@ public class Volume {
      * @param base base of the expression to be evaluated
      * @param n exponent of the expression to be evaluated
      * @return a {@code BigDecimal} object with the value of the base to the power of n
+     * @see Quantity#power(BigDecimal, int)
      */
     public static BigDecimal power(BigDecimal base, int n) {
-        if (n < 0) {
-            return BigDecimal.ONE.divide(base.pow(n * -1), MathContext.DECIMAL128);
-        }
-        else {
-            return base.pow(n);
-        }
+        return Quantity.power(base, n);
     }
 
     /**
@@ -146,26 +117,68 @@ public class Volume {
     /**
      * Metric Units of Volume
      */
-    public enum MetricVolumeUnit {
+    public enum MetricVolumeUnit implements MetricUnit {
         /**
          * Metres cubed, 10<sup>3</sup>dm<sup>3</sup>
          */
-        m3,
+        m3(3),
 
         /**
          * Decimetres cubed, 10<sup>0</sup>dm<sup>3</sup>
          */
-        dm3,
+        dm3(0),
 
         /**
          * Litres, 10<sup>0</sup>dm<sup>3</sup>
          */
-        l,
+        l(0),
 
         /**
          * Centimetres cubed, 10<sup>-3</sup>dm<sup>3</sup>
          */
-        cm3,
+        cm3(-3);
+
+        MetricVolumeUnit(int exponent) {
+            this.exponent = exponent;
+            this.factor = Double.parseDouble("1e" + exponent);
+        }
+
+        /**
+         * Gets the exponent for the base 10, relative to litres
+         * @return the exponent for the base 10, relative to litres
+         */
+        @Override
+        public int getExponent() {
+            return exponent;
+        }
+
+        /**
+         * Gets the number of litres in one of this unit
+         * @return the number of litres in one of this unit
+         */
+        @Override
+        public double getFactor() {
+            return factor;
+        }
+
+        /**
+         * Gets the symbol of the unit, which is its name
+         * @return the symbol of the unit
+         */
+        @Override
+        public String getSymbol() {
+            return name();
+        }
+
+        /**
+         * The exponent for the base 10, relative to litres
+         */
+        private final int exponent;
+
+        /**
+         * The number of litres in one of this unit
+         */
+        private final double factor;
     }
 
     /**
@@ -174,31 +187,6 @@ public class Volume {
      * @return the exponent for the base 10, relative to litres
      */
     public static int getSIExponentFromVolumeUnit(MetricVolumeUnit unit) {
-        return SI_UNIT_EXPONENTS.get(unit);
+        return unit.getExponent();
     }
-
-    /**
-     * A map of exponents with {@code MetricVolumeUnit} items as keys
-     */
-    protected static HashMap<MetricVolumeUnit, Integer> SI_UNIT_EXPONENTS = new HashMap<>();
-
-    /**
-     * A map of {@code MetricVolumeUnit} items of with exponents as keys
-     */
-    protected static HashMap<Integer, MetricVolumeUnit> SI_EXPONENT_UNITS = new HashMap<>();
-    static {
-        SI_UNIT_EXPONENTS.put(MetricVolumeUnit.dm3, 0);
-        SI_UNIT_EXPONENTS.put(MetricVolumeUnit.cm3, -3);
-        SI_UNIT_EXPONENTS.put(MetricVolumeUnit.m3, 3);
-
-        for (HashMap.Entry<MetricVolumeUnit, Integer> entry : SI_UNIT_EXPONENTS.entrySet()) {
-            SI_EXPONENT_UNITS.put(entry.getValue(), entry.getKey());
-        }
-        SI_UNIT_EXPONENTS.put(MetricVolumeUnit.l, 0);
-    }
-
-    /**
-     * A {@code BigDecimal} object with the value of the volume in dm<sup>3</sup>
-     */
-    protected BigDecimal volume;
 }